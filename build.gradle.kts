@@ -2,6 +2,7 @@ plugins {
     `java-library`
     `maven-publish`
     signing
+    id("me.champeau.gradle.jmh") version "0.5.3"
 }
 
 java {
@@ -33,6 +34,18 @@ val test by tasks.getting(Test::class) {
     useJUnitPlatform()
 }
 
+// Benchmarks are in src/jmh/java, run them with "./gradlew jmh", or "./gradlew jmh -Pjmh.includes=<regex>" to run
+// some of them. The results with allocation rates are saved in build/reports/jmh.
+jmh {
+    jmhVersion = "1.25"
+    profilers = listOf("gc")
+    resultFormat = "JSON"
+    includes = listOfNotNull(project.findProperty("jmh.includes") as String?)
+    duplicateClassesStrategy = DuplicatesStrategy.EXCLUDE
+    // The sample files in audio/ are resolved against the project directory
+    jvmArgsAppend = listOf("-Doggus.projectDir=${project.projectDir}")
+}
+
 tasks {
     jar {
         manifest {
@@ -0,0 +1,119 @@
+package org.chenliang.oggus;
+
+import org.chenliang.oggus.ogg.PageFlushPolicy;
+import org.chenliang.oggus.opus.AudioDataPacket;
+import org.chenliang.oggus.opus.Channel;
+import org.chenliang.oggus.opus.CommentHeader;
+import org.chenliang.oggus.opus.Config;
+import org.chenliang.oggus.opus.IdHeader;
+import org.chenliang.oggus.opus.OggOpusWriter;
+import org.chenliang.oggus.opus.OpusPacket;
+import org.chenliang.oggus.opus.OpusPackets;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.Random;
+
+/**
+ * Inputs of benchmarks, which are the sample files in {@code audio/} and larger generated streams. File paths are
+ * resolved against the {@code oggus.projectDir} system property, which is set by the Gradle build.
+ */
+public class BenchmarkData {
+    /**
+     * The name of a generated Ogg Opus stream, which could be used in place of a sample file path.
+     */
+    public static final String SYNTHETIC = "synthetic";
+    private static final int SYNTHETIC_PACKET_COUNT = 3000;
+
+    /**
+     * Load an Ogg Opus stream, either a file or {@link BenchmarkData#SYNTHETIC}.
+     *
+     * @param name the file path or {@link BenchmarkData#SYNTHETIC}
+     * @return the binary data of the stream
+     * @throws IOException if the file could not be read
+     */
+    public static byte[] loadOggOpusStream(String name) throws IOException {
+        if (SYNTHETIC.equals(name)) {
+            return createOggOpusStream(SYNTHETIC_PACKET_COUNT);
+        }
+        return Files.readAllBytes(Paths.get(System.getProperty("oggus.projectDir", "."), name));
+    }
+
+    /**
+     * Create an Ogg Opus stream of 20 ms stereo packets of random sizes, 50 packets per page.
+     *
+     * @param packetCount the number of audio data packets
+     * @return the binary data of the stream
+     * @throws IOException never, the stream is written to memory
+     */
+    public static byte[] createOggOpusStream(int packetCount) throws IOException {
+        Random random = new Random(0);
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        try (OggOpusWriter writer = OggOpusWriter.to(outputStream, createIdHeader(), createCommentHeader())) {
+            writer.setFlushPolicy(PageFlushPolicy.afterPackets(50));
+            for (int i = 0; i < packetCount; i++) {
+                OpusPacket opusPacket = OpusPackets.newPacket(Config.of(31), Channel.STEREO, 0);
+                opusPacket.addFrame(createRandomBinary(random, 100 + random.nextInt(200)));
+                AudioDataPacket audioDataPacket = AudioDataPacket.empty();
+                audioDataPacket.addOpusPacket(opusPacket);
+                writer.writeAudioPacket(audioDataPacket);
+            }
+        }
+        return outputStream.toByteArray();
+    }
+
+    public static byte[] createRandomBinary(Random random, int length) {
+        byte[] data = new byte[length];
+        random.nextBytes(data);
+        return data;
+    }
+
+    /**
+     * Create a channel that discards all written bytes, for benchmarks that measure writing without I/O.
+     *
+     * @return the channel
+     */
+    public static WritableByteChannel createDiscardChannel() {
+        return new DiscardChannel();
+    }
+
+    private static IdHeader createIdHeader() {
+        IdHeader idHeader = IdHeader.emptyHeader();
+        idHeader.setMajorVersion(0);
+        idHeader.setMinorVersion(1);
+        idHeader.setChannelCount(2);
+        idHeader.setPreSkip(312);
+        idHeader.setInputSampleRate(48000);
+        idHeader.setOutputGain(0);
+        idHeader.setChannelMappingFamily(0);
+        return idHeader;
+    }
+
+    private static CommentHeader createCommentHeader() {
+        CommentHeader commentHeader = CommentHeader.emptyHeader();
+        commentHeader.setVendor("oggus benchmark");
+        return commentHeader;
+    }
+
+    private static class DiscardChannel implements WritableByteChannel {
+        @Override
+        public int write(ByteBuffer src) {
+            int size = src.remaining();
+            src.position(src.limit());
+            return size;
+        }
+
+        @Override
+        public boolean isOpen() {
+            return true;
+        }
+
+        @Override
+        public void close() {
+        }
+    }
+}
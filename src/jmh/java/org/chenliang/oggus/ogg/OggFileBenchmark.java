@@ -0,0 +1,65 @@
+package org.chenliang.oggus.ogg;
+
+import org.chenliang.oggus.BenchmarkData;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+/**
+ * Validate the checksums of all pages of a generated file of about 40 MB, either sequentially from a memory mapped
+ * file or by chunks in parallel. Each operation is a whole file.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class OggFileBenchmark {
+    private static final int PACKET_COUNT = 200000;
+    private Path file;
+
+    @Setup
+    public void setup() throws IOException {
+        file = Files.createTempFile("oggus-benchmark", ".opus");
+        Files.write(file, BenchmarkData.createOggOpusStream(PACKET_COUNT));
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        Files.delete(file);
+    }
+
+    @Benchmark
+    public long validateSequentially() throws IOException {
+        long validCount = 0;
+        try (OggStream oggStream = OggStream.fromMappedFile(file.toString())) {
+            OggPageView view;
+            while ((view = oggStream.readPageView()) != null) {
+                validCount += view.isCheckSumValid() ? 1 : 0;
+            }
+        }
+        return validCount;
+    }
+
+    @Benchmark
+    public long validateInParallel() throws IOException {
+        try (Stream<Boolean> pages = OggStream.parallelPages(file, (offset, view) -> view.isCheckSumValid())) {
+            return pages.filter(isValid -> isValid).count();
+        }
+    }
+}
@@ -0,0 +1,71 @@
+package org.chenliang.oggus.ogg;
+
+import org.chenliang.oggus.BenchmarkData;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.nio.ByteBuffer;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class OggPageBenchmark {
+    @Param({"1", "10", "50", "127"})
+    private int packetCount;
+    private byte[][] dataPackets;
+    private OggPage oggPage;
+    private ByteBuffer buffer;
+
+    @Setup
+    public void setup() {
+        Random random = new Random(0);
+        oggPage = OggPage.empty();
+        oggPage.setGranulePosition(48000);
+        oggPage.setSerialNum(1);
+        oggPage.setSeqNum(10);
+        dataPackets = new byte[packetCount][];
+        for (int i = 0; i < packetCount; i++) {
+            dataPackets[i] = BenchmarkData.createRandomBinary(random, 300);
+            oggPage.addDataPacket(dataPackets[i]);
+        }
+        buffer = ByteBuffer.allocate(OggPage.MAX_PAGE_SIZE);
+    }
+
+    /**
+     * Build a page by adding data packets, 127 packets of 2 segments is nearly a full page.
+     */
+    @Benchmark
+    public OggPage addDataPacket() {
+        OggPage page = OggPage.empty();
+        for (byte[] dataPacket : dataPackets) {
+            page.addDataPacket(dataPacket);
+        }
+        return page;
+    }
+
+    @Benchmark
+    public byte[] dump() {
+        return oggPage.dump();
+    }
+
+    @Benchmark
+    public ByteBuffer writeTo() {
+        buffer.clear();
+        oggPage.writeTo(buffer);
+        return buffer;
+    }
+}
@@ -0,0 +1,56 @@
+package org.chenliang.oggus.ogg;
+
+import org.chenliang.oggus.BenchmarkData;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.channels.Channels;
+import java.nio.channels.WritableByteChannel;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Remux a generated stream of about 9 MB with one 60 bytes packet per page, as written by live encoders, into pages
+ * of 50 packets. The output is discarded.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class OggRemuxerBenchmark {
+    private static final int PACKET_COUNT = 100000;
+    private final OggRemuxer remuxer = OggRemuxer.create(PageFlushPolicy.afterPackets(50));
+    private final WritableByteChannel output = BenchmarkData.createDiscardChannel();
+    private byte[] data;
+
+    @Setup
+    public void setup() throws IOException {
+        Random random = new Random(0);
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        OggPacketWriter writer = OggPacketWriter.to(Channels.newChannel(outputStream), 1);
+        writer.setFlushPolicy(PageFlushPolicy.afterPackets(1));
+        for (int i = 1; i <= PACKET_COUNT; i++) {
+            writer.writePacket(BenchmarkData.createRandomBinary(random, 60), i * 960L);
+        }
+        writer.finish();
+        data = outputStream.toByteArray();
+    }
+
+    @Benchmark
+    public long remux() throws IOException {
+        return remuxer.remux(OggStream.from(new ByteArrayInputStream(data)), output);
+    }
+}
@@ -0,0 +1,66 @@
+package org.chenliang.oggus.ogg;
+
+import org.chenliang.oggus.BenchmarkData;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Read all pages of a stream in memory, each operation is a whole stream.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class OggStreamBenchmark {
+    @Param({"audio/technology.opus", "audio/hellopeter.opus", BenchmarkData.SYNTHETIC})
+    private String stream;
+    private byte[] data;
+
+    @Setup
+    public void setup() throws IOException {
+        data = BenchmarkData.loadOggOpusStream(stream);
+    }
+
+    @Benchmark
+    public void readPage(Blackhole blackhole) throws IOException {
+        OggStream oggStream = OggStream.from(new ByteArrayInputStream(data));
+        OggPage oggPage;
+        while ((oggPage = oggStream.readPage()) != null) {
+            blackhole.consume(oggPage);
+        }
+    }
+
+    @Benchmark
+    public void readPageInto(Blackhole blackhole) throws IOException {
+        OggStream oggStream = OggStream.from(new ByteArrayInputStream(data));
+        OggPage oggPage = OggPage.empty();
+        while (oggStream.readPage(oggPage) != null) {
+            blackhole.consume(oggPage);
+        }
+    }
+
+    @Benchmark
+    public void readPageView(Blackhole blackhole) throws IOException {
+        OggStream oggStream = OggStream.from(new ByteArrayInputStream(data));
+        OggPageView view;
+        while ((view = oggStream.readPageView()) != null) {
+            blackhole.consume(view.getGranulePosition());
+        }
+    }
+}
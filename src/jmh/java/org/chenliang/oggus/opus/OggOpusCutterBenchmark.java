@@ -0,0 +1,63 @@
+package org.chenliang.oggus.opus;
+
+import org.chenliang.oggus.BenchmarkData;
+import org.chenliang.oggus.ogg.OggStream;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cut a generated file of about 40 MB and 4000 seconds, either one minute from its middle or the whole file. The
+ * output is discarded, so the time is spent on reading and packing pages.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class OggOpusCutterBenchmark {
+    private static final int PACKET_COUNT = 200000;
+    private static final long MINUTE = 60 * 48000L;
+    private final WritableByteChannel output = BenchmarkData.createDiscardChannel();
+    private Path file;
+
+    @Setup
+    public void setup() throws IOException {
+        file = Files.createTempFile("oggus-benchmark", ".opus");
+        Files.write(file, BenchmarkData.createOggOpusStream(PACKET_COUNT));
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        Files.delete(file);
+    }
+
+    @Benchmark
+    public long cutMinute() throws IOException {
+        try (OggStream oggStream = OggStream.from(file.toString())) {
+            return OggOpusCutter.cut(OggOpusStream.from(oggStream), 30 * MINUTE, 31 * MINUTE, output);
+        }
+    }
+
+    @Benchmark
+    public long cutAll() throws IOException {
+        try (OggStream oggStream = OggStream.from(file.toString())) {
+            return OggOpusCutter.cut(OggOpusStream.from(oggStream), 0, Long.MAX_VALUE, output);
+        }
+    }
+}
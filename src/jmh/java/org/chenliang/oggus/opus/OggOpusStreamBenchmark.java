@@ -0,0 +1,68 @@
+package org.chenliang.oggus.opus;
+
+import org.chenliang.oggus.BenchmarkData;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Read all audio data packets of a stream in memory, each operation is a whole stream.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class OggOpusStreamBenchmark {
+    @Param({"audio/technology.opus", "audio/hellopeter.opus", BenchmarkData.SYNTHETIC})
+    private String stream;
+    private byte[] data;
+    private final ByteBuffer buffer = ByteBuffer.allocate(1 << 20);
+
+    @Setup
+    public void setup() throws IOException {
+        data = BenchmarkData.loadOggOpusStream(stream);
+    }
+
+    @Benchmark
+    public void readAudioPacket(Blackhole blackhole) throws IOException {
+        OggOpusStream oggOpusStream = OggOpusStream.from(new ByteArrayInputStream(data));
+        AudioDataPacket audioDataPacket;
+        while ((audioDataPacket = oggOpusStream.readAudioPacket()) != null) {
+            blackhole.consume(audioDataPacket);
+        }
+    }
+
+    @Benchmark
+    public void readAudioPacketInto(Blackhole blackhole) throws IOException {
+        OggOpusStream oggOpusStream = OggOpusStream.from(new ByteArrayInputStream(data));
+        AudioDataPacket audioDataPacket = AudioDataPacket.empty();
+        while (oggOpusStream.readAudioPacket(audioDataPacket) != null) {
+            blackhole.consume(audioDataPacket);
+        }
+    }
+
+    @Benchmark
+    public void readRawPacket(Blackhole blackhole) throws IOException {
+        OggOpusStream oggOpusStream = OggOpusStream.from(new ByteArrayInputStream(data));
+        while (oggOpusStream.readRawPacket(buffer) != -1) {
+            blackhole.consume(buffer);
+            buffer.clear();
+        }
+    }
+}
@@ -0,0 +1,66 @@
+package org.chenliang.oggus.opus;
+
+import org.chenliang.oggus.BenchmarkData;
+import org.chenliang.oggus.ogg.OggStream;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Get the duration of a generated file of about 40 MB, either by probing the tail of the file or by reading all
+ * audio data packets. Each operation opens the file and reads the headers.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class OpusDurationBenchmark {
+    private static final int PACKET_COUNT = 200000;
+    private Path file;
+
+    @Setup
+    public void setup() throws IOException {
+        file = Files.createTempFile("oggus-benchmark", ".opus");
+        Files.write(file, BenchmarkData.createOggOpusStream(PACKET_COUNT));
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        Files.delete(file);
+    }
+
+    @Benchmark
+    public long probeDuration() throws IOException {
+        try (OggStream oggStream = OggStream.from(file.toString())) {
+            return OggOpusStream.from(oggStream).probeDurationSamples();
+        }
+    }
+
+    @Benchmark
+    public long readDuration() throws IOException {
+        try (OggStream oggStream = OggStream.from(file.toString())) {
+            OggOpusStream oggOpusStream = OggOpusStream.from(oggStream);
+            long sampleCount = 0;
+            AudioDataPacket audioDataPacket = AudioDataPacket.empty();
+            while (oggOpusStream.readAudioPacket(audioDataPacket) != null) {
+                sampleCount += audioDataPacket.getSampleCount();
+            }
+            return sampleCount - oggOpusStream.getIdHeader().getPreSkip();
+        }
+    }
+}
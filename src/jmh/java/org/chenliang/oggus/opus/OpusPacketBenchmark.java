@@ -0,0 +1,144 @@
+package org.chenliang.oggus.opus;
+
+import org.chenliang.oggus.BenchmarkData;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Parse and dump a single Opus packet of each packet code, either to {@link OpusPacket} objects or to a reused
+ * {@link OpusPacketView}. The multistream case is an audio data packet of two streams, where the first packet is in
+ * self-delimiting format, and the dump benchmarks dump the whole audio data packet.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class OpusPacketBenchmark {
+    @Param({"CODE_0", "CODE_1", "CODE_2", "CODE_3_CBR", "CODE_3_VBR", "CODE_3_PADDED", "CODE_3_48_FRAMES",
+            "MULTISTREAM"})
+    private String packetType;
+    private OpusPacket opusPacket;
+    private AudioDataPacket audioDataPacket;
+    private byte[] standardData;
+    private byte[] multistreamData;
+    private final OpusPacketView view = new OpusPacketView();
+
+    @Setup
+    public void setup() {
+        Random random = new Random(0);
+        switch (packetType) {
+            case "CODE_0":
+                opusPacket = OpusPackets.newPacket(Config.of(31), Channel.STEREO, 0);
+                opusPacket.addFrame(BenchmarkData.createRandomBinary(random, 300));
+                break;
+            case "CODE_1":
+                opusPacket = OpusPackets.newPacket(Config.of(31), Channel.STEREO, 1);
+                opusPacket.addFrame(BenchmarkData.createRandomBinary(random, 150));
+                opusPacket.addFrame(BenchmarkData.createRandomBinary(random, 150));
+                break;
+            case "CODE_2":
+                opusPacket = OpusPackets.newPacket(Config.of(31), Channel.STEREO, 2);
+                opusPacket.addFrame(BenchmarkData.createRandomBinary(random, 100));
+                opusPacket.addFrame(BenchmarkData.createRandomBinary(random, 300));
+                break;
+            case "CODE_3_CBR":
+                opusPacket = createCodeThreePacket(random, false, 0, 6);
+                break;
+            case "CODE_3_VBR":
+                opusPacket = createCodeThreePacket(random, true, 0, 6);
+                break;
+            case "CODE_3_PADDED":
+                opusPacket = createCodeThreePacket(random, true, 300, 6);
+                break;
+            case "CODE_3_48_FRAMES":
+                opusPacket = createCodeThreePacket(random, true, 0, OpusPacketView.MAX_FRAME_COUNT);
+                break;
+            case "MULTISTREAM":
+                opusPacket = createCodeThreePacket(random, true, 0, 6);
+                OpusPacket secondOpusPacket = OpusPackets.newPacket(Config.of(16), Channel.STEREO, 1);
+                secondOpusPacket.addFrame(BenchmarkData.createRandomBinary(random, 150));
+                secondOpusPacket.addFrame(BenchmarkData.createRandomBinary(random, 150));
+                audioDataPacket = AudioDataPacket.empty();
+                audioDataPacket.addOpusPacket(opusPacket);
+                audioDataPacket.addOpusPacket(secondOpusPacket);
+                break;
+            default:
+                throw new IllegalArgumentException("Unknown packet type: " + packetType);
+        }
+        standardData = opusPacket.dumpToStandardFormat();
+        if (audioDataPacket != null) {
+            multistreamData = audioDataPacket.dump();
+        }
+    }
+
+    @Benchmark
+    public Object from() {
+        if (packetType.equals("MULTISTREAM")) {
+            return OpusPackets.from(multistreamData, 2);
+        }
+        return OpusPackets.from(standardData);
+    }
+
+    /**
+     * Parse into a reused {@link OpusPacketView}, which doesn't allocate.
+     */
+    @Benchmark
+    public int parseView() {
+        int offset = 0;
+        if (packetType.equals("MULTISTREAM")) {
+            offset = view.parseSelfDelimiting(multistreamData, 0, multistreamData.length).getLength();
+            return view.parse(multistreamData, offset, multistreamData.length - offset).getFrameCount();
+        }
+        return view.parse(standardData).getFrameCount();
+    }
+
+    /**
+     * Only read the TOC byte and the frame count byte.
+     */
+    @Benchmark
+    public int getSampleCount() {
+        return OpusUtil.getSampleCount(packetType.equals("MULTISTREAM") ? multistreamData : standardData);
+    }
+
+    @Benchmark
+    public byte[] dumpToStandardFormat() {
+        if (packetType.equals("MULTISTREAM")) {
+            return audioDataPacket.dump();
+        }
+        return opusPacket.dumpToStandardFormat();
+    }
+
+    @Benchmark
+    public byte[] dumpToSelfDelimitingFormat() {
+        if (packetType.equals("MULTISTREAM")) {
+            return audioDataPacket.dump();
+        }
+        return opusPacket.dumpToSelfDelimitingFormat();
+    }
+
+    private OpusPacket createCodeThreePacket(Random random, boolean isVbr, int padLenBytesSum, int frameCount) {
+        OpusPacket opusPacket = OpusPackets.newPacket(Config.of(16), Channel.STEREO, 3);
+        opusPacket.setVbr(isVbr);
+        opusPacket.setFrameCount(frameCount);
+        opusPacket.setHasPadding(padLenBytesSum > 0);
+        opusPacket.setPadLenBytesSum(padLenBytesSum);
+        for (int i = 0; i < frameCount; i++) {
+            opusPacket.addFrame(BenchmarkData.createRandomBinary(random, isVbr ? 40 + i % 6 * 10 : 60));
+        }
+        return opusPacket;
+    }
+}
@@ -0,0 +1,53 @@
+package org.chenliang.oggus.util;
+
+import org.chenliang.oggus.BenchmarkData;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.nio.ByteBuffer;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class CRCUtilBenchmark {
+    @Param({"64", "4096", "65307"})
+    private int size;
+    private byte[] data;
+    private ByteBuffer directBuffer;
+
+    @Setup
+    public void setup() {
+        data = BenchmarkData.createRandomBinary(new Random(0), size);
+        directBuffer = ByteBuffer.allocateDirect(size);
+        directBuffer.put(data).flip();
+    }
+
+    @Benchmark
+    public int getCRC() {
+        return CRCUtil.getCRC(data);
+    }
+
+    @Benchmark
+    public int updateArray() {
+        return CRCUtil.update(0, data, 0, data.length);
+    }
+
+    @Benchmark
+    public int updateDirectBuffer() {
+        return CRCUtil.update(0, directBuffer, 0, size);
+    }
+}
@@ -0,0 +1,50 @@
+package org.chenliang.oggus.ogg;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Search the capture pattern "OggS" in a little endian buffer, 8 bytes at a time.
+ *
+ * <p>Every 8 bytes are loaded as a {@code long}, and the bytes that equal to 'O' are located with SWAR (SIMD within a
+ * register) bit tricks. Only these candidate positions are compared with the whole capture pattern.</p>
+ */
+class CapturePatternScanner {
+    private static final int CAPTURE_PATTERN_INT = 'O' | 'g' << 8 | 'g' << 16 | 'S' << 24;
+    private static final long FIRST_BYTES = 0x4F4F4F4F4F4F4F4FL;
+    private static final long LOW_BITS = 0x0101010101010101L;
+    private static final long HIGH_BITS = 0x8080808080808080L;
+
+    private CapturePatternScanner() {
+    }
+
+    /**
+     * Find the first capture pattern that is completely within the range {@code [from, to)} of the buffer.
+     *
+     * @param buffer a buffer in little endian order
+     * @param from   the absolute start index, inclusive
+     * @param to     the absolute end index, exclusive
+     * @return the index of the capture pattern, or -1 if it is not found
+     */
+    static int indexOf(ByteBuffer buffer, int from, int to) {
+        int last = to - OggPage.CAPTURE_PATTERN.length;
+        int i = from;
+        for (; i <= to - Long.BYTES; i += Long.BYTES) {
+            long x = buffer.getLong(i) ^ FIRST_BYTES;
+            // The high bit of a byte is set if the byte is zero, the bytes above a zero byte may be false positive.
+            long mask = (x - LOW_BITS) & ~x & HIGH_BITS;
+            while (mask != 0) {
+                int candidate = i + (Long.numberOfTrailingZeros(mask) >>> 3);
+                if (candidate <= last && buffer.getInt(candidate) == CAPTURE_PATTERN_INT) {
+                    return candidate;
+                }
+                mask &= mask - 1;
+            }
+        }
+        for (; i <= last; i++) {
+            if (buffer.getInt(i) == CAPTURE_PATTERN_INT) {
+                return i;
+            }
+        }
+        return -1;
+    }
+}
@@ -0,0 +1,77 @@
+package org.chenliang.oggus.ogg;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.SeekableByteChannel;
+
+/**
+ * Read data from a channel into a heap buffer that always has room for two Ogg pages.
+ */
+class ChannelOggInput extends OggInput {
+    private static final int BUFFER_SIZE = 2 * OggPage.MAX_PAGE_SIZE;
+    private final ReadableByteChannel channel;
+    private boolean isEndOfChannel = false;
+
+    ChannelOggInput(ReadableByteChannel channel) {
+        this.channel = channel;
+        this.buffer = ByteBuffer.allocate(BUFFER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+        this.buffer.flip();
+    }
+
+    @Override
+    boolean fill(int size) throws IOException {
+        if (buffer.remaining() >= size) {
+            return true;
+        }
+        bufferOffset += buffer.position();
+        buffer.compact();
+        try {
+            while (buffer.position() < size && !isEndOfChannel) {
+                if (channel.read(buffer) == -1) {
+                    isEndOfChannel = true;
+                }
+            }
+        } finally {
+            buffer.flip();
+        }
+        return buffer.remaining() >= size;
+    }
+
+    @Override
+    void seek(long position) throws IOException {
+        SeekableByteChannel seekableChannel = seekableChannel();
+        if (position >= bufferOffset && position <= bufferOffset + buffer.limit()) {
+            buffer.position((int) (position - bufferOffset));
+            return;
+        }
+        seekableChannel.position(position);
+        buffer.clear();
+        buffer.flip();
+        bufferOffset = position;
+        isEndOfChannel = false;
+    }
+
+    @Override
+    long size() throws IOException {
+        return seekableChannel().size();
+    }
+
+    @Override
+    boolean isSeekable() {
+        return channel instanceof SeekableByteChannel;
+    }
+
+    private SeekableByteChannel seekableChannel() {
+        if (!isSeekable()) {
+            throw new IllegalStateException("The underlying channel doesn't support seeking");
+        }
+        return (SeekableByteChannel) channel;
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+}
@@ -0,0 +1,26 @@
+package org.chenliang.oggus.ogg;
+
+/**
+ * The policy of {@link OggStream} to verify the checksum of Ogg pages that are read in sync, which means the page
+ * starts right after the previous page. Pages found by resynchronization after skipping invalid data are always
+ * verified and dropped if the checksum mismatches.
+ */
+public enum CheckSumPolicy {
+    /**
+     * Don't verify the checksum.
+     */
+    SKIP,
+    /**
+     * Verify the checksum, a page with mismatched checksum is skipped as invalid data.
+     */
+    DROP,
+    /**
+     * Verify the checksum, throw {@link InvalidOggException} if it mismatches.
+     */
+    THROW,
+    /**
+     * Verify the checksum, a page with mismatched checksum is still returned, and counted by
+     * {@link OggStream#getCheckSumErrorCount()}.
+     */
+    COUNT
+}
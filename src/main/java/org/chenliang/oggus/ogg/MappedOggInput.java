@@ -0,0 +1,68 @@
+package org.chenliang.oggus.ogg;
+
+import java.io.IOException;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+
+/**
+ * Read data from a memory mapped file. The file is mapped by windows of a fixed size, so that files larger than
+ * {@code Integer.MAX_VALUE} bytes could be read. A new window is mapped at the current position when a page crosses
+ * the end of the current window.
+ */
+class MappedOggInput extends OggInput {
+    private final FileChannel channel;
+    private final long fileSize;
+    private final int windowSize;
+
+    MappedOggInput(FileChannel channel, int windowSize) throws IOException {
+        if (windowSize < OggPage.MAX_PAGE_SIZE) {
+            throw new IllegalArgumentException("Window size must not be less than the max Ogg page size");
+        }
+        this.channel = channel;
+        this.fileSize = channel.size();
+        this.windowSize = windowSize;
+        map(0);
+    }
+
+    @Override
+    boolean fill(int size) throws IOException {
+        if (buffer.remaining() >= size) {
+            return true;
+        }
+        if (bufferOffset + buffer.limit() == fileSize) {
+            return false;
+        }
+        map(position());
+        return buffer.remaining() >= size;
+    }
+
+    @Override
+    void seek(long position) throws IOException {
+        if (position >= bufferOffset && position <= bufferOffset + buffer.limit()) {
+            buffer.position((int) (position - bufferOffset));
+        } else {
+            map(position);
+        }
+    }
+
+    @Override
+    long size() {
+        return fileSize;
+    }
+
+    @Override
+    boolean isSeekable() {
+        return true;
+    }
+
+    private void map(long offset) throws IOException {
+        long length = Math.min(windowSize, fileSize - offset);
+        buffer = channel.map(FileChannel.MapMode.READ_ONLY, offset, length).order(ByteOrder.LITTLE_ENDIAN);
+        bufferOffset = offset;
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+}
@@ -0,0 +1,167 @@
+package org.chenliang.oggus.ogg;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Demultiplex an Ogg physical stream into its logical streams in a single pass. Each page is dispatched to the
+ * handler of its logical stream, the handler is created by a {@link StreamListener} when the BOS page of the logical
+ * stream is read.
+ *
+ * <p>A physical stream is a chain of links. Each link is a group of multiplexed logical streams, whose BOS pages are
+ * all at the beginning of the link. A BOS page after other pages starts a new link, the logical streams of the
+ * previous link which don't have an EOS page yet are ended then. A serial number could be reused by the logical
+ * streams of different links.</p>
+ *
+ * <p>Pages could be pulled from an {@link OggStream} with {@link OggDemuxer#demux(OggStream)}, or pushed by an
+ * {@link OggPageParser}, since the demuxer is a {@link OggPageParser.PageListener} itself. The pages are passed to
+ * handlers as {@link OggPageView} objects, which are only valid in the call, a handler that queues pages should
+ * copy them with {@link OggPageView#toOggPage()}.</p>
+ *
+ * <pre>
+ * OggDemuxer demuxer = OggDemuxer.create((bosPage, linkIndex) -&gt; {
+ *     Queue&lt;OggPage&gt; pages = new ArrayDeque&lt;&gt;();
+ *     tracks.add(pages);
+ *     return view -&gt; pages.add(view.toOggPage());
+ * });
+ * demuxer.demux(OggStream.from(filePath));
+ * </pre>
+ */
+public class OggDemuxer implements OggPageParser.PageListener {
+    private static final OggPageParser.PageListener IGNORED = view -> {
+    };
+    private final StreamListener listener;
+    private final Map<Long, OggPageParser.PageListener> streams = new HashMap<>();
+    private int linkIndex = -1;
+    private boolean isBosGroupEnded = false;
+    private long ignoredPageCount = 0;
+
+    private OggDemuxer(StreamListener listener) {
+        this.listener = listener;
+    }
+
+    /**
+     * Create a demuxer that creates the handlers of logical streams with {@code listener}.
+     *
+     * @param listener the listener of logical streams
+     * @return OggDemuxer
+     */
+    public static OggDemuxer create(StreamListener listener) {
+        return new OggDemuxer(listener);
+    }
+
+    /**
+     * Read all pages of {@code oggStream} and dispatch them, then end the logical streams that don't have an EOS
+     * page.
+     *
+     * @param oggStream the physical stream
+     * @throws IOException if IO read error
+     */
+    public void demux(OggStream oggStream) throws IOException {
+        OggPageView view;
+        while ((view = oggStream.readPageView()) != null) {
+            onPage(view);
+        }
+        end();
+    }
+
+    /**
+     * Dispatch a page to the handler of its logical stream. Pages of a logical stream whose BOS page is not
+     * dispatched before, or which is ignored by the {@link StreamListener}, are ignored.
+     *
+     * @param view the view of the page
+     * @throws InvalidOggException if the BOS page of a logical stream is repeated in a link
+     */
+    @Override
+    public void onPage(OggPageView view) {
+        long serialNum = view.getSerialNum();
+        if (view.isBOS()) {
+            if (linkIndex < 0 || isBosGroupEnded) {
+                endStreams();
+                linkIndex++;
+                isBosGroupEnded = false;
+            }
+            if (streams.containsKey(serialNum)) {
+                throw new InvalidOggException("Repeated BOS page of logical stream: " + serialNum);
+            }
+            OggPageParser.PageListener handler = listener.onStreamStart(view, linkIndex);
+            streams.put(serialNum, handler != null ? handler : IGNORED);
+        } else {
+            isBosGroupEnded = true;
+        }
+
+        OggPageParser.PageListener handler = streams.get(serialNum);
+        if (handler == null || handler == IGNORED) {
+            ignoredPageCount++;
+        } else {
+            handler.onPage(view);
+        }
+        if (handler != null && view.isEOS()) {
+            streams.remove(serialNum);
+            if (handler != IGNORED) {
+                listener.onStreamEnd(serialNum, true);
+            }
+        }
+    }
+
+    /**
+     * End the logical streams that don't have an EOS page, when the physical stream is ended or truncated.
+     */
+    public void end() {
+        endStreams();
+    }
+
+    /**
+     * @return the index of the current link in the chain, or -1 if no BOS page is dispatched
+     */
+    public int getLinkIndex() {
+        return linkIndex;
+    }
+
+    /**
+     * @return the number of pages that are not passed to any handler
+     */
+    public long getIgnoredPageCount() {
+        return ignoredPageCount;
+    }
+
+    private void endStreams() {
+        List<Long> endedSerialNums = new ArrayList<>();
+        streams.forEach((serialNum, handler) -> {
+            if (handler != IGNORED) {
+                endedSerialNums.add(serialNum);
+            }
+        });
+        streams.clear();
+        for (long serialNum : endedSerialNums) {
+            listener.onStreamEnd(serialNum, false);
+        }
+    }
+
+    /**
+     * A listener of the logical streams found by {@link OggDemuxer}.
+     */
+    public interface StreamListener {
+        /**
+         * Called when the BOS page of a logical stream is read, before the page is passed to the returned handler.
+         *
+         * @param bosPage   the view of the BOS page, which is only valid in this call
+         * @param linkIndex the index of the link in the chain, starting from 0
+         * @return the handler of the pages of the logical stream, or {@code null} to ignore the logical stream
+         */
+        OggPageParser.PageListener onStreamStart(OggPageView bosPage, int linkIndex);
+
+        /**
+         * Called when a logical stream that is not ignored is ended, after its last page is passed to the handler.
+         *
+         * @param serialNum   the serial number of the logical stream
+         * @param isCompleted true if the logical stream is ended by an EOS page, false if it is ended by the end of
+         *                    the link or the physical stream
+         */
+        default void onStreamEnd(long serialNum, boolean isCompleted) {
+        }
+    }
+}
@@ -0,0 +1,58 @@
+package org.chenliang.oggus.ogg;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+/**
+ * The source of binary data of an {@link OggStream}. The data is exposed as a little endian {@link ByteBuffer}, the
+ * bytes between the buffer position and limit are the bytes that haven't been consumed.
+ */
+abstract class OggInput implements Closeable {
+    protected ByteBuffer buffer;
+    protected long bufferOffset = 0;
+
+    /**
+     * Get the current buffer. The buffer object may be replaced after {@link OggInput#fill(int)} is called.
+     *
+     * @return the buffer
+     */
+    ByteBuffer buffer() {
+        return buffer;
+    }
+
+    /**
+     * @return the offset in the stream of the current buffer position
+     */
+    long position() {
+        return bufferOffset + buffer.position();
+    }
+
+    /**
+     * Make sure there are at least {@code size} bytes remaining in the buffer. Bytes before the buffer position may
+     * be discarded, and the buffer position may be changed.
+     *
+     * @param size the required size, which must not be larger than {@link OggPage#MAX_PAGE_SIZE}
+     * @return false if the end of stream is reached before {@code size} bytes are available
+     * @throws IOException if an I/O error occurs
+     */
+    abstract boolean fill(int size) throws IOException;
+
+    /**
+     * Move to the given offset of the stream, the buffer is discarded unless the offset is within it.
+     *
+     * @param position the offset in the stream
+     * @throws IOException if an I/O error occurs
+     * @throws IllegalStateException if the input doesn't support seeking
+     */
+    abstract void seek(long position) throws IOException;
+
+    /**
+     * @return the size of the stream
+     * @throws IOException if an I/O error occurs
+     * @throws IllegalStateException if the input doesn't support seeking
+     */
+    abstract long size() throws IOException;
+
+    abstract boolean isSeekable();
+}
@@ -0,0 +1,171 @@
+package org.chenliang.oggus.ogg;
+
+import java.io.IOException;
+import java.nio.channels.WritableByteChannel;
+import java.util.Arrays;
+
+/**
+ * Write data packets of a logical Ogg stream to a channel. Packets are packed into Ogg pages, lace values,
+ * continued flags, sequence numbers, and the BOS and EOS flags are handled by this writer.
+ *
+ * <p>Only the current page is kept in memory, a page is written as soon as it's full, {@link #flush()} is called,
+ * or the {@link PageFlushPolicy} decides to close it. The byte arrays of data packets are not copied, they must not
+ * be modified until the page containing them is written.</p>
+ *
+ * <pre>
+ * OggPacketWriter writer = OggPacketWriter.to(channel, serialNum);
+ * writer.writePacket(data, granulePosition);
+ * writer.finish();
+ * </pre>
+ */
+public class OggPacketWriter {
+    private final WritableByteChannel channel;
+    private final long serialNum;
+    private PageFlushPolicy flushPolicy = PageFlushPolicy.manual();
+    private OggPage page = OggPage.empty();
+    private int pagePacketCount = 0;
+    private int pageBodySize = 0;
+    private long pageGranulePosition = -1;
+    private long lastGranulePosition = 0;
+    private long lastPageGranulePosition = 0;
+    private long seqNum = 0;
+    private boolean isContinued = false;
+    private boolean isFinished = false;
+
+    private OggPacketWriter(WritableByteChannel channel, long serialNum) {
+        this.channel = channel;
+        this.serialNum = serialNum;
+    }
+
+    /**
+     * Create a writer of the logical stream with {@code serialNum}.
+     *
+     * @param channel   the channel to write pages to
+     * @param serialNum the serial number of the logical stream
+     * @return OggPacketWriter
+     */
+    public static OggPacketWriter to(WritableByteChannel channel, long serialNum) {
+        return new OggPacketWriter(channel, serialNum);
+    }
+
+    /**
+     * Set the policy to decide when to close a page, the default policy is {@link PageFlushPolicy#manual()}.
+     *
+     * @param flushPolicy the policy
+     */
+    public void setFlushPolicy(PageFlushPolicy flushPolicy) {
+        this.flushPolicy = flushPolicy;
+    }
+
+    /**
+     * Add a data packet to the current page. If the page doesn't have enough room, the packet is split, and the
+     * rest part is continued in following pages.
+     *
+     * @param data            the binary data of the packet
+     * @param granulePosition the granule position at the end of this packet
+     * @throws IOException if an I/O error occurs
+     */
+    public void writePacket(byte[] data, long granulePosition) throws IOException {
+        addPacket(data, granulePosition, false);
+    }
+
+    /**
+     * Add the last data packet, and write the current page with EOS flag, no matter what the {@link PageFlushPolicy}
+     * decides. The end of the packet is always on the EOS page, so {@code granulePosition} could be less than the end
+     * of the packet to trim it, as the Opus end trimming. No packet could be written after it.
+     *
+     * @param data            the binary data of the packet
+     * @param granulePosition the granule position of the EOS page
+     * @throws IOException if an I/O error occurs
+     */
+    public void finish(byte[] data, long granulePosition) throws IOException {
+        addPacket(data, granulePosition, true);
+        finish();
+    }
+
+    private void addPacket(byte[] data, long granulePosition, boolean isLast) throws IOException {
+        if (isFinished) {
+            throw new IllegalStateException("The logical stream is already finished");
+        }
+        int offset = 0;
+        while (true) {
+            int leftLen = data.length - offset;
+            int freeSegCount = OggPage.MAX_SEG_COUNT - page.getSegCount();
+            if (leftLen / OggPage.MAX_LACE_VALUE + 1 <= freeSegCount) {
+                page.addDataPacket(offset == 0 ? data : Arrays.copyOfRange(data, offset, data.length));
+                pagePacketCount++;
+                pageBodySize += leftLen;
+                pageGranulePosition = granulePosition;
+                lastGranulePosition = granulePosition;
+                if (!isLast && flushPolicy.shouldFlush(pagePacketCount, pageBodySize,
+                        granulePosition - lastPageGranulePosition)) {
+                    writePage(false);
+                }
+                return;
+            }
+            int partialLen = freeSegCount * OggPage.MAX_LACE_VALUE;
+            page.addPartialDataPacket(Arrays.copyOfRange(data, offset, offset + partialLen));
+            pageBodySize += partialLen;
+            offset += partialLen;
+            writePage(false);
+        }
+    }
+
+    /**
+     * Write the current page if it's not empty, the next packet will start in a new page.
+     *
+     * @throws IOException if an I/O error occurs
+     */
+    public void flush() throws IOException {
+        if (page.getSegCount() > 0) {
+            writePage(false);
+        }
+    }
+
+    /**
+     * Write the current page with EOS flag. If the current page is empty, an empty page with EOS flag is written.
+     * No packet could be written after it.
+     *
+     * @throws IOException if an I/O error occurs
+     */
+    public void finish() throws IOException {
+        if (isFinished) {
+            return;
+        }
+        if (page.getSegCount() == 0) {
+            pageGranulePosition = lastGranulePosition;
+        }
+        writePage(true);
+        isFinished = true;
+    }
+
+    public long getSerialNum() {
+        return serialNum;
+    }
+
+    private void writePage(boolean isEnd) throws IOException {
+        page.setSerialNum(serialNum);
+        page.setSeqNum(seqNum);
+        page.setGranulePosition(pageGranulePosition);
+        if (seqNum == 0) {
+            page.setBOS();
+        }
+        if (isContinued) {
+            page.setContinued();
+        }
+        if (isEnd) {
+            page.setEOS();
+        }
+        page.writeTo(channel);
+
+        isContinued = page.getSegCount() > 0 && !page.isCompleted();
+        seqNum++;
+        if (pageGranulePosition != -1) {
+            lastPageGranulePosition = pageGranulePosition;
+        }
+        page = OggPage.empty();
+        pagePacketCount = 0;
+        pageBodySize = 0;
+        pageGranulePosition = -1;
+    }
+}
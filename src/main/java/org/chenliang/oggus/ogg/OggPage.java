@@ -1,13 +1,14 @@
 package org.chenliang.oggus.ogg;
 
-import com.google.common.io.LittleEndianDataOutputStream;
-import com.google.common.primitives.Bytes;
 import org.chenliang.oggus.util.CRCUtil;
 
-import java.io.ByteArrayOutputStream;
 import java.io.IOException;
+import java.nio.BufferOverflowException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.WritableByteChannel;
 import java.util.Arrays;
-import java.util.LinkedList;
+import java.util.ArrayList;
 import java.util.List;
 
 /**
@@ -41,14 +42,22 @@ import java.util.List;
 public class OggPage {
     public static final byte[] CAPTURE_PATTERN = {'O', 'g', 'g', 'S'};
     public static final int MAX_LACE_VALUE = 255;
+    public static final int MAX_SEG_COUNT = 255;
+    /**
+     * The size of the fixed part of page header, which doesn't include the segment table.
+     */
+    public static final int HEADER_SIZE = 27;
+    public static final int MAX_PAGE_SIZE = HEADER_SIZE + MAX_SEG_COUNT + MAX_SEG_COUNT * MAX_LACE_VALUE;
+    private static final int INITIAL_SEG_CAPACITY = 16;
     private int version = 0;
     private int flag = 0x00;
     private long granulePosition;
     private long serialNum;
     private long seqNum;
     private int checkSum;
-    private byte[] laceValues = new byte[0];
-    private final List<byte[]> dataPackets = new LinkedList<>();
+    private byte[] laceValues = new byte[INITIAL_SEG_CAPACITY];
+    private int segCount = 0;
+    private final List<byte[]> dataPackets = new ArrayList<>();
 
     private OggPage() {
     }
@@ -60,6 +69,22 @@ public class OggPage {
         return new OggPage();
     }
 
+    /**
+     * Reset all fields and remove all data packets, so that this object could be reused for another page, e.g. by
+     * {@link OggStream#readPage(OggPage)}. The removed data packet arrays are not touched, so they are still valid
+     * if they are referenced elsewhere.
+     */
+    public void clear() {
+        version = 0;
+        flag = 0x00;
+        granulePosition = 0;
+        serialNum = 0;
+        seqNum = 0;
+        checkSum = 0;
+        segCount = 0;
+        dataPackets.clear();
+    }
+
     /**
      * Get the Ogg page spec version, currently only version 0 is supported.
      *
@@ -158,8 +183,9 @@ public class OggPage {
      */
     public int getCheckSum() {
         if (checkSum == 0) {
-            byte[] dataDump = dump0();
-            checkSum = CRCUtil.getCRC(dataDump);
+            ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE + getSegCount()).order(ByteOrder.LITTLE_ENDIAN);
+            writeHeader(header);
+            checkSum = computeCheckSum(header.array());
         }
         return checkSum;
     }
@@ -173,20 +199,23 @@ public class OggPage {
     }
 
     public int getSegCount() {
-        return laceValues != null ? laceValues.length : 0;
+        return segCount;
     }
 
+    /**
+     * @return a copy of the lace values in the segment table
+     */
     public byte[] getLaceValues() {
-        return laceValues;
+        return Arrays.copyOf(laceValues, segCount);
     }
 
     /**
      * Check whether the last data packet is completed in this page.
      *
-     * @return true if the last data packet is completed in this page.
+     * @return true if the last data packet is completed in this page, or there isn't data packet in this page.
      */
     public boolean isCompleted() {
-        return Byte.toUnsignedInt(laceValues[getSegCount() - 1]) < MAX_LACE_VALUE;
+        return segCount == 0 || Byte.toUnsignedInt(laceValues[segCount - 1]) < MAX_LACE_VALUE;
     }
 
     /**
@@ -195,7 +224,7 @@ public class OggPage {
      * @param data the binary byte array of a data packet.
      */
     public void addDataPacket(byte[] data) {
-        laceValues = Bytes.concat(laceValues, lenToLaceValues(data.length, false));
+        appendLaceValues(data.length, false);
         dataPackets.add(data);
     }
 
@@ -211,7 +240,7 @@ public class OggPage {
         if (data.length % 255 != 0) {
             throw new InvalidOggException("Not a partial data packet");
         }
-        laceValues = Bytes.concat(laceValues, lenToLaceValues(data.length, true));
+        appendLaceValues(data.length, true);
         dataPackets.add(data);
     }
 
@@ -219,6 +248,19 @@ public class OggPage {
         return dataPackets;
     }
 
+    /**
+     * Get the size of the binary that {@link OggPage#dump()} or {@code writeTo(...)} methods produce.
+     *
+     * @return the size in bytes
+     */
+    public int getEncodedSize() {
+        int size = HEADER_SIZE + getSegCount();
+        for (byte[] dataPacket : dataPackets) {
+            size += dataPacket.length;
+        }
+        return size;
+    }
+
     /**
      * Dump the Ogg page to binary. This method could be used to create a binary Ogg stream.
      * Will calculate the checksum if the checksum is zero.
@@ -226,48 +268,101 @@ public class OggPage {
      * @return the dumped binary byte array
      */
     public byte[] dump() {
-        if (checkSum == 0) {
-            byte[] dataDump = dump0();
-            checkSum = CRCUtil.getCRC(dataDump);
-        }
-        return dump0();
+        byte[] data = new byte[getEncodedSize()];
+        writeTo(ByteBuffer.wrap(data));
+        return data;
     }
 
-    private byte[] dump0() {
-        ByteArrayOutputStream byteArrayOutputStream = new ByteArrayOutputStream();
-        LittleEndianDataOutputStream out = new LittleEndianDataOutputStream(byteArrayOutputStream);
-
+    /**
+     * Write the Ogg page to the buffer at its current position, the position is moved to the end of the page.
+     * The page is serialized once, if the checksum is zero, it's calculated from the written bytes and patched in
+     * place.
+     *
+     * @param buffer the buffer that has at least {@link OggPage#getEncodedSize()} bytes remaining
+     * @throws BufferOverflowException if there is not enough room in the buffer
+     */
+    public void writeTo(ByteBuffer buffer) {
+        if (buffer.remaining() < getEncodedSize()) {
+            throw new BufferOverflowException();
+        }
+        ByteOrder order = buffer.order();
+        buffer.order(ByteOrder.LITTLE_ENDIAN);
         try {
-            out.write(CAPTURE_PATTERN);
-            out.write(version);
-            out.write(flag);
-            out.writeLong(granulePosition);
-            out.writeInt((int) serialNum);
-            out.writeInt((int) seqNum);
-            out.writeInt(checkSum);
-            out.write(getSegCount());
-            out.write(laceValues);
+            int start = buffer.position();
+            writeHeader(buffer);
             for (byte[] dataPacket : dataPackets) {
-                out.write(dataPacket);
+                buffer.put(dataPacket);
             }
-        } catch (IOException e) {
-            throw new RuntimeException("OggPage dump to byte array error", e);
+            if (checkSum == 0) {
+                checkSum = CRCUtil.update(0, buffer, start, buffer.position() - start);
+                buffer.putInt(start + OggPageView.CHECK_SUM_OFFSET, checkSum);
+            }
+        } finally {
+            buffer.order(order);
+        }
+    }
+
+    /**
+     * Write the Ogg page to the channel. Data packets are written from their own byte arrays, only the header is
+     * serialized to a small buffer.
+     *
+     * @param channel the channel to write to
+     * @throws IOException if an I/O error occurs
+     */
+    public void writeTo(WritableByteChannel channel) throws IOException {
+        ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE + getSegCount()).order(ByteOrder.LITTLE_ENDIAN);
+        writeHeader(header);
+        if (checkSum == 0) {
+            checkSum = computeCheckSum(header.array());
+            header.putInt(OggPageView.CHECK_SUM_OFFSET, checkSum);
+        }
+        header.flip();
+        writeFully(channel, header);
+        for (byte[] dataPacket : dataPackets) {
+            writeFully(channel, ByteBuffer.wrap(dataPacket));
+        }
+    }
+
+    private void writeHeader(ByteBuffer buffer) {
+        buffer.put(CAPTURE_PATTERN);
+        buffer.put((byte) version);
+        buffer.put((byte) flag);
+        buffer.putLong(granulePosition);
+        buffer.putInt((int) serialNum);
+        buffer.putInt((int) seqNum);
+        buffer.putInt(checkSum);
+        buffer.put((byte) segCount);
+        buffer.put(laceValues, 0, segCount);
+    }
+
+    private int computeCheckSum(byte[] header) {
+        int crc = CRCUtil.update(0, header, 0, header.length);
+        for (byte[] dataPacket : dataPackets) {
+            crc = CRCUtil.update(crc, dataPacket, 0, dataPacket.length);
+        }
+        return crc;
+    }
+
+    private static void writeFully(WritableByteChannel channel, ByteBuffer buffer) throws IOException {
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
         }
-        return byteArrayOutputStream.toByteArray();
     }
 
-    private byte[] lenToLaceValues(int len, boolean isPartial) {
+    /**
+     * Append the lace values of a data packet to the segment table, the table grows by doubling, so adding a data
+     * packet takes amortized time in proportion to its own lace values.
+     */
+    private void appendLaceValues(int len, boolean isPartial) {
         int countOf255 = len / 255;
-        if (isPartial) {
-            byte[] laceValues = new byte[countOf255];
-            Arrays.fill(laceValues, (byte) 255);
-            return laceValues;
-        } else {
-            int lastValue = len % 255;
-            byte[] laceValues = new byte[countOf255 + 1];
-            Arrays.fill(laceValues, 0, countOf255, (byte) 255);
-            laceValues[countOf255] = (byte) lastValue;
-            return laceValues;
+        int count = isPartial ? countOf255 : countOf255 + 1;
+        if (segCount + count > laceValues.length) {
+            laceValues = Arrays.copyOf(laceValues, Math.max(laceValues.length * 2, segCount + count));
+        }
+        Arrays.fill(laceValues, segCount, segCount + countOf255, (byte) 255);
+        segCount += countOf255;
+        if (!isPartial) {
+            laceValues[segCount++] = (byte) (len % 255);
         }
     }
 }
@@ -0,0 +1,537 @@
+package org.chenliang.oggus.ogg;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.IntBuffer;
+import java.nio.LongBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.stream.Stream;
+
+/**
+ * An index of Ogg pages, which holds the offset, granule position, serial number and checksum of each page. The
+ * fields are stored in primitive buffers, which takes 24 bytes per page, plus 4 bytes for the number of the chained
+ * link of a page when the index is built, and an index of the pages of one logical stream could be searched by granule
+ * position with binary search.
+ *
+ * <p>An index could be saved to a sidecar file next to the Ogg file, so that it doesn't need to be built by a full
+ * scan every time the Ogg file is opened. The sidecar file records the size and the last modified time of the Ogg
+ * file, and a stale sidecar file is ignored when loading. The sidecar file is memory mapped when it is loaded, so only
+ * the header is read at first, and the rest is paged in on demand.</p>
+ *
+ * <p>The pages in the sidecar file are grouped by logical stream into sections, which are sorted by serial number, and
+ * chained links that reuse a serial number get their own sections in the order of links. In a section, the pages that
+ * have a granule position come first in the order of offsets, followed by the pages that don't have one. So
+ * {@link OggPageIndex#subIndex(long, long)} of a loaded index is a slice of the mapped buffers, which is found by
+ * binary search in the section table and the section. All numbers are little endian:</p>
+ * <pre>
+ * +------------+---------+-----------+---------------+------------+---------------+
+ * | "OggI" (4) | version | file size | last modified | page count | section count |  32 bytes header
+ * |            | int (4) | long (8)  | long (8)      | int (4)    | int (4)       |
+ * +------------+---------+-----------+---------------+------------+---------------+
+ * | sections: {serial number, first page, count of pages with granule position,   |
+ * |            count of pages}: int[4][section count]                              |
+ * | offsets: long[page count]                                                      |
+ * | granule positions: long[page count]                                            |
+ * | serial numbers: int[page count]                                                |
+ * | checksums: int[page count]                                                     |
+ * +--------------------------------------------------------------------------------+
+ * </pre>
+ */
+public class OggPageIndex {
+    private static final byte[] MAGIC = {'O', 'g', 'g', 'I'};
+    private static final int FORMAT_VERSION = 2;
+    private static final int SIDECAR_HEADER_SIZE = 32;
+    private static final int SIDECAR_BYTES_PER_PAGE = 24;
+    private static final int SIDECAR_INTS_PER_SECTION = 4;
+    private static final String SIDECAR_FILE_SUFFIX = ".idx";
+
+    private final LongBuffer offsets;
+    private final LongBuffer granulePositions;
+    private final IntBuffer serialNums;
+    private final IntBuffer checkSums;
+    /**
+     * The section table of the pages that are grouped by logical stream, or {@code null} if the pages are in the order
+     * of the stream.
+     */
+    private final IntBuffer sections;
+    /**
+     * The number of the chained link of each page, or {@code null} if the pages are grouped by sections, or they are
+     * in one link.
+     */
+    private final IntBuffer linkNums;
+    private final int size;
+
+    private OggPageIndex(LongBuffer offsets, LongBuffer granulePositions, IntBuffer serialNums, IntBuffer checkSums,
+                         IntBuffer sections, IntBuffer linkNums) {
+        this.offsets = offsets;
+        this.granulePositions = granulePositions;
+        this.serialNums = serialNums;
+        this.checkSums = checkSums;
+        this.sections = sections;
+        this.linkNums = linkNums;
+        this.size = offsets.limit();
+    }
+
+    /**
+     * Build the index of all the remaining pages of {@code oggStream}.
+     *
+     * @param oggStream the Ogg stream
+     * @return the index
+     * @throws IOException if an I/O error occurs
+     */
+    public static OggPageIndex build(OggStream oggStream) throws IOException {
+        Builder builder = new Builder();
+        OggPageView view;
+        while ((view = oggStream.readPageView()) != null) {
+            builder.add(oggStream.getLastPageOffset(), view.getGranulePosition(), view.getSerialNum(),
+                    view.getCheckSum(), view.isBOS());
+        }
+        return builder.build();
+    }
+
+    /**
+     * Build the index by reading the remaining pages of the logical stream {@code serialNum} from {@code oggStream}.
+     * Only pages that have a granule position are indexed, so the index could be searched with
+     * {@link OggPageIndex#floorIndex(long)}.
+     *
+     * @param oggStream the Ogg stream
+     * @param serialNum the serial number of the logical stream
+     * @return the index
+     * @throws IOException if an I/O error occurs
+     */
+    public static OggPageIndex build(OggStream oggStream, long serialNum) throws IOException {
+        Builder builder = new Builder();
+        OggPageView view;
+        while ((view = oggStream.readPageView(serialNum)) != null) {
+            long granulePosition = view.getGranulePosition();
+            if (granulePosition != -1) {
+                builder.add(oggStream.getLastPageOffset(), granulePosition, serialNum, view.getCheckSum());
+            }
+        }
+        return builder.build();
+    }
+
+    /**
+     * Build the index of all pages of a file, the file is read by chunks in parallel with
+     * {@link OggStream#parallelPages(Path, OggStream.PageMapper)}.
+     *
+     * @param file path of an Ogg file
+     * @return the index
+     * @throws IOException if an I/O error occurs
+     */
+    public static OggPageIndex buildParallel(Path file) throws IOException {
+        Builder builder = new Builder();
+        try (Stream<long[]> pages = OggStream.parallelPages(file, (offset, view) -> new long[]{
+                offset, view.getGranulePosition(), view.getSerialNum(), view.getCheckSum(), view.isBOS() ? 1 : 0})) {
+            pages.forEachOrdered(page -> builder.add(page[0], page[1], page[2], (int) page[3], page[4] == 1));
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+        return builder.build();
+    }
+
+    /**
+     * Load the index from the sidecar file of an Ogg file, which is saved by
+     * {@link OggPageIndex#saveSidecar(String)}.
+     *
+     * @param filePath path of the Ogg file
+     * @return the index, or {@code null} if the sidecar file doesn't exist, or it doesn't match the Ogg file
+     * @throws IOException if an I/O error occurs
+     */
+    public static OggPageIndex loadSidecar(String filePath) throws IOException {
+        Path file = Paths.get(filePath);
+        MappedByteBuffer buffer;
+        try (FileChannel channel = FileChannel.open(sidecarPath(filePath), StandardOpenOption.READ)) {
+            buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        } catch (NoSuchFileException e) {
+            return null;
+        }
+        buffer.order(ByteOrder.LITTLE_ENDIAN);
+        if (buffer.limit() < SIDECAR_HEADER_SIZE) {
+            return null;
+        }
+        byte[] magic = new byte[MAGIC.length];
+        buffer.get(magic);
+        int version = buffer.getInt();
+        long fileSize = buffer.getLong();
+        long lastModified = buffer.getLong();
+        int size = buffer.getInt();
+        int sectionCount = buffer.getInt();
+        if (!Arrays.equals(MAGIC, magic) || version != FORMAT_VERSION || fileSize != Files.size(file)
+                || lastModified != Files.getLastModifiedTime(file).toMillis() || size < 0 || sectionCount < 0
+                || buffer.limit() != SIDECAR_HEADER_SIZE + (long) sectionCount * SIDECAR_INTS_PER_SECTION * 4
+                + (long) size * SIDECAR_BYTES_PER_PAGE) {
+            return null;
+        }
+
+        int position = SIDECAR_HEADER_SIZE;
+        IntBuffer sections = slice(buffer, position, sectionCount * SIDECAR_INTS_PER_SECTION * 4).asIntBuffer();
+        position += sectionCount * SIDECAR_INTS_PER_SECTION * 4;
+        LongBuffer offsets = slice(buffer, position, size * 8).asLongBuffer();
+        position += size * 8;
+        LongBuffer granulePositions = slice(buffer, position, size * 8).asLongBuffer();
+        position += size * 8;
+        IntBuffer serialNums = slice(buffer, position, size * 4).asIntBuffer();
+        position += size * 4;
+        IntBuffer checkSums = slice(buffer, position, size * 4).asIntBuffer();
+        return new OggPageIndex(offsets, granulePositions, serialNums, checkSums, sections, null);
+    }
+
+    /**
+     * Load the index from the sidecar file of an Ogg file, or build the index of all pages in parallel and save it to
+     * the sidecar file if the sidecar file doesn't exist or is stale.
+     *
+     * @param filePath path of the Ogg file
+     * @return the index
+     * @throws IOException if an I/O error occurs
+     */
+    public static OggPageIndex loadOrBuildSidecar(String filePath) throws IOException {
+        OggPageIndex index = loadSidecar(filePath);
+        if (index == null) {
+            index = buildParallel(Paths.get(filePath));
+            index.saveSidecar(filePath);
+        }
+        return index;
+    }
+
+    /**
+     * Save this index to the sidecar file of an Ogg file, which is the Ogg file path with a {@code .idx} suffix. The
+     * size and the last modified time of the Ogg file are saved, so this index must be built from the current content
+     * of the Ogg file. The pages are grouped by logical stream in the sidecar file, so the pages of a loaded index may
+     * be in a different order.
+     *
+     * @param filePath path of the Ogg file
+     * @throws IOException if an I/O error occurs
+     */
+    public void saveSidecar(String filePath) throws IOException {
+        Path file = Paths.get(filePath);
+        // Group the pages by serial number and link, the pages without granule position go to the end of their group
+        Integer[] order = new Integer[size];
+        int[] pageLinkNums = new int[size];
+        for (int i = 0; i < size; i++) {
+            order[i] = i;
+            pageLinkNums[i] = getLinkNum(i);
+        }
+        Arrays.sort(order, (a, b) -> {
+            int result = Integer.compareUnsigned(serialNums.get(a), serialNums.get(b));
+            if (result == 0) {
+                result = Integer.compare(pageLinkNums[a], pageLinkNums[b]);
+            }
+            if (result == 0) {
+                result = Boolean.compare(granulePositions.get(a) == -1, granulePositions.get(b) == -1);
+            }
+            return result != 0 ? result : Long.compare(offsets.get(a), offsets.get(b));
+        });
+        IntBuffer sectionTable = IntBuffer.allocate(size * SIDECAR_INTS_PER_SECTION);
+        for (int i = 0; i < size; i++) {
+            int serialNum = serialNums.get(order[i]);
+            if (i == 0 || serialNum != serialNums.get(order[i - 1])
+                    || pageLinkNums[order[i]] != pageLinkNums[order[i - 1]]) {
+                sectionTable.put(serialNum).put(i).put(0).put(0);
+            }
+            int section = sectionTable.position() - SIDECAR_INTS_PER_SECTION;
+            if (granulePositions.get(order[i]) != -1) {
+                sectionTable.put(section + 2, sectionTable.get(section + 2) + 1);
+            }
+            sectionTable.put(section + 3, sectionTable.get(section + 3) + 1);
+        }
+        int sectionIntCount = sectionTable.position();
+
+        ByteBuffer buffer = ByteBuffer.allocate(SIDECAR_HEADER_SIZE + sectionIntCount * 4
+                + size * SIDECAR_BYTES_PER_PAGE).order(ByteOrder.LITTLE_ENDIAN);
+        buffer.put(MAGIC);
+        buffer.putInt(FORMAT_VERSION);
+        buffer.putLong(Files.size(file));
+        buffer.putLong(Files.getLastModifiedTime(file).toMillis());
+        buffer.putInt(size);
+        buffer.putInt(sectionIntCount / SIDECAR_INTS_PER_SECTION);
+        for (int i = 0; i < sectionIntCount; i++) {
+            buffer.putInt(sectionTable.get(i));
+        }
+        for (int i = 0; i < size; i++) {
+            buffer.putLong(offsets.get(order[i]));
+        }
+        for (int i = 0; i < size; i++) {
+            buffer.putLong(granulePositions.get(order[i]));
+        }
+        for (int i = 0; i < size; i++) {
+            buffer.putInt(serialNums.get(order[i]));
+        }
+        for (int i = 0; i < size; i++) {
+            buffer.putInt(checkSums.get(order[i]));
+        }
+        buffer.flip();
+        try (FileChannel channel = FileChannel.open(sidecarPath(filePath), StandardOpenOption.WRITE,
+                StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+        }
+    }
+
+    /**
+     * Get the index of the pages of a logical stream that have a granule position and start at or after
+     * {@code fromOffset}, e.g. to exclude header pages. The returned index could be searched with
+     * {@link OggPageIndex#floorIndex(long)}.
+     *
+     * <p>If chained links reuse the serial number, only the pages of the link that contains {@code fromOffset} are
+     * included, which is the link of the last page of the logical stream at or before {@code fromOffset}, or the first
+     * link if there isn't such a page.</p>
+     *
+     * <p>If this index is loaded from a sidecar file, the returned index shares the mapped buffers with it, and it is
+     * found by binary search without reading other pages. Otherwise, the matched pages are copied.</p>
+     *
+     * @param serialNum  the serial number of the logical stream
+     * @param fromOffset the start offset
+     * @return the index
+     */
+    public OggPageIndex subIndex(long serialNum, long fromOffset) {
+        if (sections != null) {
+            return sectionSubIndex(serialNum, fromOffset);
+        }
+        int linkNum = -1;
+        for (int i = 0; i < size; i++) {
+            if (getSerialNum(i) == serialNum && (linkNum == -1 || offsets.get(i) <= fromOffset)) {
+                linkNum = getLinkNum(i);
+            }
+        }
+        Builder builder = new Builder();
+        for (int i = 0; i < size; i++) {
+            long offset = offsets.get(i);
+            long granulePosition = granulePositions.get(i);
+            if (getSerialNum(i) == serialNum && getLinkNum(i) == linkNum && offset >= fromOffset
+                    && granulePosition != -1) {
+                builder.add(offset, granulePosition, serialNum, checkSums.get(i));
+            }
+        }
+        return builder.build();
+    }
+
+    private OggPageIndex sectionSubIndex(long serialNum, long fromOffset) {
+        int sectionCount = sections.limit() / SIDECAR_INTS_PER_SECTION;
+        // The first section of the logical stream
+        int low = 0;
+        int high = sectionCount - 1;
+        while (low <= high) {
+            int middle = (low + high) >>> 1;
+            if (Integer.toUnsignedLong(sections.get(middle * SIDECAR_INTS_PER_SECTION)) < serialNum) {
+                low = middle + 1;
+            } else {
+                high = middle - 1;
+            }
+        }
+        if (low == sectionCount || Integer.toUnsignedLong(sections.get(low * SIDECAR_INTS_PER_SECTION)) != serialNum) {
+            return new Builder().build();
+        }
+        // The sections of chained links that reuse the serial number are in the order of links
+        int section = low;
+        while (section + 1 < sectionCount
+                && Integer.toUnsignedLong(sections.get((section + 1) * SIDECAR_INTS_PER_SECTION)) == serialNum
+                && getSectionOffset(section + 1) <= fromOffset) {
+            section++;
+        }
+        int start = sections.get(section * SIDECAR_INTS_PER_SECTION + 1);
+        int end = start + sections.get(section * SIDECAR_INTS_PER_SECTION + 2);
+        // The first page at or after fromOffset, the offsets of the pages with granule position are increasing
+        int first = start;
+        int last = end - 1;
+        while (first <= last) {
+            int index = (first + last) >>> 1;
+            if (offsets.get(index) < fromOffset) {
+                first = index + 1;
+            } else {
+                last = index - 1;
+            }
+        }
+        return new OggPageIndex(slice(offsets, first, end), slice(granulePositions, first, end),
+                slice(serialNums, first, end), slice(checkSums, first, end), null, null);
+    }
+
+    /**
+     * @return the offset of the first page of a section
+     */
+    private long getSectionOffset(int section) {
+        int base = section * SIDECAR_INTS_PER_SECTION;
+        int start = sections.get(base + 1);
+        int granulePageCount = sections.get(base + 2);
+        int pageCount = sections.get(base + 3);
+        if (granulePageCount == 0 || granulePageCount == pageCount) {
+            return offsets.get(start);
+        }
+        return Math.min(offsets.get(start), offsets.get(start + granulePageCount));
+    }
+
+    /**
+     * @return the number of the chained link of a page, or the number of its section if the pages are grouped by
+     * sections, which is also in the order of links
+     */
+    private int getLinkNum(int index) {
+        if (linkNums != null) {
+            return linkNums.get(index);
+        }
+        if (sections == null) {
+            return 0;
+        }
+        int low = 0;
+        int high = sections.limit() / SIDECAR_INTS_PER_SECTION - 1;
+        while (low <= high) {
+            int middle = (low + high) >>> 1;
+            if (sections.get(middle * SIDECAR_INTS_PER_SECTION + 1) <= index) {
+                low = middle + 1;
+            } else {
+                high = middle - 1;
+            }
+        }
+        return high;
+    }
+
+    /**
+     * @return the number of indexed pages
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * @param index the index of page
+     * @return the offset of the page in the stream
+     */
+    public long getOffset(int index) {
+        checkIndex(index);
+        return offsets.get(index);
+    }
+
+    /**
+     * @param index the index of page
+     * @return the granule position of the page
+     */
+    public long getGranulePosition(int index) {
+        checkIndex(index);
+        return granulePositions.get(index);
+    }
+
+    /**
+     * @param index the index of page
+     * @return the serial number of the page
+     */
+    public long getSerialNum(int index) {
+        checkIndex(index);
+        return Integer.toUnsignedLong(serialNums.get(index));
+    }
+
+    /**
+     * @param index the index of page
+     * @return the checksum stored in the page header
+     */
+    public int getCheckSum(int index) {
+        checkIndex(index);
+        return checkSums.get(index);
+    }
+
+    /**
+     * Find the last page whose granule position is not greater than {@code granulePosition}. The granule positions
+     * must be increasing, which is true for an index of a logical stream, see
+     * {@link OggPageIndex#subIndex(long, long)}.
+     *
+     * @param granulePosition the target granule position
+     * @return the index of the page, or -1 if the granule positions of all pages are greater
+     */
+    public int floorIndex(long granulePosition) {
+        int low = 0;
+        int high = size - 1;
+        while (low <= high) {
+            int middle = (low + high) >>> 1;
+            if (granulePositions.get(middle) <= granulePosition) {
+                low = middle + 1;
+            } else {
+                high = middle - 1;
+            }
+        }
+        return high;
+    }
+
+    private void checkIndex(int index) {
+        if (index < 0 || index >= size) {
+            throw new IndexOutOfBoundsException("Page index: " + index);
+        }
+    }
+
+    private static Path sidecarPath(String filePath) {
+        return Paths.get(filePath + SIDECAR_FILE_SUFFIX);
+    }
+
+    private static LongBuffer slice(LongBuffer buffer, int start, int end) {
+        LongBuffer duplicate = buffer.duplicate();
+        duplicate.limit(end).position(start);
+        return duplicate.slice();
+    }
+
+    private static IntBuffer slice(IntBuffer buffer, int start, int end) {
+        IntBuffer duplicate = buffer.duplicate();
+        duplicate.limit(end).position(start);
+        return duplicate.slice();
+    }
+
+    private static ByteBuffer slice(ByteBuffer buffer, int position, int length) {
+        ByteBuffer duplicate = buffer.duplicate();
+        duplicate.limit(position + length).position(position);
+        return duplicate.slice().order(ByteOrder.LITTLE_ENDIAN);
+    }
+
+    /**
+     * Collect pages into growing arrays.
+     */
+    static class Builder {
+        private static final int INITIAL_CAPACITY = 64;
+        private long[] offsets = new long[INITIAL_CAPACITY];
+        private long[] granulePositions = new long[INITIAL_CAPACITY];
+        private int[] serialNums = new int[INITIAL_CAPACITY];
+        private int[] checkSums = new int[INITIAL_CAPACITY];
+        private int[] linkNums = new int[INITIAL_CAPACITY];
+        private int linkNum = 0;
+        private boolean isLastBOS = true;
+        private int size = 0;
+
+        void add(long offset, long granulePosition, long serialNum, int checkSum) {
+            add(offset, granulePosition, serialNum, checkSum, false);
+        }
+
+        /**
+         * @param isBOS whether the page is a BOS page, a BOS page after a page that isn't starts a new chained link
+         */
+        void add(long offset, long granulePosition, long serialNum, int checkSum, boolean isBOS) {
+            if (size == offsets.length) {
+                offsets = Arrays.copyOf(offsets, size * 2);
+                granulePositions = Arrays.copyOf(granulePositions, size * 2);
+                serialNums = Arrays.copyOf(serialNums, size * 2);
+                checkSums = Arrays.copyOf(checkSums, size * 2);
+                linkNums = Arrays.copyOf(linkNums, size * 2);
+            }
+            if (isBOS && !isLastBOS) {
+                linkNum++;
+            }
+            isLastBOS = isBOS;
+            offsets[size] = offset;
+            granulePositions[size] = granulePosition;
+            serialNums[size] = (int) serialNum;
+            checkSums[size] = checkSum;
+            linkNums[size] = linkNum;
+            size++;
+        }
+
+        OggPageIndex build() {
+            return new OggPageIndex(LongBuffer.wrap(offsets, 0, size).slice(),
+                    LongBuffer.wrap(granulePositions, 0, size).slice(), IntBuffer.wrap(serialNums, 0, size).slice(),
+                    IntBuffer.wrap(checkSums, 0, size).slice(), null, IntBuffer.wrap(linkNums, 0, size).slice());
+        }
+    }
+}
@@ -0,0 +1,299 @@
+package org.chenliang.oggus.ogg;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+/**
+ * A push parser of Ogg pages, for data that arrives in chunks, e.g. from a non-blocking socket. Chunks of any size
+ * are fed with {@link OggPageParser#feed(ByteBuffer)}, and every complete page is passed to a {@link PageListener}
+ * as soon as its last byte is fed. The parser never blocks and never reads ahead.
+ *
+ * <p>A page that is completely within a fed chunk is parsed from the chunk directly. Only the beginning of a page
+ * that is not completed at the end of a chunk is copied to a carry-over buffer, which is never larger than
+ * {@link OggPage#MAX_PAGE_SIZE}, and the page is completed with the following chunks.</p>
+ *
+ * <p>Invalid data is skipped and pages are resynchronized in the same way as {@link OggStream}: a page found after
+ * skipped bytes is only accepted if its checksum matches, and the checksum of pages in sync is verified based on the
+ * {@link CheckSumPolicy}.</p>
+ *
+ * <pre>
+ * OggPageParser parser = OggPageParser.create(view -&gt; {
+ *     // The view is only valid in this call, copy it with view.toOggPage() to keep it
+ * });
+ * // Called by the event loop whenever data is received
+ * parser.feed(byteBuffer);
+ * </pre>
+ */
+public class OggPageParser {
+    private final PageListener listener;
+    private final ByteBuffer carryOver = ByteBuffer.allocate(OggPage.MAX_PAGE_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+    private final OggPageView pageView = new OggPageView();
+    private boolean isSynced = true;
+    private long position = 0;
+    private long skippedByteCount = 0;
+    private CheckSumPolicy checkSumPolicy = CheckSumPolicy.SKIP;
+    private long checkSumErrorCount = 0;
+    private long lastPageOffset = -1;
+
+    private OggPageParser(PageListener listener) {
+        this.listener = listener;
+    }
+
+    /**
+     * Create a parser that passes pages to {@code listener}.
+     *
+     * @param listener the listener of complete pages
+     * @return OggPageParser
+     */
+    public static OggPageParser create(PageListener listener) {
+        return new OggPageParser(listener);
+    }
+
+    /**
+     * Parse all remaining bytes of {@code data}, and pass each completed page to the listener. The position of
+     * {@code data} is moved to its limit, and the bytes of an incomplete page are kept until more data is fed.
+     *
+     * <p>If an exception is thrown, by the listener or for an unsupported page in sync, the position of
+     * {@code data} is moved to the end of the bytes that are consumed, the remaining bytes could be fed again.</p>
+     *
+     * @param data the next chunk of the stream
+     * @throws InvalidOggException if a page in sync has an unsupported version, or a mismatched checksum with
+     *                             {@link CheckSumPolicy#THROW} policy
+     */
+    public void feed(ByteBuffer data) {
+        ByteBuffer input = data.duplicate().order(ByteOrder.LITTLE_ENDIAN);
+        try {
+            while (carryOver.position() > 0 && input.hasRemaining()) {
+                if (carryOver.position() < OggPage.CAPTURE_PATTERN.length) {
+                    skipCarryOverPrefix(input);
+                    if (carryOver.position() == 0) {
+                        break;
+                    }
+                }
+                int count = Math.max(0, Math.min(requiredSize() - carryOver.position(), input.remaining()));
+                int limit = input.limit();
+                input.limit(input.position() + count);
+                carryOver.put(input);
+                input.limit(limit);
+                carryOver.flip();
+                try {
+                    parse(carryOver);
+                } finally {
+                    carryOver.compact();
+                }
+            }
+            if (carryOver.position() == 0 && input.hasRemaining()) {
+                parse(input);
+                carryOver.put(input);
+            }
+        } finally {
+            data.position(input.position());
+        }
+    }
+
+    /**
+     * Get the number of bytes that are fed but not parsed yet, which is the beginning of an incomplete page, or at
+     * most 3 bytes that may be the beginning of a capture pattern. If it is not 0 at the end of the stream, the
+     * stream is truncated.
+     *
+     * @return the size of the carry-over data
+     */
+    public int getPendingByteCount() {
+        return carryOver.position();
+    }
+
+    /**
+     * @return the number of bytes parsed since this parser is created, not including the pending bytes
+     */
+    public long getPosition() {
+        return position;
+    }
+
+    /**
+     * @return the offset of the last page that is passed to the listener in the stream, or -1 if there isn't
+     */
+    public long getLastPageOffset() {
+        return lastPageOffset;
+    }
+
+    /**
+     * Get the number of bytes that are skipped to find the next valid Ogg page.
+     *
+     * @return the number of skipped bytes since this parser is created
+     */
+    public long getSkippedByteCount() {
+        return skippedByteCount;
+    }
+
+    /**
+     * Set the policy to verify checksum of pages, the default policy is {@link CheckSumPolicy#SKIP}.
+     *
+     * @param checkSumPolicy the policy
+     */
+    public void setCheckSumPolicy(CheckSumPolicy checkSumPolicy) {
+        this.checkSumPolicy = checkSumPolicy;
+    }
+
+    public CheckSumPolicy getCheckSumPolicy() {
+        return checkSumPolicy;
+    }
+
+    /**
+     * @return the number of pages in sync that have a mismatched checksum since this parser is created
+     */
+    public long getCheckSumErrorCount() {
+        return checkSumErrorCount;
+    }
+
+    /**
+     * Skip the bytes at the beginning of the carry-over data that is shorter than a capture pattern, until a capture
+     * pattern may start with the bytes of {@code input}. So if no capture pattern starts in it, it is emptied and a run
+     * of invalid data is scanned in {@code input} directly, rather than a few bytes at a time through the carry-over
+     * buffer.
+     */
+    private void skipCarryOverPrefix(ByteBuffer input) {
+        int size = carryOver.position();
+        int start = 0;
+        while (start < size && !isCapturePatternPrefix(start, input)) {
+            start++;
+        }
+        if (start > 0) {
+            carryOver.flip();
+            skip(carryOver, start);
+            carryOver.compact();
+        }
+    }
+
+    /**
+     * @return false if the carry-over data from {@code start}, followed by {@code input}, is not a capture pattern
+     */
+    private boolean isCapturePatternPrefix(int start, ByteBuffer input) {
+        int size = carryOver.position();
+        for (int i = 0; i < OggPage.CAPTURE_PATTERN.length; i++) {
+            int index = start + i;
+            byte b;
+            if (index < size) {
+                b = carryOver.get(index);
+            } else if (input.position() + index - size < input.limit()) {
+                b = input.get(input.position() + index - size);
+            } else {
+                return true;
+            }
+            if (b != OggPage.CAPTURE_PATTERN[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Get the number of bytes that the carry-over data must have before it could be parsed further. The carry-over
+     * data starts with a capture pattern, or it is shorter than a capture pattern.
+     */
+    private int requiredSize() {
+        int size = carryOver.position();
+        if (size < OggPage.HEADER_SIZE) {
+            return OggPage.HEADER_SIZE;
+        }
+        int headerSize = OggPage.HEADER_SIZE + Byte.toUnsignedInt(carryOver.get(OggPageView.SEG_COUNT_OFFSET));
+        if (size < headerSize) {
+            return headerSize;
+        }
+        return OggPageView.pageSize(carryOver, 0);
+    }
+
+    /**
+     * Parse the pages in {@code buffer}, and move its position to the first byte that could not be parsed yet.
+     */
+    private void parse(ByteBuffer buffer) {
+        while (true) {
+            int pos = buffer.position();
+            int found = CapturePatternScanner.indexOf(buffer, pos, buffer.limit());
+            if (found < 0) {
+                // The last 3 bytes may be the beginning of a capture pattern
+                skip(buffer, Math.max(0, buffer.remaining() - (OggPage.CAPTURE_PATTERN.length - 1)));
+                return;
+            }
+            skip(buffer, found - pos);
+            if (!nextPage(buffer)) {
+                return;
+            }
+        }
+    }
+
+    /**
+     * Parse the page at the buffer position, see {@link OggStream} for how a page is verified. A rejected capture
+     * pattern is skipped.
+     *
+     * @return false if the page is not completed in the buffer, and more data is needed
+     */
+    private boolean nextPage(ByteBuffer buffer) {
+        int pos = buffer.position();
+        int available = buffer.remaining();
+        if (available < OggPage.HEADER_SIZE) {
+            return false;
+        }
+        int version = Byte.toUnsignedInt(buffer.get(pos + OggPageView.VERSION_OFFSET));
+        if (version != 0) {
+            if (!isSynced) {
+                skip(buffer, 1);
+                return true;
+            }
+            skip(buffer, OggPage.CAPTURE_PATTERN.length);
+            throw new InvalidOggException("Unsupported Ogg page version: " + version);
+        }
+        int pageSize = OggPageView.pageSize(buffer, pos);
+        if (pageSize < 0 || available < pageSize) {
+            return false;
+        }
+        pageView.reset(buffer, pos);
+        if (!isSynced) {
+            if (!pageView.isCheckSumValid()) {
+                skip(buffer, 1);
+                return true;
+            }
+        } else if (checkSumPolicy != CheckSumPolicy.SKIP && !pageView.isCheckSumValid()) {
+            checkSumErrorCount++;
+            if (checkSumPolicy == CheckSumPolicy.DROP) {
+                skip(buffer, 1);
+                return true;
+            }
+            if (checkSumPolicy == CheckSumPolicy.THROW) {
+                long seqNum = pageView.getSeqNum();
+                skip(buffer, 1);
+                throw new InvalidOggException("Ogg page checksum mismatch, seqNum: " + seqNum);
+            }
+        }
+        lastPageOffset = position;
+        buffer.position(pos + pageSize);
+        position += pageSize;
+        isSynced = true;
+        listener.onPage(pageView);
+        return true;
+    }
+
+    private void skip(ByteBuffer buffer, int count) {
+        if (count > 0) {
+            buffer.position(buffer.position() + count);
+            position += count;
+            skippedByteCount += count;
+            isSynced = false;
+        }
+    }
+
+    /**
+     * A listener of the pages parsed by {@link OggPageParser}, which is called in
+     * {@link OggPageParser#feed(ByteBuffer)}.
+     */
+    @FunctionalInterface
+    public interface PageListener {
+        /**
+         * Called when a page is completed. The view points into the fed data or the carry-over buffer, so it is
+         * only valid during this call. Use {@link OggPageView#toOggPage()} or {@link OggPageView#copyTo(OggPage)}
+         * to keep the page.
+         *
+         * @param view the view of the page
+         */
+        void onPage(OggPageView view);
+    }
+}
@@ -0,0 +1,343 @@
+package org.chenliang.oggus.ogg;
+
+import org.chenliang.oggus.util.CRCUtil;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+/**
+ * A read-only view of an Ogg page that is stored in a {@link ByteBuffer}. Unlike {@link OggPage}, nothing is copied
+ * when a view is created: header fields are decoded from the buffer when the getters are called, and data packets
+ * are returned as {@link ByteBuffer} slices that share content with the underlying buffer.
+ *
+ * <p>A view returned by {@link OggStream#readPageView()} is only valid until the next read from that stream, because
+ * the stream reuses both the view object and its read buffer. Call {@link OggPageView#toOggPage()} or
+ * {@link OggPageView#copyDataPacket(int)} to keep the data beyond that.</p>
+ */
+public class OggPageView {
+    static final int VERSION_OFFSET = 4;
+    static final int FLAG_OFFSET = 5;
+    static final int GRANULE_POSITION_OFFSET = 6;
+    static final int SERIAL_NUM_OFFSET = 14;
+    static final int SEQ_NUM_OFFSET = 18;
+    static final int CHECK_SUM_OFFSET = 22;
+    static final int SEG_COUNT_OFFSET = 26;
+    private static final byte[] EMPTY_CHECK_SUM = new byte[4];
+
+    private ByteBuffer buffer;
+    private int offset;
+    private int segCount;
+    private int bodySize;
+    private final int[] packetEnds = new int[OggPage.MAX_SEG_COUNT];
+    private int packetCount = -1;
+
+    OggPageView() {
+    }
+
+    /**
+     * Create a view of the Ogg page that starts at the current position of {@code buffer}. The position of
+     * {@code buffer} is not changed.
+     *
+     * @param buffer the buffer that contains a complete Ogg page
+     * @return the view of the Ogg page
+     * @throws InvalidOggException if the buffer doesn't contain a complete and supported Ogg page
+     */
+    public static OggPageView wrap(ByteBuffer buffer) {
+        ByteBuffer littleEndianBuffer = buffer.duplicate().order(ByteOrder.LITTLE_ENDIAN);
+        int offset = buffer.position();
+        int available = buffer.limit() - offset;
+        if (available < OggPage.HEADER_SIZE || !isCapturePattern(littleEndianBuffer, offset)) {
+            throw new InvalidOggException("No Ogg page at buffer position: " + offset);
+        }
+        int version = Byte.toUnsignedInt(littleEndianBuffer.get(offset + VERSION_OFFSET));
+        if (version != 0) {
+            throw new InvalidOggException("Unsupported Ogg page version: " + version);
+        }
+        int pageSize = pageSize(littleEndianBuffer, offset);
+        if (pageSize < 0 || available < pageSize) {
+            throw new InvalidOggException("Ogg page is not completed in buffer");
+        }
+        OggPageView view = new OggPageView();
+        view.reset(littleEndianBuffer, offset);
+        return view;
+    }
+
+    /**
+     * Point this view to the page at {@code offset}. The caller must make sure the whole page is within the buffer
+     * and the buffer is in little endian order.
+     */
+    void reset(ByteBuffer buffer, int offset) {
+        this.buffer = buffer;
+        this.offset = offset;
+        this.segCount = Byte.toUnsignedInt(buffer.get(offset + SEG_COUNT_OFFSET));
+        int size = 0;
+        for (int i = 0; i < segCount; i++) {
+            size += Byte.toUnsignedInt(buffer.get(offset + OggPage.HEADER_SIZE + i));
+        }
+        this.bodySize = size;
+        this.packetCount = -1;
+    }
+
+    static boolean isCapturePattern(ByteBuffer buffer, int offset) {
+        return buffer.get(offset) == OggPage.CAPTURE_PATTERN[0]
+                && buffer.get(offset + 1) == OggPage.CAPTURE_PATTERN[1]
+                && buffer.get(offset + 2) == OggPage.CAPTURE_PATTERN[2]
+                && buffer.get(offset + 3) == OggPage.CAPTURE_PATTERN[3];
+    }
+
+    /**
+     * Get the size of the page at {@code offset}.
+     *
+     * @return the page size, or -1 if the segment table is not completed in the buffer
+     */
+    static int pageSize(ByteBuffer buffer, int offset) {
+        int segCount = Byte.toUnsignedInt(buffer.get(offset + SEG_COUNT_OFFSET));
+        int headerSize = OggPage.HEADER_SIZE + segCount;
+        if (buffer.limit() - offset < headerSize) {
+            return -1;
+        }
+        int size = headerSize;
+        for (int i = 0; i < segCount; i++) {
+            size += Byte.toUnsignedInt(buffer.get(offset + OggPage.HEADER_SIZE + i));
+        }
+        return size;
+    }
+
+    public int getVersion() {
+        return Byte.toUnsignedInt(buffer.get(offset + VERSION_OFFSET));
+    }
+
+    /**
+     * @return true if this Ogg is continued with last Ogg page.
+     */
+    public boolean isContinued() {
+        return (buffer.get(offset + FLAG_OFFSET) & 0x01) != 0;
+    }
+
+    /**
+     * @return true if this page is the begging of a logical ogg stream.
+     */
+    public boolean isBOS() {
+        return (buffer.get(offset + FLAG_OFFSET) & 0x02) != 0;
+    }
+
+    /**
+     * @return true if this page is the end of a logical ogg stream.
+     */
+    public boolean isEOS() {
+        return (buffer.get(offset + FLAG_OFFSET) & 0x04) != 0;
+    }
+
+    public long getGranulePosition() {
+        return buffer.getLong(offset + GRANULE_POSITION_OFFSET);
+    }
+
+    public long getSerialNum() {
+        return Integer.toUnsignedLong(buffer.getInt(offset + SERIAL_NUM_OFFSET));
+    }
+
+    public long getSeqNum() {
+        return Integer.toUnsignedLong(buffer.getInt(offset + SEQ_NUM_OFFSET));
+    }
+
+    /**
+     * @return the checksum stored in the page header
+     */
+    public int getCheckSum() {
+        return buffer.getInt(offset + CHECK_SUM_OFFSET);
+    }
+
+    /**
+     * Calculate the checksum of this page from the buffer, the stored checksum field is taken as 0.
+     *
+     * @return the calculated checksum
+     */
+    public int computeCheckSum() {
+        int crc = CRCUtil.update(0, buffer, offset, CHECK_SUM_OFFSET);
+        crc = CRCUtil.update(crc, EMPTY_CHECK_SUM, 0, EMPTY_CHECK_SUM.length);
+        return CRCUtil.update(crc, buffer, offset + SEG_COUNT_OFFSET, getPageSize() - SEG_COUNT_OFFSET);
+    }
+
+    /**
+     * @return true if the stored checksum equals to the calculated checksum
+     */
+    public boolean isCheckSumValid() {
+        return computeCheckSum() == getCheckSum();
+    }
+
+    public int getSegCount() {
+        return segCount;
+    }
+
+    /**
+     * @param index the index in the segment table
+     * @return the unsigned lace value
+     */
+    public int getLaceValue(int index) {
+        if (index < 0 || index >= segCount) {
+            throw new IndexOutOfBoundsException("Lace value index: " + index);
+        }
+        return Byte.toUnsignedInt(buffer.get(offset + OggPage.HEADER_SIZE + index));
+    }
+
+    /**
+     * @return the size of the header including the segment table
+     */
+    public int getHeaderSize() {
+        return OggPage.HEADER_SIZE + segCount;
+    }
+
+    /**
+     * @return the size of all data packets in this page
+     */
+    public int getBodySize() {
+        return bodySize;
+    }
+
+    /**
+     * @return the size of the whole page
+     */
+    public int getPageSize() {
+        return getHeaderSize() + bodySize;
+    }
+
+    /**
+     * Check whether the last data packet is completed in this page.
+     *
+     * @return true if the last data packet is completed in this page.
+     */
+    public boolean isCompleted() {
+        return segCount == 0 || getLaceValue(segCount - 1) < OggPage.MAX_LACE_VALUE;
+    }
+
+    /**
+     * The count of data packets in this page, including the continued part of the packet from last page, and the
+     * partial packet that is continued in next page.
+     *
+     * @return the count of data packets
+     */
+    public int getDataPacketCount() {
+        indexPackets();
+        return packetCount;
+    }
+
+    /**
+     * Get a data packet as a slice of the underlying buffer. No data is copied.
+     *
+     * @param index the index of data packet
+     * @return the buffer slice of the data packet
+     */
+    public ByteBuffer getDataPacket(int index) {
+        int start = getDataPacketOffset(index);
+        ByteBuffer slice = buffer.duplicate();
+        slice.limit(start + getDataPacketLength(index)).position(start);
+        return slice.slice();
+    }
+
+    /**
+     * @param index the index of data packet
+     * @return the absolute offset of the data packet in the underlying buffer
+     */
+    public int getDataPacketOffset(int index) {
+        checkPacketIndex(index);
+        return offset + getHeaderSize() + (index == 0 ? 0 : packetEnds[index - 1]);
+    }
+
+    /**
+     * @param index the index of data packet
+     * @return the length of the data packet
+     */
+    public int getDataPacketLength(int index) {
+        checkPacketIndex(index);
+        return packetEnds[index] - (index == 0 ? 0 : packetEnds[index - 1]);
+    }
+
+    /**
+     * Copy the data packet to a new byte array.
+     *
+     * @param index the index of data packet
+     * @return the binary data of the data packet
+     */
+    public byte[] copyDataPacket(int index) {
+        byte[] data = new byte[getDataPacketLength(index)];
+        ByteBuffer source = buffer.duplicate();
+        source.position(getDataPacketOffset(index));
+        source.get(data);
+        return data;
+    }
+
+    /**
+     * @return the underlying buffer of this view
+     */
+    public ByteBuffer getBuffer() {
+        return buffer;
+    }
+
+    /**
+     * @return the offset of the page in the underlying buffer
+     */
+    public int getOffset() {
+        return offset;
+    }
+
+    /**
+     * Copy this view to an {@link OggPage} object that doesn't share content with the underlying buffer.
+     *
+     * @return the copied OggPage
+     */
+    public OggPage toOggPage() {
+        return copyTo(OggPage.empty());
+    }
+
+    /**
+     * Copy this page to an existing {@link OggPage} object, all of its fields and data packets are replaced. Each
+     * data packet is copied to a new array.
+     *
+     * @param oggPage the page object to copy to
+     * @return the page object
+     */
+    public OggPage copyTo(OggPage oggPage) {
+        oggPage.clear();
+        oggPage.setFlag(buffer.get(offset + FLAG_OFFSET));
+        oggPage.setGranulePosition(getGranulePosition());
+        oggPage.setSerialNum(getSerialNum());
+        oggPage.setSeqNum(getSeqNum());
+        oggPage.setCheckSum(getCheckSum());
+        int count = getDataPacketCount();
+        for (int i = 0; i < count; i++) {
+            if (i == count - 1 && !isCompleted()) {
+                oggPage.addPartialDataPacket(copyDataPacket(i));
+            } else {
+                oggPage.addDataPacket(copyDataPacket(i));
+            }
+        }
+        return oggPage;
+    }
+
+    private void indexPackets() {
+        if (packetCount >= 0) {
+            return;
+        }
+        int count = 0;
+        int end = 0;
+        int laceOffset = offset + OggPage.HEADER_SIZE;
+        for (int i = 0; i < segCount; i++) {
+            int segLen = Byte.toUnsignedInt(buffer.get(laceOffset + i));
+            end += segLen;
+            if (segLen < OggPage.MAX_LACE_VALUE) {
+                packetEnds[count++] = end;
+            }
+        }
+        if (segCount > 0 && !isCompleted()) {
+            packetEnds[count++] = end;
+        }
+        packetCount = count;
+    }
+
+    private void checkPacketIndex(int index) {
+        indexPackets();
+        if (index < 0 || index >= packetCount) {
+            throw new IndexOutOfBoundsException("Data packet index: " + index);
+        }
+    }
+}
@@ -0,0 +1,305 @@
+package org.chenliang.oggus.ogg;
+
+import org.chenliang.oggus.util.CRCUtil;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.WritableByteChannel;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Repack the pages of an Ogg physical stream, e.g. to merge the small pages written by live encoders into bigger
+ * ones, which reduces the overhead of page headers and the number of pages to scan.
+ *
+ * <p>Consecutive pages of a logical stream are merged by concatenating their segment tables and bodies, so packet
+ * boundaries are kept whatever the codec is, and the granule position of a merged page is the one of its last page
+ * that completes a packet. The lace values, checksums and sequence numbers are recomputed, and a gap in the sequence
+ * numbers of the input, i.e. a lost page, is kept in the output and never merged across. Pages are only merged, never
+ * split, so a page that is already bigger than the target is written as is.</p>
+ *
+ * <p>A merged page is written when the {@link PageFlushPolicy} decides, or the next page doesn't fit in it. BOS pages,
+ * header pages whose granule position is 0 and EOS pages end a merged page, so the mandatory page break after the
+ * headers of mappings like Opus is kept. At most one merged page per logical stream is kept in memory. The pages of
+ * multiplexed logical streams are kept in the order of the input: before a merged page is written, the merged pages
+ * of other logical streams that start earlier in the input are written, even if they are not full.</p>
+ *
+ * <p>The duration of a merged page for {@link PageFlushPolicy#afterGranules(long)} is the difference of its granule
+ * position and the one of the previous merged page. Since the remuxer doesn't know the codec, the start of the first
+ * page after the headers is estimated from the packets of the next page, e.g. it is 0 if the packets of both pages
+ * have the same duration and the stream starts at 0.</p>
+ *
+ * <pre>
+ * try (OggStream input = OggStream.from(filePath);
+ *      FileChannel output = FileChannel.open(outputPath, StandardOpenOption.CREATE, StandardOpenOption.WRITE)) {
+ *     OggRemuxer.create(OpusPageFlushPolicies.afterMillis(1000)).remux(input, output);
+ * }
+ * </pre>
+ */
+public class OggRemuxer {
+    private final PageFlushPolicy flushPolicy;
+    private final Map<Long, MergedPage> mergedPages = new HashMap<>();
+    private final ByteBuffer pageBuffer = ByteBuffer.allocate(OggPage.MAX_PAGE_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+    private WritableByteChannel output;
+    private long inputPageCount;
+    private long pageCount;
+
+    private OggRemuxer(PageFlushPolicy flushPolicy) {
+        this.flushPolicy = flushPolicy;
+    }
+
+    /**
+     * Create a remuxer that closes a merged page when {@code flushPolicy} decides, e.g.
+     * {@link PageFlushPolicy#afterBytes(int)} for a target page size, or
+     * {@link org.chenliang.oggus.opus.OpusPageFlushPolicies#afterMillis(double)} for a target page duration of Opus
+     * streams.
+     *
+     * @param flushPolicy the policy, which is checked every time a packet is completed in a merged page
+     * @return OggRemuxer
+     */
+    public static OggRemuxer create(PageFlushPolicy flushPolicy) {
+        return new OggRemuxer(flushPolicy);
+    }
+
+    /**
+     * Read all pages of {@code input}, and write the repacked pages to {@code output}. The channel is not closed.
+     *
+     * <p>Since the checksums are recomputed, a corrupted page would be written with a valid checksum, so the checksums
+     * of the input are verified: if its {@link CheckSumPolicy} is {@link CheckSumPolicy#SKIP}, e.g. by default, it is
+     * set to {@link CheckSumPolicy#DROP} during remuxing, and a dropped page is kept as a gap in the sequence numbers
+     * of the output. Other policies are kept, e.g. {@link CheckSumPolicy#COUNT} to write the corrupted pages anyway,
+     * or {@link CheckSumPolicy#THROW} to stop.</p>
+     *
+     * @param input  the physical stream to read
+     * @param output the channel to write to
+     * @return the number of pages written
+     * @throws IOException if an I/O error occurs
+     */
+    public long remux(OggStream input, WritableByteChannel output) throws IOException {
+        CheckSumPolicy checkSumPolicy = input.getCheckSumPolicy();
+        if (checkSumPolicy == CheckSumPolicy.SKIP) {
+            input.setCheckSumPolicy(CheckSumPolicy.DROP);
+        }
+        this.output = output;
+        mergedPages.clear();
+        inputPageCount = 0;
+        pageCount = 0;
+        try {
+            OggPageView view;
+            while ((view = input.readPageView()) != null) {
+                onPage(view);
+            }
+            writeBefore(Long.MAX_VALUE);
+        } finally {
+            input.setCheckSumPolicy(checkSumPolicy);
+            mergedPages.clear();
+            this.output = null;
+        }
+        return pageCount;
+    }
+
+    private void onPage(OggPageView view) throws IOException {
+        long serialNum = view.getSerialNum();
+        MergedPage mergedPage = mergedPages.get(serialNum);
+        if (view.isBOS()) {
+            // All pages of the previous link must be written before a new link starts
+            writeBefore(Long.MAX_VALUE);
+            mergedPage = new MergedPage(serialNum, view.getSeqNum());
+            mergedPages.put(serialNum, mergedPage);
+        } else if (mergedPage == null) {
+            mergedPage = new MergedPage(serialNum, view.getSeqNum());
+            mergedPages.put(serialNum, mergedPage);
+        } else {
+            long seqNumGap = (view.getSeqNum() - mergedPage.lastInputSeqNum - 1) & 0xFFFFFFFFL;
+            // A page that doesn't continue the unfinished packet of the merged page can't be concatenated to it
+            if (seqNumGap != 0 || mergedPage.segCount + view.getSegCount() > OggPage.MAX_SEG_COUNT
+                    || !view.isContinued() && !mergedPage.isCompleted()) {
+                writeInOrder(mergedPage);
+            }
+            mergedPage.seqNum += seqNumGap;
+        }
+
+        mergedPage.append(view, inputPageCount++);
+        if (view.isBOS() || view.isEOS() || view.getGranulePosition() == 0
+                || view.getGranulePosition() != -1 && mergedPage.shouldFlush(flushPolicy)) {
+            writeInOrder(mergedPage);
+        }
+        if (view.isEOS()) {
+            mergedPages.remove(serialNum);
+        }
+    }
+
+    /**
+     * Write a merged page after the merged pages of other logical streams that start before it in the input.
+     */
+    private void writeInOrder(MergedPage mergedPage) throws IOException {
+        writeBefore(mergedPage.firstInputIndex);
+        write(mergedPage);
+    }
+
+    /**
+     * Write the merged pages whose first input page is before {@code inputIndex}, in the order of the input.
+     */
+    private void writeBefore(long inputIndex) throws IOException {
+        List<MergedPage> pages = null;
+        for (MergedPage mergedPage : mergedPages.values()) {
+            if (!mergedPage.isEmpty() && mergedPage.firstInputIndex < inputIndex) {
+                if (pages == null) {
+                    pages = new ArrayList<>();
+                }
+                pages.add(mergedPage);
+            }
+        }
+        if (pages == null) {
+            return;
+        }
+        pages.sort((a, b) -> Long.compare(a.firstInputIndex, b.firstInputIndex));
+        for (MergedPage mergedPage : pages) {
+            write(mergedPage);
+        }
+    }
+
+    private void write(MergedPage mergedPage) throws IOException {
+        if (mergedPage.isEmpty()) {
+            return;
+        }
+        pageBuffer.clear();
+        pageBuffer.put(OggPage.CAPTURE_PATTERN);
+        pageBuffer.put((byte) 0);
+        pageBuffer.put((byte) mergedPage.flag);
+        pageBuffer.putLong(mergedPage.granulePosition);
+        pageBuffer.putInt((int) mergedPage.serialNum);
+        pageBuffer.putInt((int) mergedPage.seqNum);
+        pageBuffer.putInt(0);
+        pageBuffer.put((byte) mergedPage.segCount);
+        pageBuffer.put(mergedPage.laceValues, 0, mergedPage.segCount);
+        pageBuffer.put(mergedPage.body, 0, mergedPage.bodySize);
+        pageBuffer.putInt(OggPageView.CHECK_SUM_OFFSET, CRCUtil.update(0, pageBuffer.array(), 0,
+                pageBuffer.position()));
+        pageBuffer.flip();
+        while (pageBuffer.hasRemaining()) {
+            output.write(pageBuffer);
+        }
+        pageCount++;
+        mergedPage.reset();
+    }
+
+    /**
+     * The page that the input pages of a logical stream are merged into.
+     */
+    private static class MergedPage {
+        private final long serialNum;
+        private final byte[] laceValues = new byte[OggPage.MAX_SEG_COUNT];
+        private final byte[] body = new byte[OggPage.MAX_SEG_COUNT * OggPage.MAX_LACE_VALUE];
+        private long seqNum;
+        private long lastInputSeqNum;
+        private long firstInputIndex = -1;
+        private int flag;
+        private long granulePosition = -1;
+        /**
+         * The granule position of the last written page, or -1 if it is not known yet, i.e. only header pages are
+         * written and the start of the first page after them is not estimated yet.
+         */
+        private long lastGranulePosition = -1;
+        /**
+         * The granule position and the number of completed packets of the first page after the header pages, to
+         * estimate its start from the next page.
+         */
+        private long firstGranulePosition = -1;
+        private int firstPacketCount;
+        private int segCount = 0;
+        private int bodySize = 0;
+        private int packetCount = 0;
+
+        MergedPage(long serialNum, long seqNum) {
+            this.serialNum = serialNum;
+            this.seqNum = seqNum;
+            this.lastInputSeqNum = seqNum - 1;
+        }
+
+        /**
+         * @param view       the next page of the logical stream
+         * @param inputIndex the index of the page in the input, to keep the order of merged pages
+         */
+        void append(OggPageView view, long inputIndex) {
+            if (isEmpty()) {
+                flag = view.isContinued() ? 0x01 : 0;
+                firstInputIndex = inputIndex;
+            }
+            if (view.isBOS()) {
+                flag |= 0x02;
+            }
+            if (view.isEOS()) {
+                flag |= 0x04;
+            }
+            ByteBuffer buffer = view.getBuffer();
+            int laceOffset = view.getOffset() + OggPage.HEADER_SIZE;
+            int viewSegCount = view.getSegCount();
+            int viewPacketCount = 0;
+            for (int i = 0; i < viewSegCount; i++) {
+                byte laceValue = buffer.get(laceOffset + i);
+                laceValues[segCount + i] = laceValue;
+                if (Byte.toUnsignedInt(laceValue) < OggPage.MAX_LACE_VALUE) {
+                    viewPacketCount++;
+                }
+            }
+            packetCount += viewPacketCount;
+            if (view.getGranulePosition() != -1) {
+                granulePosition = view.getGranulePosition();
+                if (lastGranulePosition == -1) {
+                    estimateStart(viewPacketCount);
+                }
+            }
+            ByteBuffer source = buffer.duplicate();
+            source.position(laceOffset + viewSegCount);
+            source.get(body, bodySize, view.getBodySize());
+            segCount += viewSegCount;
+            bodySize += view.getBodySize();
+            lastInputSeqNum = view.getSeqNum();
+        }
+
+        boolean isEmpty() {
+            return firstInputIndex < 0;
+        }
+
+        boolean isCompleted() {
+            return segCount == 0 || Byte.toUnsignedInt(laceValues[segCount - 1]) < OggPage.MAX_LACE_VALUE;
+        }
+
+        /**
+         * Estimate the start of the first page after the header pages, with the average duration of the packets
+         * completed on the next page that has a granule position.
+         */
+        private void estimateStart(int viewPacketCount) {
+            if (firstGranulePosition == -1) {
+                if (granulePosition > 0) {
+                    firstGranulePosition = granulePosition;
+                    firstPacketCount = packetCount;
+                }
+            } else if (viewPacketCount > 0) {
+                long packetDuration = (granulePosition - firstGranulePosition) / viewPacketCount;
+                lastGranulePosition = Math.max(0, firstGranulePosition - firstPacketCount * packetDuration);
+            }
+        }
+
+        boolean shouldFlush(PageFlushPolicy flushPolicy) {
+            long granuleDuration = lastGranulePosition == -1 ? 0 : granulePosition - lastGranulePosition;
+            return flushPolicy.shouldFlush(packetCount, bodySize, granuleDuration);
+        }
+
+        void reset() {
+            seqNum++;
+            if (granulePosition > 0) {
+                lastGranulePosition = granulePosition;
+            }
+            firstInputIndex = -1;
+            granulePosition = -1;
+            segCount = 0;
+            bodySize = 0;
+            packetCount = 0;
+        }
+    }
+}
@@ -1,22 +1,64 @@
 package org.chenliang.oggus.ogg;
 
-import com.google.common.io.LittleEndianDataInputStream;
-
-import java.io.BufferedInputStream;
+import java.io.Closeable;
 import java.io.FileInputStream;
 import java.io.FileNotFoundException;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.SelectableChannel;
+import java.nio.channels.SeekableByteChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ForkJoinPool;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
 /**
  * An Ogg stream is made up of a sequence of Ogg pages. An Ogg stream stream could be multiplexed by several logical
  * Ogg stream which could be identified with the {@code serialNum}.
+ *
+ * <p>Data is read into a buffer that always has room for a whole Ogg page. Pages could be read either as
+ * {@link OggPage} objects which own a copy of the data, or as {@link OggPageView} objects which point into the
+ * buffer without copying. The buffer is either an internal heap buffer that is filled from the underlying channel,
+ * or a window of a memory mapped file, see {@link OggStream#fromMappedFile(String)}.</p>
+ *
+ * <p>If the stream is created from a file or a {@link SeekableByteChannel}, it could be repositioned with
+ * {@link OggStream#seek(long)}, or {@link OggStream#seekPage(long, long, long)} which bisects the stream by granule
+ * position.</p>
  */
-public class OggStream {
-    private LittleEndianDataInputStream in;
+public class OggStream implements Closeable {
+    /**
+     * The default size of memory mapped windows, see {@link OggStream#fromMappedFile(String, int)}.
+     */
+    public static final int DEFAULT_MAPPED_WINDOW_SIZE = 128 * 1024 * 1024;
+    /**
+     * The default size of the chunks that are read in parallel by {@link OggStream#parallelPages(Path)}.
+     */
+    public static final int DEFAULT_PARALLEL_CHUNK_SIZE = 8 * 1024 * 1024;
+    /**
+     * When the bisection range is smaller than this size, the remaining pages are scanned one by one.
+     */
+    private static final int BISECTION_THRESHOLD = 64 * 1024;
+    private final OggInput input;
+    private final OggPageView pageView = new OggPageView();
+    private boolean isSynced = true;
+    private long skippedByteCount = 0;
+    private CheckSumPolicy checkSumPolicy = CheckSumPolicy.SKIP;
+    private long checkSumErrorCount = 0;
+    private long lastPageOffset = -1;
 
-    private OggStream(InputStream inputStream) {
-        this.in = new LittleEndianDataInputStream(inputStream);
+    private OggStream(OggInput input) {
+        this.input = input;
     }
 
     /**
@@ -27,7 +69,102 @@ public class OggStream {
      * @return OggStream
      */
     public static OggStream from(String filePath) throws FileNotFoundException {
-        return new OggStream(new BufferedInputStream(new FileInputStream(filePath)));
+        return new OggStream(new ChannelOggInput(new FileInputStream(filePath).getChannel()));
+    }
+
+    /**
+     * Create {@code OggStream} from a memory mapped file. Pages are parsed directly from the mapped memory, and the
+     * data of {@link OggPageView} objects read from this stream is not copied to heap.
+     *
+     * @param filePath path of an Ogg file
+     * @return OggStream
+     * @throws IOException if the file could not be opened or mapped
+     */
+    public static OggStream fromMappedFile(String filePath) throws IOException {
+        return fromMappedFile(filePath, DEFAULT_MAPPED_WINDOW_SIZE);
+    }
+
+    /**
+     * Create {@code OggStream} from a memory mapped file. The file is mapped by windows of {@code windowSize} bytes,
+     * so files larger than 2 GB could be read.
+     *
+     * @param filePath   path of an Ogg file
+     * @param windowSize size of the mapped windows, must not be less than {@link OggPage#MAX_PAGE_SIZE}
+     * @return OggStream
+     * @throws IOException if the file could not be opened or mapped
+     */
+    public static OggStream fromMappedFile(String filePath, int windowSize) throws IOException {
+        FileChannel channel = FileChannel.open(Paths.get(filePath), StandardOpenOption.READ);
+        try {
+            return new OggStream(new MappedOggInput(channel, windowSize));
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Read all pages of a file in parallel, see {@link OggStream#parallelPages(Path, PageMapper)}.
+     *
+     * @param file path of an Ogg file
+     * @return the stream of pages in file order, which should be closed if it isn't fully consumed
+     * @throws IOException if the size of the file could not be read
+     */
+    public static Stream<OggPage> parallelPages(Path file) throws IOException {
+        return parallelPages(file, (offset, view) -> view.toOggPage());
+    }
+
+    /**
+     * Read all pages of a file in parallel, and map each page to a result, e.g. the page offset and checksum
+     * validity for indexing or validation. The file is split into chunks of {@link #DEFAULT_PARALLEL_CHUNK_SIZE}
+     * bytes, which are memory mapped and parsed on the common {@link ForkJoinPool}.
+     *
+     * <p>Each chunk is resynchronized to its first page independently, and the first page of a chunk is accepted only
+     * if its checksum matches, so the pages with a bad checksum at the start of a chunk are read by the previous chunk,
+     * which is still in sync. The chunks are stitched in order, and the pages that start inside the last returned
+     * page are dropped, e.g. an Ogg page embedded in the data of a page, so the results are the same as reading the
+     * file sequentially with {@link OggStream#readPageView()}. The results are returned in file order, only a few
+     * chunks are read ahead of the consumer of the stream. Packets that continue across pages, even across chunks,
+     * could be assembled by the consumer as the pages are in order. I/O errors are thrown as
+     * {@link UncheckedIOException} when the stream is consumed.</p>
+     *
+     * @param file   path of an Ogg file
+     * @param mapper the function to map a page to a result, which is called on the executor threads
+     * @param <T>    the type of results
+     * @return the stream of results in file order, which should be closed if it isn't fully consumed
+     * @throws IOException if the size of the file could not be read
+     */
+    public static <T> Stream<T> parallelPages(Path file, PageMapper<T> mapper) throws IOException {
+        return parallelPages(file, mapper, DEFAULT_PARALLEL_CHUNK_SIZE, ForkJoinPool.commonPool(),
+                ForkJoinPool.getCommonPoolParallelism() * 2);
+    }
+
+    /**
+     * Read all pages of a file in parallel on the given executor, see
+     * {@link OggStream#parallelPages(Path, PageMapper)}.
+     *
+     * @param file             path of an Ogg file
+     * @param mapper           the function to map a page to a result, which is called on the executor threads
+     * @param chunkSize        the size of chunks, from {@link OggPage#MAX_PAGE_SIZE} to
+     *                         {@link #DEFAULT_MAPPED_WINDOW_SIZE}
+     * @param executor         the executor to read chunks
+     * @param maxPendingChunks the max number of chunks that are read ahead of the consumer
+     * @param <T>              the type of results
+     * @return the stream of results in file order, which should be closed if it isn't fully consumed
+     * @throws IOException if the size of the file could not be read
+     */
+    public static <T> Stream<T> parallelPages(Path file, PageMapper<T> mapper, int chunkSize,
+                                              ExecutorService executor, int maxPendingChunks) throws IOException {
+        if (chunkSize < OggPage.MAX_PAGE_SIZE || chunkSize > DEFAULT_MAPPED_WINDOW_SIZE) {
+            throw new IllegalArgumentException("Invalid chunk size: " + chunkSize);
+        }
+        if (maxPendingChunks < 1) {
+            throw new IllegalArgumentException("Invalid max pending chunks: " + maxPendingChunks);
+        }
+        ParallelPageReader<T> reader = new ParallelPageReader<>(file, Files.size(file), chunkSize, executor, mapper,
+                maxPendingChunks);
+        return StreamSupport.stream(Spliterators.spliteratorUnknownSize(reader, Spliterator.ORDERED), false)
+                .onClose(reader::close);
     }
 
     /**
@@ -37,7 +174,22 @@ public class OggStream {
      * @return OggStream
      */
     public static OggStream from(InputStream inputStream) {
-        return new OggStream(inputStream);
+        return new OggStream(new ChannelOggInput(Channels.newChannel(inputStream)));
+    }
+
+    /**
+     * Create {@code OggStream} from a {@code ReadableByteChannel}. The channel must be in blocking mode, data that
+     * arrives from a non-blocking channel could be fed to an {@link OggPageParser} instead.
+     *
+     * @param channel the underlying channel.
+     * @return OggStream
+     * @throws IllegalArgumentException if the channel is in non-blocking mode
+     */
+    public static OggStream from(ReadableByteChannel channel) {
+        if (channel instanceof SelectableChannel && !((SelectableChannel) channel).isBlocking()) {
+            throw new IllegalArgumentException("The channel must be in blocking mode");
+        }
+        return new OggStream(new ChannelOggInput(channel));
     }
 
     /**
@@ -48,10 +200,8 @@ public class OggStream {
      * @throws IOException if an I/O error occurs
      */
     public OggPage readPage() throws IOException {
-        if (hasNextPage()) {
-            return nextPage();
-        }
-        return null;
+        OggPageView view = readPageView();
+        return view != null ? view.toOggPage() : null;
     }
 
     /**
@@ -63,59 +213,329 @@ public class OggStream {
      * @throws IOException if an I/O error occurs
      */
     public OggPage readPage(long serialNum) throws IOException {
+        OggPageView view = readPageView(serialNum);
+        return view != null ? view.toOggPage() : null;
+    }
+
+    /**
+     * Read an Ogg page into a page object owned by the caller, instead of creating a new one. This method will skip
+     * invalid data.
+     *
+     * <p>The caller owns {@code oggPage}, this stream only writes to it during this call: all of its fields and data
+     * packets are replaced by the next page, so anything read from it before must be used or copied before it is
+     * passed again. The data packet arrays are always newly allocated, so they could be kept after the page object
+     * is reused. If there isn't page left, {@code oggPage} is not changed.</p>
+     *
+     * @param oggPage the page object to read into
+     * @return {@code oggPage}, or {@code null} if there isn't page left
+     * @throws IOException if an I/O error occurs
+     */
+    public OggPage readPage(OggPage oggPage) throws IOException {
+        OggPageView view = readPageView();
+        return view != null ? view.copyTo(oggPage) : null;
+    }
+
+    /**
+     * Read an Ogg page with the given serial number into a page object owned by the caller. See
+     * {@link OggStream#readPage(OggPage)} for the ownership of {@code oggPage}.
+     *
+     * @param serialNum the given serial number
+     * @param oggPage   the page object to read into
+     * @return {@code oggPage}, or {@code null} if there isn't page left
+     * @throws IOException if an I/O error occurs
+     */
+    public OggPage readPage(long serialNum, OggPage oggPage) throws IOException {
+        OggPageView view = readPageView(serialNum);
+        return view != null ? view.copyTo(oggPage) : null;
+    }
+
+    /**
+     * Read an Ogg page without copying its data. This method will skip invalid data.
+     *
+     * <p>The returned view, and the buffers returned by it, are only valid until the next read from this stream.</p>
+     *
+     * @return the view of next Ogg page, or {@code null} if there isn't page left
+     * @throws IOException if an I/O error occurs
+     */
+    public OggPageView readPageView() throws IOException {
         while (hasNextPage()) {
-            OggPage oggPage = nextPage();
-            if (oggPage.getSerialNum() == serialNum) {
-                return oggPage;
+            if (nextPage()) {
+                return pageView;
             }
         }
         return null;
     }
 
-    private boolean hasNextPage() throws IOException {
-        int posOfPattern = 0;
-        while (posOfPattern < OggPage.CAPTURE_PATTERN.length) {
-            int b = in.read();
-            if (b == -1) {
-                return false;
+    /**
+     * Read an Ogg page with the given serial number without copying its data. This method will skip invalid data.
+     *
+     * <p>The returned view, and the buffers returned by it, are only valid until the next read from this stream.</p>
+     *
+     * @param serialNum the given serial number
+     * @return the view of next Ogg page, or {@code null} if there isn't page left
+     * @throws IOException if an I/O error occurs
+     */
+    public OggPageView readPageView(long serialNum) throws IOException {
+        while (true) {
+            OggPageView view = readPageView();
+            if (view == null || view.getSerialNum() == serialNum) {
+                return view;
             }
-            if (b == OggPage.CAPTURE_PATTERN[posOfPattern]) {
-                posOfPattern++;
+        }
+    }
+
+    /**
+     * @return the offset in the stream of the next byte to be read
+     */
+    public long getPosition() {
+        return input.position();
+    }
+
+    /**
+     * @return the offset in the stream of the last read page, or -1 if no page is read
+     */
+    public long getLastPageOffset() {
+        return lastPageOffset;
+    }
+
+    /**
+     * @return true if this stream is created from a file or a {@link SeekableByteChannel}
+     */
+    public boolean isSeekable() {
+        return input.isSeekable();
+    }
+
+    /**
+     * @return the size of the stream in bytes
+     * @throws IOException if an I/O error occurs
+     * @throws IllegalStateException if this stream is not seekable
+     */
+    public long size() throws IOException {
+        return input.size();
+    }
+
+    /**
+     * Move to the given offset of the stream. The offset doesn't need to be the start of a page: after seeking, the
+     * stream is taken as out of sync, so the next page is accepted only if its checksum matches.
+     *
+     * @param position the offset in the stream
+     * @throws IOException if an I/O error occurs
+     * @throws IllegalStateException if this stream is not seekable
+     */
+    public void seek(long position) throws IOException {
+        input.seek(position);
+        isSynced = false;
+    }
+
+    /**
+     * Find the last page of the logical stream {@code serialNum} whose granule position is not greater than
+     * {@code granulePosition}, and move to the start of it, so it is the next page to be read. Pages without a
+     * granule position, i.e. {@code -1}, are ignored.
+     *
+     * <p>The stream is bisected by the granule positions of pages, only page headers are parsed, until the
+     * remaining range is small enough to be scanned page by page. Granule positions of a logical stream must be
+     * increasing.</p>
+     *
+     * @param serialNum       the serial number of the logical stream
+     * @param granulePosition the target granule position
+     * @param fromPosition    the offset where the search starts, which must be the start of a page, e.g. the first
+     *                        page after the header pages
+     * @return false if there isn't such page, then the stream is moved to {@code fromPosition}
+     * @throws IOException if an I/O error occurs
+     * @throws IllegalStateException if this stream is not seekable
+     */
+    public boolean seekPage(long serialNum, long granulePosition, long fromPosition) throws IOException {
+        long low = fromPosition;
+        long high = size();
+        long foundOffset = -1;
+        while (high - low > BISECTION_THRESHOLD) {
+            long middle = low + (high - low) / 2;
+            seek(middle);
+            OggPageView view = readGranulePage(serialNum, high);
+            if (view != null && view.getGranulePosition() <= granulePosition) {
+                foundOffset = lastPageOffset;
+                low = getPosition();
             } else {
-                posOfPattern = (b == OggPage.CAPTURE_PATTERN[0] ? 1 : 0);
+                high = middle;
             }
         }
-        return true;
+
+        seek(low);
+        OggPageView view;
+        while ((view = readGranulePage(serialNum, Long.MAX_VALUE)) != null
+                && view.getGranulePosition() <= granulePosition) {
+            foundOffset = lastPageOffset;
+        }
+        seek(foundOffset >= 0 ? foundOffset : fromPosition);
+        return foundOffset >= 0;
+    }
+
+    /**
+     * Close the underlying channel or file.
+     *
+     * @throws IOException if an I/O error occurs
+     */
+    @Override
+    public void close() throws IOException {
+        input.close();
+    }
+
+    /**
+     * Get the number of bytes that are skipped because they are not part of a valid Ogg page, e.g. damaged pages
+     * or garbage between pages.
+     *
+     * @return the number of skipped bytes since this stream is created
+     */
+    public long getSkippedByteCount() {
+        return skippedByteCount;
+    }
+
+    /**
+     * Set the policy to verify checksum of pages, the default policy is {@link CheckSumPolicy#SKIP}. The checksum is
+     * calculated from the page data in the read buffer, no data is copied.
+     *
+     * @param checkSumPolicy the policy
+     */
+    public void setCheckSumPolicy(CheckSumPolicy checkSumPolicy) {
+        this.checkSumPolicy = checkSumPolicy;
+    }
+
+    public CheckSumPolicy getCheckSumPolicy() {
+        return checkSumPolicy;
+    }
+
+    /**
+     * Get the number of pages that are read in sync but have a mismatched checksum. It is always 0 with
+     * {@link CheckSumPolicy#SKIP} policy.
+     *
+     * @return the number of checksum errors since this stream is created
+     */
+    public long getCheckSumErrorCount() {
+        return checkSumErrorCount;
+    }
+
+    /**
+     * Read the next page of the logical stream that has a granule position and starts before {@code endPosition}.
+     *
+     * @return the view of the page, or {@code null} if there isn't such page
+     */
+    private OggPageView readGranulePage(long serialNum, long endPosition) throws IOException {
+        while (true) {
+            OggPageView view = readPageView(serialNum);
+            if (view == null || lastPageOffset >= endPosition) {
+                return null;
+            }
+            if (view.getGranulePosition() != -1) {
+                return view;
+            }
+        }
+    }
+
+    /**
+     * Move the buffer position to the next capture pattern. The buffer is searched with
+     * {@link CapturePatternScanner}, so a long range of invalid data is skipped quickly.
+     *
+     * @return false if the end of stream is reached before a capture pattern is found
+     */
+    private boolean hasNextPage() throws IOException {
+        while (input.fill(OggPage.CAPTURE_PATTERN.length)) {
+            ByteBuffer buffer = input.buffer();
+            int pos = buffer.position();
+            int found = CapturePatternScanner.indexOf(buffer, pos, buffer.limit());
+            if (found >= 0) {
+                skip(found - pos);
+                return true;
+            }
+            // The last 3 bytes may be the beginning of a capture pattern
+            skip(buffer.remaining() - (OggPage.CAPTURE_PATTERN.length - 1));
+        }
+        skip(input.buffer().remaining());
+        return false;
     }
 
-    private OggPage nextPage() throws IOException {
-        OggPage oggPage = OggPage.empty();
-        int version = in.readUnsignedByte();
+    /**
+     * Parse the page at the buffer position into {@code pageView}, and move the buffer position to the end of it.
+     *
+     * <p>If the stream is not in sync, which means some bytes are skipped before this capture pattern, the capture
+     * pattern may be part of other data. Then the page is accepted only if the header is valid and the checksum
+     * matches. A rejected capture pattern is skipped. If the stream is in sync, the checksum is verified based on
+     * the {@link CheckSumPolicy}.</p>
+     *
+     * @return false if the page is rejected
+     */
+    private boolean nextPage() throws IOException {
+        if (!input.fill(OggPage.HEADER_SIZE)) {
+            return reject();
+        }
+        ByteBuffer buffer = input.buffer();
+        int pos = buffer.position();
+        int version = Byte.toUnsignedInt(buffer.get(pos + OggPageView.VERSION_OFFSET));
         if (version != 0) {
+            if (!isSynced) {
+                return reject();
+            }
+            skip(OggPage.CAPTURE_PATTERN.length);
             throw new InvalidOggException("Unsupported Ogg page version: " + version);
         }
-        oggPage.setFlag(in.readUnsignedByte());
-        oggPage.setGranulePosition(in.readLong());
-        oggPage.setSerialNum(Integer.toUnsignedLong(in.readInt()));
-        oggPage.setSeqNum(Integer.toUnsignedLong(in.readInt()));
-        oggPage.setCheckSum(in.readInt());
-        int segCount = in.readUnsignedByte();
-        byte[] laceValues = in.readNBytes(segCount);
-
-        int packetLen = 0;
-        for (byte laceValue : laceValues) {
-            int segLen = Byte.toUnsignedInt(laceValue);
-            packetLen += segLen;
-            if (segLen < OggPage.MAX_LACE_VALUE) {
-                byte[] data = in.readNBytes(packetLen);
-                oggPage.addDataPacket(data);
-                packetLen = 0;
+        int segCount = Byte.toUnsignedInt(buffer.get(pos + OggPageView.SEG_COUNT_OFFSET));
+        if (!input.fill(OggPage.HEADER_SIZE + segCount)) {
+            return reject();
+        }
+        buffer = input.buffer();
+        int pageSize = OggPageView.pageSize(buffer, buffer.position());
+        if (!input.fill(pageSize)) {
+            return reject();
+        }
+        buffer = input.buffer();
+        pos = buffer.position();
+        pageView.reset(buffer, pos);
+        if (!isSynced) {
+            if (!pageView.isCheckSumValid()) {
+                return reject();
+            }
+        } else if (checkSumPolicy != CheckSumPolicy.SKIP && !pageView.isCheckSumValid()) {
+            checkSumErrorCount++;
+            if (checkSumPolicy == CheckSumPolicy.DROP) {
+                return reject();
+            }
+            if (checkSumPolicy == CheckSumPolicy.THROW) {
+                long seqNum = pageView.getSeqNum();
+                reject();
+                throw new InvalidOggException("Ogg page checksum mismatch, seqNum: " + seqNum);
             }
         }
-        if (packetLen != 0) {
-            byte[] data = in.readNBytes(packetLen);
-            oggPage.addPartialDataPacket(data);
+        lastPageOffset = input.position();
+        buffer.position(pos + pageSize);
+        isSynced = true;
+        return true;
+    }
+
+    private boolean reject() {
+        skip(1);
+        return false;
+    }
+
+    private void skip(int count) {
+        if (count > 0) {
+            ByteBuffer buffer = input.buffer();
+            buffer.position(buffer.position() + count);
+            skippedByteCount += count;
+            isSynced = false;
         }
-        return oggPage;
+    }
+
+    /**
+     * A function to map an Ogg page to a result, see {@link OggStream#parallelPages(Path, PageMapper)}.
+     *
+     * @param <T> the type of results
+     */
+    @FunctionalInterface
+    public interface PageMapper<T> {
+        /**
+         * @param offset the offset of the page in the file
+         * @param view   the view of the page, which is only valid during this call
+         * @return the result
+         */
+        T map(long offset, OggPageView view);
     }
 }
@@ -0,0 +1,64 @@
+package org.chenliang.oggus.ogg;
+
+/**
+ * Decide when {@link OggPacketWriter} closes the current page. It's checked every time a packet is completed in the
+ * current page. Whatever the policy is, a page is always closed when it's full, or when
+ * {@link OggPacketWriter#flush()} is called.
+ *
+ * <p>Small pages reduce the latency of a live stream, while big pages reduce the overhead of page headers.</p>
+ */
+public interface PageFlushPolicy {
+    /**
+     * @param packetCount     the number of packets that are completed in the current page
+     * @param bodySize        the size of data in the current page
+     * @param granuleDuration the granule position of the current page minus the one of the previous page
+     * @return {@code true} if the current page should be written
+     */
+    boolean shouldFlush(int packetCount, int bodySize, long granuleDuration);
+
+    /**
+     * @return the policy that only closes a page when it's full or flushed explicitly
+     */
+    static PageFlushPolicy manual() {
+        return (packetCount, bodySize, granuleDuration) -> false;
+    }
+
+    /**
+     * @param count the number of packets
+     * @return the policy that closes a page after {@code count} packets are completed in it
+     */
+    static PageFlushPolicy afterPackets(int count) {
+        return (packetCount, bodySize, granuleDuration) -> packetCount >= count;
+    }
+
+    /**
+     * @param size the number of bytes
+     * @return the policy that closes a page after the size of its data reaches {@code size}
+     */
+    static PageFlushPolicy afterBytes(int size) {
+        return (packetCount, bodySize, granuleDuration) -> bodySize >= size;
+    }
+
+    /**
+     * @param duration the duration in granule position unit
+     * @return the policy that closes a page after the granule position advances by {@code duration}
+     */
+    static PageFlushPolicy afterGranules(long duration) {
+        return (packetCount, bodySize, granuleDuration) -> granuleDuration >= duration;
+    }
+
+    /**
+     * @param policies the policies to combine
+     * @return the policy that closes a page when any of {@code policies} does
+     */
+    static PageFlushPolicy anyOf(PageFlushPolicy... policies) {
+        return (packetCount, bodySize, granuleDuration) -> {
+            for (PageFlushPolicy policy : policies) {
+                if (policy.shouldFlush(packetCount, bodySize, granuleDuration)) {
+                    return true;
+                }
+            }
+            return false;
+        };
+    }
+}
@@ -0,0 +1,159 @@
+package org.chenliang.oggus.ogg;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Path;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.Queue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+
+/**
+ * Read the pages of a file by chunks in parallel, see {@link OggStream#parallelPages(Path, OggStream.PageMapper)}.
+ *
+ * <p>A chunk owns the pages that start in it. Each chunk is memory mapped and resynchronized to its first valid page
+ * independently, and the pages are mapped to results on the executor. As the resynchronization only accepts a page
+ * whose checksum matches, a chunk also owns the pages with a bad checksum that follow it in sync, which a sequential
+ * read returns. A limited number of chunks are read ahead of
+ * the consumer, and the chunks are stitched in file order: a page that starts before the end of the last returned
+ * page is dropped, which may happen if a chunk is resynchronized to a capture pattern in the data of a page of the
+ * previous chunk.</p>
+ */
+class ParallelPageReader<T> implements Iterator<T>, Closeable {
+    private final Path file;
+    private final long fileSize;
+    private final int chunkSize;
+    private final ExecutorService executor;
+    private final OggStream.PageMapper<T> mapper;
+    private final int maxPendingChunks;
+    private final Queue<Future<List<Page<T>>>> pendingChunks = new ArrayDeque<>();
+    private long nextChunkOffset = 0;
+    private long nextPageOffset = 0;
+    private Iterator<Page<T>> pages;
+    private Page<T> nextPage;
+
+    ParallelPageReader(Path file, long fileSize, int chunkSize, ExecutorService executor,
+                       OggStream.PageMapper<T> mapper, int maxPendingChunks) {
+        this.file = file;
+        this.fileSize = fileSize;
+        this.chunkSize = chunkSize;
+        this.executor = executor;
+        this.mapper = mapper;
+        this.maxPendingChunks = maxPendingChunks;
+    }
+
+    @Override
+    public boolean hasNext() {
+        while (nextPage == null) {
+            if (pages == null || !pages.hasNext()) {
+                fillPendingChunks();
+                if (pendingChunks.isEmpty()) {
+                    return false;
+                }
+                pages = await(pendingChunks.poll()).iterator();
+                continue;
+            }
+            Page<T> page = pages.next();
+            if (page.offset >= nextPageOffset) {
+                nextPage = page;
+                nextPageOffset = page.end;
+            }
+        }
+        return true;
+    }
+
+    @Override
+    public T next() {
+        if (!hasNext()) {
+            throw new NoSuchElementException();
+        }
+        T result = nextPage.result;
+        nextPage = null;
+        return result;
+    }
+
+    /**
+     * Cancel the chunks that are not read yet.
+     */
+    @Override
+    public void close() {
+        for (Future<List<Page<T>>> chunk : pendingChunks) {
+            chunk.cancel(false);
+        }
+        pendingChunks.clear();
+        nextChunkOffset = fileSize;
+    }
+
+    private void fillPendingChunks() {
+        while (pendingChunks.size() < maxPendingChunks && nextChunkOffset < fileSize) {
+            long start = nextChunkOffset;
+            long end = Math.min(start + chunkSize, fileSize);
+            pendingChunks.add(executor.submit(() -> readChunk(start, end)));
+            nextChunkOffset = end;
+        }
+    }
+
+    private List<Page<T>> readChunk(long start, long end) throws IOException {
+        List<Page<T>> chunkPages = new ArrayList<>();
+        try (OggStream oggStream = OggStream.fromMappedFile(file.toString(), chunkSize + 2 * OggPage.MAX_PAGE_SIZE)) {
+            if (start > 0) {
+                oggStream.seek(start);
+            }
+            OggPageView view;
+            long lastPageEnd = -1;
+            while ((view = oggStream.readPageView()) != null) {
+                long offset = oggStream.getLastPageOffset();
+                // The next chunk is resynchronized to the first page with a valid checksum, so the pages with a bad
+                // checksum before it are read here while the stream is still in sync
+                if (offset >= end && (offset != lastPageEnd || view.isCheckSumValid())) {
+                    break;
+                }
+                lastPageEnd = offset + view.getPageSize();
+                chunkPages.add(new Page<>(offset, lastPageEnd, mapper.map(offset, view)));
+            }
+        }
+        return chunkPages;
+    }
+
+    private List<Page<T>> await(Future<List<Page<T>>> chunk) {
+        try {
+            return chunk.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            close();
+            throw new UncheckedIOException(new InterruptedIOException("Interrupted when reading " + file));
+        } catch (ExecutionException e) {
+            close();
+            Throwable cause = e.getCause();
+            if (cause instanceof IOException) {
+                throw new UncheckedIOException((IOException) cause);
+            }
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            if (cause instanceof Error) {
+                throw (Error) cause;
+            }
+            throw new IllegalStateException(cause);
+        }
+    }
+
+    private static class Page<T> {
+        private final long offset;
+        private final long end;
+        private final T result;
+
+        private Page(long offset, long end, T result) {
+            this.offset = offset;
+            this.end = end;
+            this.result = result;
+        }
+    }
+}
@@ -6,6 +6,9 @@ import java.util.List;
 
 public class AudioDataPacket {
     private final List<OpusPacket> opusPackets = new ArrayList<>();
+    private boolean hasTimestamp = false;
+    private long startSample;
+    private long endSample;
 
     private AudioDataPacket() {
     }
@@ -20,6 +23,33 @@ public class AudioDataPacket {
         return new AudioDataPacket();
     }
 
+    /**
+     * Replace the Opus packets of this object with the packets parsed from {@code data}. The existing
+     * {@link OpusPacket} objects are reused if they have the same code as the parsed packets at the same index, the
+     * frames are always copied to new arrays.
+     */
+    void parse(byte[] data, int streamCount, OpusPacketView view) {
+        int offset = 0;
+        for (int i = 0; i < streamCount; i++) {
+            if (i < streamCount - 1) {
+                view.parseSelfDelimiting(data, offset, data.length - offset);
+                offset += view.getLength();
+            } else {
+                view.parse(data, offset, data.length - offset);
+            }
+            if (i < opusPackets.size() && opusPackets.get(i).getCode() == view.getCode()) {
+                view.copyTo(opusPackets.get(i));
+            } else if (i < opusPackets.size()) {
+                opusPackets.set(i, view.toOpusPacket());
+            } else {
+                opusPackets.add(view.toOpusPacket());
+            }
+        }
+        while (opusPackets.size() > streamCount) {
+            opusPackets.remove(opusPackets.size() - 1);
+        }
+    }
+
     public void addOpusPacket(OpusPacket opusPacket) {
         opusPackets.add(opusPacket);
     }
@@ -28,6 +58,53 @@ public class AudioDataPacket {
         return opusPackets;
     }
 
+    /**
+     * All Opus packets in an audio data packet have the same duration, the duration of first Opus packet is used.
+     *
+     * @return the duration of this packet in 48 kHz samples
+     */
+    public int getSampleCount() {
+        return opusPackets.get(0).getSampleCount();
+    }
+
+    /**
+     * Check whether this packet is timestamped, which is true for the packets read from an {@link OggOpusStream} or
+     * an {@link OggOpusParser}.
+     *
+     * @return true if the start and end sample positions are set
+     */
+    public boolean hasTimestamp() {
+        return hasTimestamp;
+    }
+
+    /**
+     * Get the position of the first decoded sample of this packet in the output, in 48 kHz samples. It is the
+     * granule position at the start of the packet minus the pre-skip, so it is negative if the packet starts in the
+     * pre-skip, and the decoded samples before position 0 should be discarded.
+     *
+     * @return the start sample position, or 0 if this packet is not timestamped
+     */
+    public long getStartSample() {
+        return startSample;
+    }
+
+    /**
+     * Get the position after the last decoded sample of this packet in the output, in 48 kHz samples. The last packet
+     * of a stream may be trimmed by the granule position of the EOS page, then the end is less than the start plus
+     * the duration of this packet, and the decoded samples from the end should be discarded.
+     *
+     * @return the end sample position, exclusive, or 0 if this packet is not timestamped
+     */
+    public long getEndSample() {
+        return endSample;
+    }
+
+    void setTimestamp(long startSample, long endSample) {
+        this.hasTimestamp = true;
+        this.startSample = startSample;
+        this.endSample = endSample;
+    }
+
     public byte[] dump() {
         int packetCount = opusPackets.size();
         ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
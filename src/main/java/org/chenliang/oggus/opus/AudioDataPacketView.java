@@ -0,0 +1,140 @@
+package org.chenliang.oggus.opus;
+
+import java.util.Arrays;
+
+/**
+ * A reusable index of the Opus packets in a multistream audio data packet. Unlike
+ * {@link AudioDataPacket#from(byte[], int)}, nothing is copied when a packet is split: only the byte range of each
+ * elementary stream packet in the original array is recorded. The first {@code (streamCount - 1)} packets are in
+ * self-delimiting format, and the last packet is in standard format.
+ *
+ * <p>The index refers to the array that is split last, so the array must not be changed while the index is in use.
+ * A packet could be parsed on demand with {@link AudioDataPacketView#getOpusPacketView(int, OpusPacketView)}, or
+ * copied in standard format with {@link AudioDataPacketView#toStandardFormat(int)}, which is what a single stream
+ * decoder accepts.</p>
+ */
+public class AudioDataPacketView {
+    private final OpusPacketView opusPacketView = new OpusPacketView();
+    private int[] packetOffsets = new int[8];
+    private int[] packetLengths = new int[8];
+    private int streamCount;
+    private byte[] data;
+
+    /**
+     * Split the audio data packet that takes the whole array.
+     *
+     * @param data        the binary data of the audio data packet
+     * @param streamCount the number of streams, see {@link IdHeader#getStreamCount()}
+     * @return this index
+     * @throws InvalidOpusException if the data doesn't contain {@code streamCount} valid Opus packets
+     */
+    public AudioDataPacketView split(byte[] data, int streamCount) {
+        return split(data, 0, data.length, streamCount);
+    }
+
+    /**
+     * Split the audio data packet that takes {@code length} bytes of {@code data} from {@code offset}.
+     *
+     * @param data        the binary data
+     * @param offset      the start offset of the audio data packet
+     * @param length      the length of the audio data packet
+     * @param streamCount the number of streams, see {@link IdHeader#getStreamCount()}
+     * @return this index
+     * @throws InvalidOpusException if the data doesn't contain {@code streamCount} valid Opus packets
+     */
+    public AudioDataPacketView split(byte[] data, int offset, int length, int streamCount) {
+        if (streamCount < 1) {
+            throw new IllegalArgumentException("Invalid stream count: " + streamCount);
+        }
+        if (packetOffsets.length < streamCount) {
+            packetOffsets = Arrays.copyOf(packetOffsets, streamCount);
+            packetLengths = Arrays.copyOf(packetLengths, streamCount);
+        }
+        int end = offset + length;
+        int packetOffset = offset;
+        for (int i = 0; i < streamCount - 1; i++) {
+            opusPacketView.parseSelfDelimiting(data, packetOffset, end - packetOffset);
+            packetOffsets[i] = packetOffset;
+            packetLengths[i] = opusPacketView.getLength();
+            packetOffset += opusPacketView.getLength();
+        }
+        opusPacketView.parse(data, packetOffset, end - packetOffset);
+        packetOffsets[streamCount - 1] = packetOffset;
+        packetLengths[streamCount - 1] = end - packetOffset;
+        this.data = data;
+        this.streamCount = streamCount;
+        return this;
+    }
+
+    public int getStreamCount() {
+        return streamCount;
+    }
+
+    /**
+     * @param index the index of stream
+     * @return the offset of the Opus packet in the split array
+     */
+    public int getPacketOffset(int index) {
+        checkStreamIndex(index);
+        return packetOffsets[index];
+    }
+
+    /**
+     * @param index the index of stream
+     * @return the length of the Opus packet, in self-delimiting format except the last one
+     */
+    public int getPacketLength(int index) {
+        checkStreamIndex(index);
+        return packetLengths[index];
+    }
+
+    /**
+     * @param index the index of stream
+     * @return true if the Opus packet is in self-delimiting format, which is all but the last one
+     */
+    public boolean isSelfDelimiting(int index) {
+        checkStreamIndex(index);
+        return index < streamCount - 1;
+    }
+
+    /**
+     * All Opus packets in an audio data packet have the same duration, the TOC of the first Opus packet is inspected.
+     *
+     * @return the duration of this packet in 48 kHz samples
+     */
+    public int getSampleCount() {
+        return OpusUtil.getSampleCount(data, packetOffsets[0], packetLengths[0]);
+    }
+
+    /**
+     * Parse an Opus packet into the given view, nothing is copied.
+     *
+     * @param index the index of stream
+     * @param view  the view to parse into
+     * @return the view
+     */
+    public OpusPacketView getOpusPacketView(int index, OpusPacketView view) {
+        checkStreamIndex(index);
+        if (isSelfDelimiting(index)) {
+            return view.parseSelfDelimiting(data, packetOffsets[index], packetLengths[index]);
+        }
+        return view.parse(data, packetOffsets[index], packetLengths[index]);
+    }
+
+    /**
+     * Copy an Opus packet in standard format, which could be fed to a decoder of that stream. See
+     * {@link OpusPacketView#toStandardFormat()}.
+     *
+     * @param index the index of stream
+     * @return the binary data of the standard format packet
+     */
+    public byte[] toStandardFormat(int index) {
+        return getOpusPacketView(index, opusPacketView).toStandardFormat();
+    }
+
+    private void checkStreamIndex(int index) {
+        if (index < 0 || index >= streamCount) {
+            throw new IndexOutOfBoundsException("Stream index: " + index);
+        }
+    }
+}
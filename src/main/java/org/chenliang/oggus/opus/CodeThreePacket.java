@@ -60,7 +60,7 @@ class CodeThreePacket extends OpusPacket {
     }
 
     private byte[] dump(boolean isStandard) {
-        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        ByteArrayOutputStream out = new ByteArrayOutputStream(getMaxDumpSize());
 
         out.write(getTocByte());
         out.write(getFrameCountByte());
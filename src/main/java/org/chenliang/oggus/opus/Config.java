@@ -117,6 +117,15 @@ public class Config {
         return frameSize;
     }
 
+    /**
+     * Ogg Opus always counts samples at 48 kHz, whatever the bandwidth is.
+     *
+     * @return the number of 48 kHz samples of a frame
+     */
+    public int getSamplesPerFrame() {
+        return (int) (frameSize * 48);
+    }
+
     public int getId() {
         return id;
     }
@@ -25,7 +25,7 @@ abstract class FixedFrameCountPacket extends OpusPacket {
 
     @Override
     public byte[] dumpToStandardFormat() {
-        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        ByteArrayOutputStream out = new ByteArrayOutputStream(getMaxDumpSize());
         out.write(getTocByte());
         if (frames.size() == 0) {
             if (!isVbr()) {
@@ -52,7 +52,7 @@ abstract class FixedFrameCountPacket extends OpusPacket {
 
     @Override
     public byte[] dumpToSelfDelimitingFormat() {
-        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        ByteArrayOutputStream out = new ByteArrayOutputStream(getMaxDumpSize());
         out.write(getTocByte());
         if (frames.size() == 0) {
             int numberOfLength = isVbr() ? getFrameCount() : 1;
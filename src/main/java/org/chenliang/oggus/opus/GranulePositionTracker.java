@@ -0,0 +1,105 @@
+package org.chenliang.oggus.opus;
+
+import org.chenliang.oggus.ogg.OggPageView;
+
+/**
+ * Track the granule positions of the audio data packets of an Ogg Opus stream, to timestamp each packet with the
+ * granule positions at its start and end.
+ *
+ * <p>The start of the first packet is calculated backwards from the granule position of the first audio data page
+ * and the durations of the packets completed on it, or it is 0 if the first page is also the EOS page. The following
+ * packets are timestamped forwards with their durations. The last packet completed on a page ends at the granule
+ * position of the page, which corrects the positions if a page is lost. On the EOS page, the granule position could be
+ * less than the end of the packets, then the packets are trimmed to it.</p>
+ */
+class GranulePositionTracker {
+    private boolean isStarted = false;
+    private long granulePosition;
+    private long packetStart;
+    private long packetEnd;
+
+    /**
+     * Start again from the first audio data page that is read next.
+     */
+    void reset() {
+        isStarted = false;
+    }
+
+    /**
+     * Start again from a known granule position, e.g. after seeking.
+     */
+    void reset(long granulePosition) {
+        this.granulePosition = granulePosition;
+        isStarted = true;
+    }
+
+    /**
+     * Called when an audio data page is read, before its packets are timestamped.
+     */
+    void onPage(OggPageView view) {
+        if (!isStarted) {
+            granulePosition = getStartGranulePosition(view);
+            isStarted = true;
+        }
+    }
+
+    /**
+     * Timestamp the next packet.
+     *
+     * @param sampleCount     the duration of the packet in 48 kHz samples
+     * @param view            the page that the packet is completed on
+     * @param isLastCompleted whether it is the last packet completed on the page
+     */
+    void next(int sampleCount, OggPageView view, boolean isLastCompleted) {
+        packetStart = granulePosition;
+        packetEnd = granulePosition + sampleCount;
+        long pageGranulePosition = view.getGranulePosition();
+        if (pageGranulePosition != -1) {
+            if (view.isEOS()) {
+                packetEnd = Math.max(packetStart, Math.min(packetEnd, pageGranulePosition));
+            } else if (isLastCompleted) {
+                packetStart = pageGranulePosition - sampleCount;
+                packetEnd = pageGranulePosition;
+            }
+        }
+        granulePosition = packetStart + sampleCount;
+    }
+
+    /**
+     * @return the granule position at the start of the last timestamped packet
+     */
+    long getPacketStart() {
+        return packetStart;
+    }
+
+    /**
+     * @return the granule position at the end of the last timestamped packet, after end trimming
+     */
+    long getPacketEnd() {
+        return packetEnd;
+    }
+
+    /**
+     * Calculate the granule position at the start of the first packet that starts on an audio data page, from its
+     * granule position and the duration of the packets completed on it.
+     */
+    static long getStartGranulePosition(OggPageView view) {
+        long granulePosition = view.getGranulePosition();
+        if (granulePosition == -1 || view.isEOS()) {
+            return 0;
+        }
+        int count = view.isCompleted() ? view.getDataPacketCount() : view.getDataPacketCount() - 1;
+        for (int i = view.isContinued() ? 1 : 0; i < count; i++) {
+            granulePosition -= getSampleCount(view, i);
+        }
+        return granulePosition;
+    }
+
+    /**
+     * @return the duration of a data packet of the page, or 0 if the packet is empty
+     */
+    static int getSampleCount(OggPageView view, int index) {
+        int length = view.getDataPacketLength(index);
+        return length == 0 ? 0 : OpusUtil.getSampleCount(view.getBuffer(), view.getDataPacketOffset(index), length);
+    }
+}
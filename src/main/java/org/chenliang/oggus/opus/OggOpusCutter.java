@@ -0,0 +1,157 @@
+package org.chenliang.oggus.opus;
+
+import java.io.IOException;
+import java.nio.channels.WritableByteChannel;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Cut and concatenate Ogg Opus streams without decoding and encoding. Audio data packets are copied as they are, only
+ * the pages, the granule positions and the pre-skip are rewritten, so the cutting is accurate to the sample while the
+ * packets are copied at packet granularity.
+ *
+ * <p>To cut the samples in [start, end) of the output, the input is moved to {@link OggOpusCutter#PREROLL_SAMPLES}
+ * before the start with {@link OggOpusStream#seek(long)}, so the decoder converges before the first kept sample. The
+ * pre-skip of the new stream covers the pre-roll and the part of the first packet before the start, and the end is
+ * trimmed by the granule position of the EOS page.</p>
+ *
+ * <pre>
+ * try (OggStream oggStream = OggStream.from(filePath);
+ *      FileChannel output = FileChannel.open(outputPath, StandardOpenOption.CREATE, StandardOpenOption.WRITE)) {
+ *     // Cut the 10 seconds after the first minute
+ *     OggOpusCutter.cut(OggOpusStream.from(oggStream), 60 * 48000, 70 * 48000, output);
+ * }
+ * </pre>
+ */
+public class OggOpusCutter {
+    /**
+     * The number of samples that are decoded and discarded before the start of a cut, which is 80 ms as recommended
+     * by RFC 7845.
+     */
+    public static final int PREROLL_SAMPLES = 3840;
+
+    private OggOpusCutter() {
+    }
+
+    /**
+     * Copy the samples in [{@code startSample}, {@code endSample}) of the input to a new Ogg Opus stream. The
+     * positions are in 48 kHz samples of the output, i.e. after the pre-skip. If the input is seekable, it is moved
+     * to the pre-roll of the start, otherwise it is read from its current position, and the packets before the
+     * pre-roll are discarded. The channel is not closed.
+     *
+     * @param input       the input stream
+     * @param startSample the position of the first sample to keep
+     * @param endSample   the position after the last sample to keep, which could be after the end of the input
+     * @param output      the channel that the new stream is written to
+     * @return the duration of the new stream in 48 kHz samples
+     * @throws IOException if an I/O error occurs
+     * @throws IllegalArgumentException if the range is invalid
+     */
+    public static long cut(OggOpusStream input, long startSample, long endSample, WritableByteChannel output)
+            throws IOException {
+        if (startSample < 0 || endSample < startSample) {
+            throw new IllegalArgumentException("Invalid range: [" + startSample + ", " + endSample + ")");
+        }
+        IdHeader idHeader = input.getIdHeader();
+        long prerollStart = startSample - PREROLL_SAMPLES;
+        if (input.isSeekable()) {
+            input.seek(Math.max(0, prerollStart + idHeader.getPreSkip()));
+        }
+        byte[] data;
+        do {
+            data = input.readAudioData();
+        } while (data != null && input.getPacketEndSample() <= prerollStart);
+
+        if (data == null || input.getPacketStartSample() >= endSample) {
+            OggOpusWriter.to(output, idHeader, input.getCommentHeader()).finish();
+            return 0;
+        }
+        int preSkip = (int) Math.max(0, startSample - input.getPacketStartSample());
+        IdHeader cutIdHeader = IdHeader.from(idHeader.dump());
+        cutIdHeader.setPreSkip(preSkip);
+        OggOpusWriter writer = OggOpusWriter.to(output, cutIdHeader, input.getCommentHeader());
+        // The output position of a sample is its input position minus the start of the first kept packet
+        long firstSample = input.getPacketStartSample() + preSkip;
+        while (true) {
+            long packetEnd = input.getPacketEndSample();
+            byte[] next = packetEnd < endSample ? input.readAudioData() : null;
+            if (next == null || input.getPacketStartSample() >= endSample) {
+                long end = Math.min(packetEnd, endSample);
+                int sampleCount = OpusUtil.getSampleCount(data);
+                long endTrim = writer.getGranulePosition() + sampleCount - (preSkip + end - firstSample);
+                writer.writeLastRawPacket(data, (int) Math.max(0, Math.min(sampleCount, endTrim)));
+                return end - firstSample;
+            }
+            writer.writeRawPacket(data);
+            data = next;
+        }
+    }
+
+    /**
+     * Concatenate the input streams from their current positions into a new Ogg Opus stream. The headers of the
+     * first input are used, the ID headers of the others must be compatible with it, i.e. the same channels, channel
+     * mapping and output gain.
+     *
+     * <p>The decoder is not reset at the joints, and only the end trimming of the last input is kept, since an Ogg
+     * Opus stream could only be trimmed at its end. The packets of the following inputs that start in their pre-skip
+     * are dropped. If the inputs are cut with {@link OggOpusCutter#cut(OggOpusStream, long, long,
+     * WritableByteChannel)} at the same positions of a stream, e.g. [0, 20000) and [20000, 40000), these are the
+     * pre-roll and the packet that contains the cut position, which is also the last packet of the previous input,
+     * so the packets of the stream are restored without duplicates. Otherwise the joints are not seamless, the
+     * samples trimmed from the end of an input are played, and the samples of a following input before its first
+     * packet that starts after the pre-skip are lost.</p>
+     *
+     * @param inputs the input streams
+     * @param output the channel that the new stream is written to, which is not closed
+     * @return the duration of the new stream in 48 kHz samples
+     * @throws IOException if an I/O error occurs
+     * @throws IllegalArgumentException if there is no input, or the ID headers are not compatible
+     */
+    public static long concat(List<OggOpusStream> inputs, WritableByteChannel output) throws IOException {
+        if (inputs.isEmpty()) {
+            throw new IllegalArgumentException("No input stream");
+        }
+        IdHeader idHeader = inputs.get(0).getIdHeader();
+        for (int i = 1; i < inputs.size(); i++) {
+            if (!isCompatible(idHeader, inputs.get(i).getIdHeader())) {
+                throw new IllegalArgumentException("Incompatible ID header of input stream " + i);
+            }
+        }
+        OggOpusWriter writer = OggOpusWriter.to(output, idHeader, inputs.get(0).getCommentHeader());
+        byte[] pending = null;
+        int pendingEndTrim = 0;
+        for (int i = 0; i < inputs.size(); i++) {
+            OggOpusStream input = inputs.get(i);
+            byte[] data;
+            while ((data = input.readAudioData()) != null) {
+                if (i > 0 && input.getPacketStartSample() < 0) {
+                    continue;
+                }
+                if (pending != null) {
+                    writer.writeRawPacket(pending);
+                }
+                pending = data;
+                long sampleCount = input.getPacketEndSample() - input.getPacketStartSample();
+                pendingEndTrim = (int) Math.max(0, OpusUtil.getSampleCount(data) - sampleCount);
+            }
+        }
+        if (pending == null) {
+            writer.finish();
+            return 0;
+        }
+        writer.writeLastRawPacket(pending, pendingEndTrim);
+        return Math.max(0, writer.getGranulePosition() - idHeader.getPreSkip());
+    }
+
+    /**
+     * Check whether the packets of two streams could be decoded by the same decoder.
+     */
+    static boolean isCompatible(IdHeader idHeader, IdHeader other) {
+        return idHeader.getChannelCount() == other.getChannelCount()
+                && idHeader.getChannelMappingFamily() == other.getChannelMappingFamily()
+                && idHeader.getStreamCount() == other.getStreamCount()
+                && idHeader.getCoupledCount() == other.getCoupledCount()
+                && Arrays.equals(idHeader.getChannelMapping(), other.getChannelMapping())
+                && idHeader.getOutputGain() == other.getOutputGain();
+    }
+}
@@ -0,0 +1,231 @@
+package org.chenliang.oggus.opus;
+
+import org.chenliang.oggus.ogg.OggPageParser;
+import org.chenliang.oggus.ogg.OggPageView;
+
+import java.nio.ByteBuffer;
+
+/**
+ * A push parser of Ogg Opus streams, for data that arrives in chunks, e.g. from a non-blocking socket. It is the push
+ * counterpart of {@link OggOpusStream}: chunks of any size are fed with {@link OggOpusParser#feed(ByteBuffer)}, and
+ * the headers and audio data packets are passed to a {@link PacketListener} as soon as they are completed.
+ *
+ * <p>Pages are parsed by an {@link OggPageParser}, which carries over at most one incomplete page between chunks.
+ * The first logical stream that starts with an ID header is parsed, pages of other logical streams are ignored. A
+ * packet that is within a page is copied from the page once, only the beginning of a packet that spans pages is kept
+ * until its last page is fed. The audio data packets are timestamped in the same way as
+ * {@link OggOpusStream#readAudioPacket()}.</p>
+ *
+ * <p>The parser is also a {@link OggPageParser.PageListener}, so it could parse the pages of an Opus logical stream
+ * that are dispatched by an {@link org.chenliang.oggus.ogg.OggDemuxer}, e.g. to parse all Opus streams of a chained
+ * or multiplexed physical stream in one pass.</p>
+ *
+ * <pre>
+ * OggOpusParser parser = OggOpusParser.create(new OggOpusParser.PacketListener() {
+ *     public void onHeaders(IdHeader idHeader, CommentHeader commentHeader) {
+ *         // Create the decoder
+ *     }
+ *
+ *     public void onAudioPacket(AudioDataPacket audioDataPacket) {
+ *         // Decode the packet
+ *     }
+ * });
+ * // Called by the event loop whenever data is received
+ * parser.feed(byteBuffer);
+ * </pre>
+ */
+public class OggOpusParser implements OggPageParser.PageListener {
+    private final PacketListener listener;
+    private final OggPageParser pageParser;
+    private IdHeader idHeader;
+    private CommentHeader commentHeader;
+    private long serialNum = -1;
+    private boolean isEnd = false;
+    private final PacketAssembler packetAssembler = new PacketAssembler();
+    private final GranulePositionTracker granulePositionTracker = new GranulePositionTracker();
+
+    private OggOpusParser(PacketListener listener) {
+        this.listener = listener;
+        this.pageParser = OggPageParser.create(this);
+    }
+
+    /**
+     * Create a parser that passes the headers and audio data packets to {@code listener}.
+     *
+     * @param listener the listener of the Opus stream
+     * @return OggOpusParser
+     */
+    public static OggOpusParser create(PacketListener listener) {
+        return new OggOpusParser(listener);
+    }
+
+    /**
+     * Parse all remaining bytes of {@code data}, and pass the completed headers and packets to the listener, see
+     * {@link OggPageParser#feed(ByteBuffer)}.
+     *
+     * @param data the next chunk of the stream
+     * @throws InvalidOpusException if the headers are invalid
+     * @throws org.chenliang.oggus.ogg.InvalidOggException if a page in sync is invalid
+     */
+    public void feed(ByteBuffer data) {
+        pageParser.feed(data);
+    }
+
+    /**
+     * Get the underlying page parser, e.g. to set the {@link org.chenliang.oggus.ogg.CheckSumPolicy}.
+     *
+     * @return the page parser
+     */
+    public OggPageParser getPageParser() {
+        return pageParser;
+    }
+
+    /**
+     * @return the ID header, or {@code null} if it is not parsed yet
+     */
+    public IdHeader getIdHeader() {
+        return idHeader;
+    }
+
+    /**
+     * @return the comment header, or {@code null} if it is not parsed yet
+     */
+    public CommentHeader getCommentHeader() {
+        return commentHeader;
+    }
+
+    /**
+     * @return the serial number of the Opus logical stream, or -1 if the ID header is not parsed yet
+     */
+    public long getSerialNum() {
+        return serialNum;
+    }
+
+    /**
+     * @return true if the last page of the Opus logical stream is parsed
+     */
+    public boolean isEnd() {
+        return isEnd;
+    }
+
+    /**
+     * Parse a page that is parsed by the underlying page parser or pushed by an
+     * {@link org.chenliang.oggus.ogg.OggDemuxer}.
+     *
+     * @param view the view of the page
+     * @throws InvalidOpusException if the headers are invalid
+     */
+    @Override
+    public void onPage(OggPageView view) {
+        if (isEnd) {
+            return;
+        }
+        if (idHeader == null) {
+            if (isIdHeaderPage(view)) {
+                if (view.getDataPacketCount() > 1 || !view.isCompleted()) {
+                    throw new InvalidOpusException("The ID Header Ogg page must NOT contain other data");
+                }
+                idHeader = IdHeader.from(view.copyDataPacket(0));
+                serialNum = view.getSerialNum();
+            }
+            return;
+        }
+        if (view.getSerialNum() != serialNum) {
+            return;
+        }
+
+        isEnd = view.isEOS();
+        if (!packetAssembler.isEmpty() && !view.isContinued()) {
+            // The page that completes the partial packet is lost
+            packetAssembler.clear();
+        }
+        if (commentHeader != null) {
+            granulePositionTracker.onPage(view);
+        }
+        int count = view.getDataPacketCount();
+        int lastCompletedIndex = view.isCompleted() ? count - 1 : count - 2;
+        for (int i = 0; i < count; i++) {
+            boolean isPacketCompleted = i <= lastCompletedIndex;
+            if (i == 0 && view.isContinued() && packetAssembler.isEmpty()) {
+                // The beginning of the packet is lost
+                continue;
+            }
+            if (packetAssembler.isEmpty() && isPacketCompleted) {
+                onPacket(view.copyDataPacket(i), view, i == lastCompletedIndex);
+                continue;
+            }
+            packetAssembler.append(view, i);
+            if (isPacketCompleted) {
+                byte[] data = packetAssembler.toByteArray();
+                packetAssembler.clear();
+                onPacket(data, view, i == lastCompletedIndex);
+            }
+        }
+        if (isEnd) {
+            listener.onEnd();
+        }
+    }
+
+    private void onPacket(byte[] data, OggPageView view, boolean isLastCompleted) {
+        if (commentHeader == null) {
+            commentHeader = CommentHeader.from(data);
+            listener.onHeaders(idHeader, commentHeader);
+            return;
+        }
+        AudioDataPacket audioDataPacket = AudioDataPacket.from(data, idHeader.getStreamCount());
+        granulePositionTracker.next(audioDataPacket.getSampleCount(), view, isLastCompleted);
+        int preSkip = idHeader.getPreSkip();
+        audioDataPacket.setTimestamp(granulePositionTracker.getPacketStart() - preSkip,
+                granulePositionTracker.getPacketEnd() - preSkip);
+        listener.onAudioPacket(audioDataPacket);
+    }
+
+    /**
+     * Check whether a page is the BOS page of an Opus logical stream, which contains an ID header.
+     *
+     * @param view the view of the page
+     * @return true if the page is a BOS page and its first packet starts with 'OpusHead'
+     */
+    public static boolean isIdHeaderPage(OggPageView view) {
+        if (!view.isBOS() || view.getDataPacketCount() == 0
+                || view.getDataPacketLength(0) < IdHeader.MAGIC_SIGNATURE.length) {
+            return false;
+        }
+        ByteBuffer buffer = view.getBuffer();
+        int offset = view.getDataPacketOffset(0);
+        for (int i = 0; i < IdHeader.MAGIC_SIGNATURE.length; i++) {
+            if (buffer.get(offset + i) != IdHeader.MAGIC_SIGNATURE[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * A listener of the Opus stream parsed by {@link OggOpusParser}, which is called in
+     * {@link OggOpusParser#feed(ByteBuffer)}. The objects passed to it are owned by the listener.
+     */
+    public interface PacketListener {
+        /**
+         * Called when both the ID header and the comment header are parsed, before any audio data packet.
+         *
+         * @param idHeader      the ID header
+         * @param commentHeader the comment header
+         */
+        default void onHeaders(IdHeader idHeader, CommentHeader commentHeader) {
+        }
+
+        /**
+         * Called when an audio data packet is completed.
+         *
+         * @param audioDataPacket the audio data packet
+         */
+        void onAudioPacket(AudioDataPacket audioDataPacket);
+
+        /**
+         * Called when the last page of the Opus logical stream is parsed, after its audio data packets.
+         */
+        default void onEnd() {
+        }
+    }
+}
@@ -0,0 +1,203 @@
+package org.chenliang.oggus.opus;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Iterator;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.stream.Stream;
+
+/**
+ * Scan all Ogg Opus files in a directory tree in parallel, and summarize them with {@link OpusFileStats}.
+ *
+ * <p>Files are scanned on an executor, a {@link ForkJoinPool} by default. The number of files that are opened at the
+ * same time is bounded: the directory walk waits for a permit before a file is submitted, so neither open files nor
+ * pending tasks pile up when the storage is slower than the executor. Each file is summarized independently, and
+ * added to an {@link OpusScanStats} of the executor thread, which are merged when the scan is finished, so threads
+ * don't contend on a shared accumulator.</p>
+ *
+ * <pre>
+ * try (OggOpusScanner scanner = OggOpusScanner.create()) {
+ *     OpusScanStats stats = scanner.scan(Paths.get("/some/dir"), fileStats -&gt; {
+ *         // Called on executor threads as soon as each file is scanned
+ *     });
+ * }
+ * </pre>
+ */
+public class OggOpusScanner implements Closeable {
+    private static final String FILE_SUFFIX = ".opus";
+    private final ExecutorService executor;
+    private final boolean isExecutorOwned;
+    private final int maxOpenFiles;
+
+    private OggOpusScanner(ExecutorService executor, boolean isExecutorOwned, int maxOpenFiles) {
+        if (maxOpenFiles < 1) {
+            throw new IllegalArgumentException("Invalid max open files: " + maxOpenFiles);
+        }
+        this.executor = executor;
+        this.isExecutorOwned = isExecutorOwned;
+        this.maxOpenFiles = maxOpenFiles;
+    }
+
+    /**
+     * Create a scanner that uses all available processors, and opens at most two files per processor.
+     *
+     * @return the scanner
+     */
+    public static OggOpusScanner create() {
+        int parallelism = Runtime.getRuntime().availableProcessors();
+        return create(parallelism, parallelism * 2);
+    }
+
+    /**
+     * Create a scanner with a {@link ForkJoinPool} of {@code parallelism} threads, which is shut down when the
+     * scanner is closed.
+     *
+     * @param parallelism  the number of threads
+     * @param maxOpenFiles the max number of files that are scanned at the same time
+     * @return the scanner
+     */
+    public static OggOpusScanner create(int parallelism, int maxOpenFiles) {
+        return new OggOpusScanner(new ForkJoinPool(parallelism), true, maxOpenFiles);
+    }
+
+    /**
+     * Create a scanner that runs on the given executor, which is not shut down when the scanner is closed.
+     *
+     * @param executor     the executor
+     * @param maxOpenFiles the max number of files that are scanned at the same time
+     * @return the scanner
+     */
+    public static OggOpusScanner create(ExecutorService executor, int maxOpenFiles) {
+        return new OggOpusScanner(executor, false, maxOpenFiles);
+    }
+
+    /**
+     * Scan all ".opus" files in a directory tree.
+     *
+     * @param directory the root of the directory tree
+     * @return the summary of all files
+     * @throws IOException if the directory tree could not be walked
+     */
+    public OpusScanStats scan(Path directory) throws IOException {
+        return scan(directory, stats -> {
+        });
+    }
+
+    /**
+     * Scan all ".opus" files in a directory tree, the summary of each file is passed to {@code listener} as soon as
+     * the file is scanned. The listener is called on the executor threads, so it must be thread safe. A file that
+     * could not be read, or is not a valid Ogg Opus stream, is counted by {@link OpusScanStats#getFailedFileCount()}
+     * and passed to {@link ScanListener#onFailed(Path, Exception)}.
+     *
+     * @param directory the root of the directory tree
+     * @param listener  the listener of each file
+     * @return the summary of all files
+     * @throws IOException if the directory tree could not be walked
+     */
+    public OpusScanStats scan(Path directory, ScanListener listener) throws IOException {
+        Semaphore openFiles = new Semaphore(maxOpenFiles);
+        Queue<OpusScanStats> accumulators = new ConcurrentLinkedQueue<>();
+        ThreadLocal<OpusScanStats> accumulator = ThreadLocal.withInitial(() -> {
+            OpusScanStats stats = new OpusScanStats();
+            accumulators.add(stats);
+            return stats;
+        });
+        AtomicReference<RuntimeException> listenerException = new AtomicReference<>();
+
+        try (Stream<Path> files = Files.walk(directory)) {
+            Iterator<Path> iterator = files.filter(OggOpusScanner::isOpusFile).iterator();
+            while (iterator.hasNext() && listenerException.get() == null) {
+                Path file = iterator.next();
+                openFiles.acquire();
+                try {
+                    executor.execute(() -> {
+                        try {
+                            scanFile(file, accumulator.get(), listener);
+                        } catch (RuntimeException e) {
+                            listenerException.compareAndSet(null, e);
+                        } finally {
+                            openFiles.release();
+                        }
+                    });
+                } catch (RuntimeException e) {
+                    openFiles.release();
+                    throw e;
+                }
+            }
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted when scanning " + directory);
+        } finally {
+            // Wait for all submitted files
+            openFiles.acquireUninterruptibly(maxOpenFiles);
+        }
+
+        if (listenerException.get() != null) {
+            throw listenerException.get();
+        }
+        OpusScanStats stats = new OpusScanStats();
+        for (OpusScanStats threadStats : accumulators) {
+            stats.merge(threadStats);
+        }
+        return stats;
+    }
+
+    /**
+     * Shut down the executor if it is created by this scanner.
+     */
+    @Override
+    public void close() {
+        if (isExecutorOwned) {
+            executor.shutdown();
+        }
+    }
+
+    private static boolean isOpusFile(Path file) {
+        return file.getFileName().toString().endsWith(FILE_SUFFIX) && Files.isRegularFile(file);
+    }
+
+    private static void scanFile(Path file, OpusScanStats accumulator, ScanListener listener) {
+        OpusFileStats stats;
+        try {
+            stats = OpusFileStats.scan(file);
+        } catch (IOException | RuntimeException e) {
+            accumulator.addFailure();
+            listener.onFailed(file, e);
+            return;
+        }
+        accumulator.add(stats);
+        listener.onScanned(stats);
+    }
+
+    /**
+     * A listener of the scanned files, which is called on the executor threads.
+     */
+    public interface ScanListener {
+        /**
+         * Called when a file is scanned.
+         *
+         * @param stats the summary of the file
+         */
+        void onScanned(OpusFileStats stats);
+
+        /**
+         * Called when a file could not be read, or is not a valid Ogg Opus stream.
+         *
+         * @param file      the file
+         * @param exception the exception thrown when scanning the file
+         */
+        default void onFailed(Path file, Exception exception) {
+        }
+    }
+}
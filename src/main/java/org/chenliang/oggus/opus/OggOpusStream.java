@@ -2,13 +2,15 @@ package org.chenliang.oggus.opus;
 
 import com.google.common.primitives.Bytes;
 import org.chenliang.oggus.ogg.OggPage;
+import org.chenliang.oggus.ogg.OggPageIndex;
+import org.chenliang.oggus.ogg.OggPageView;
 import org.chenliang.oggus.ogg.OggStream;
 
 import java.io.IOException;
 import java.io.InputStream;
-import java.util.LinkedList;
+import java.nio.BufferOverflowException;
+import java.nio.ByteBuffer;
 import java.util.List;
-import java.util.Queue;
 
 /**
  * A class that provide methods to read an Ogg opus stream. An Ogg Opus stream is organized as follows:
@@ -28,20 +30,51 @@ import java.util.Queue;
  * |      ID header is contained on a single page
  * 'Beginning Of Stream'
  * </pre>
+ *
+ * <p>If the stream is read from a file or a seekable channel, it could be repositioned by granule position with
+ * {@link OggOpusStream#seek(long)}.</p>
  */
 public class OggOpusStream {
+    /**
+     * The size of the tail of the stream that is read first by {@link OggOpusStream#probeDurationSamples()}.
+     */
+    private static final int DURATION_PROBE_SIZE = 64 * 1024;
     private final CommentHeader commentHeader;
     private final IdHeader idHeader;
     private final OggStream oggStream;
-    private final Queue<byte[]> lastPageLeftAudioDataPackets = new LinkedList<>();
-    private boolean isLastReadPageCompleted = true;
     private long streamId;
     private boolean isEnd = false;
+    private final long audioDataOffset;
+    private OggPageIndex seekIndex;
+    private final OpusPacketView opusPacketView = new OpusPacketView();
+    private final PacketAssembler packetAssembler = new PacketAssembler();
+    private final GranulePositionTracker granulePositionTracker = new GranulePositionTracker();
+    /**
+     * The audio data page that is being read, it points into the buffer of the underlying stream, so it is only valid
+     * until the next page is read from the stream.
+     */
+    private OggPageView audioDataPage;
+    private long audioDataPageOffset;
+    private int nextPacketIndex;
+    /**
+     * The index of the current packet in {@code audioDataPage}, or -1 if it spans pages.
+     */
+    private int packetIndex;
+    private int packetSize;
+    private int packetSampleCount;
+    /**
+     * The size of the parts of a packet that spans pages, which are copied to the buffer passed to
+     * {@link OggOpusStream#readRawPacket(ByteBuffer)} directly, instead of being assembled in
+     * {@code packetAssembler}.
+     */
+    private int copiedSize;
+    private boolean isPacketPending = false;
 
     private OggOpusStream(OggStream oggStream) throws IOException {
         idHeader = readIdHeader(oggStream);
         commentHeader = readCommentHeader(oggStream);
         this.oggStream = oggStream;
+        this.audioDataOffset = oggStream.getPosition();
     }
 
     /**
@@ -66,6 +99,18 @@ public class OggOpusStream {
         return new OggOpusStream(OggStream.from(filePath));
     }
 
+    /**
+     * Read Ogg Opus stream from an {@code OggStream}, which could be configured before, e.g. with a
+     * {@link org.chenliang.oggus.ogg.CheckSumPolicy}.
+     *
+     * @param oggStream The underlying Ogg stream
+     * @return The OggOpusStream object
+     * @throws IOException If IO read error
+     */
+    public static OggOpusStream from(OggStream oggStream) throws IOException {
+        return new OggOpusStream(oggStream);
+    }
+
     /**
      * Get the Id header of this Ogg Opus stream
      *
@@ -84,57 +129,372 @@ public class OggOpusStream {
         return this.commentHeader;
     }
 
+    /**
+     * Get the serial number of the Ogg logical stream that carries this Opus stream.
+     *
+     * @return the serial number
+     */
+    public long getSerialNum() {
+        return streamId;
+    }
+
     /**
      * Read an AudioDataPacket from the Ogg Opus stream. Return {@code null} if this is not more data to read.
      *
      * <p>If there multiple logical streams, the first Opus stream is read.</p>
      *
+     * <p>The packet is timestamped with the positions of its first and last samples in the output, see
+     * {@link AudioDataPacket#getStartSample()} and {@link AudioDataPacket#getEndSample()}. They are derived from the
+     * granule positions of the pages, the pre-skip and the durations of packets, and the last packet is trimmed to
+     * the granule position of the EOS page.</p>
+     *
      * @return AudioDataPacket
      * @throws IOException if IO read error
      */
     public AudioDataPacket readAudioPacket() throws IOException {
-        if (lastPageLeftAudioDataPackets.isEmpty()) {
-            if (isEnd) {
-                return null;
-            }
+        byte[] data = readAudioData();
+        if (data == null) {
+            return null;
+        }
+        AudioDataPacket audioDataPacket = AudioDataPacket.from(data, idHeader.getStreamCount());
+        setTimestamp(audioDataPacket);
+        return audioDataPacket;
+    }
 
-            byte[] data = new byte[0];
-            while (true) {
-                OggPage oggPage = oggStream.readPage(streamId);
-                if (oggPage == null) {
-                    throw new InvalidOpusException("Corrupted opus binary data");
+    /**
+     * Read an AudioDataPacket into a packet object owned by the caller, instead of creating a new one. Return
+     * {@code null} if this is not more data to read.
+     *
+     * <p>The caller owns {@code audioDataPacket}, this stream only writes to it during this call: its Opus packets
+     * are replaced by the next packet, and the {@link OpusPacket} objects in it are reused when they have the same
+     * code as the new ones, so the Opus packets read from it before must be used or dumped before it is passed
+     * again. The frame arrays are always newly allocated, so they could be kept after the packet object is reused.
+     * If there is no more data, {@code audioDataPacket} is not changed. If an exception is thrown, its content is
+     * undefined.</p>
+     *
+     * @param audioDataPacket the packet object to read into, e.g. created with {@link AudioDataPacket#empty()}
+     * @return {@code audioDataPacket}, or {@code null} if there is no more data
+     * @throws IOException if IO read error
+     */
+    public AudioDataPacket readAudioPacket(AudioDataPacket audioDataPacket) throws IOException {
+        byte[] data = readAudioData();
+        if (data == null) {
+            return null;
+        }
+        audioDataPacket.parse(data, idHeader.getStreamCount(), opusPacketView);
+        setTimestamp(audioDataPacket);
+        return audioDataPacket;
+    }
+
+    private void setTimestamp(AudioDataPacket audioDataPacket) {
+        audioDataPacket.setTimestamp(getPacketStartSample(), getPacketEndSample());
+    }
+
+    /**
+     * Read the next audio data packet without copying it to a byte array, and copy it to {@code dst}. Raw Opus
+     * packets could be passed to a decoder this way without building {@link AudioDataPacket} objects. Each byte of
+     * the packet is copied once, from the read buffer to {@code dst}, even if the packet spans pages.
+     *
+     * @param dst the buffer that the packet is copied to, starting at its position
+     * @return the size of the packet, or -1 if there is no more data
+     * @throws BufferOverflowException if there isn't enough room in {@code dst}, the packet is not consumed, and it
+     *                                 could be read again with a larger buffer. The bytes after the position of
+     *                                 {@code dst} may be overwritten
+     * @throws IOException if IO read error
+     */
+    public int readRawPacket(ByteBuffer dst) throws IOException {
+        if (!nextPacket(dst)) {
+            return -1;
+        }
+        if (dst.remaining() < packetSize) {
+            isPacketPending = true;
+            throw new BufferOverflowException();
+        }
+        if (packetIndex >= 0) {
+            ByteBuffer source = audioDataPage.getBuffer().duplicate();
+            int offset = audioDataPage.getDataPacketOffset(packetIndex);
+            source.limit(offset + packetSize).position(offset);
+            dst.put(source);
+        } else if (copiedSize > 0) {
+            dst.position(dst.position() + copiedSize);
+        } else {
+            // dst was too small when the packet was read, so it was assembled
+            packetAssembler.copyTo(dst);
+        }
+        return packetSize;
+    }
+
+    /**
+     * Read the next audio data packet as a byte array without parsing it, its positions are got with
+     * {@link OggOpusStream#getPacketStartSample()} and {@link OggOpusStream#getPacketEndSample()}.
+     *
+     * @return the binary data of the packet, or {@code null} if there is no more data
+     */
+    byte[] readAudioData() throws IOException {
+        if (!nextPacket(null)) {
+            return null;
+        }
+        return packetIndex >= 0 ? audioDataPage.copyDataPacket(packetIndex) : packetAssembler.toByteArray();
+    }
+
+    /**
+     * @return the position of the first sample of the last read packet in the output
+     */
+    long getPacketStartSample() {
+        return granulePositionTracker.getPacketStart() - idHeader.getPreSkip();
+    }
+
+    /**
+     * @return the position after the last sample of the last read packet in the output, after end trimming
+     */
+    long getPacketEndSample() {
+        return granulePositionTracker.getPacketEnd() - idHeader.getPreSkip();
+    }
+
+    boolean isSeekable() {
+        return oggStream.isSeekable();
+    }
+
+    /**
+     * Move to the next audio data packet. If it is within a page, {@code packetIndex} is its index in
+     * {@code audioDataPage}. Otherwise its parts are copied to {@code dst} after its position while they fit, or
+     * assembled in {@code packetAssembler}. A partial packet on the EOS page is dropped, in the same way as
+     * {@link OggOpusParser}.
+     *
+     * @param dst the buffer of {@link OggOpusStream#readRawPacket(ByteBuffer)}, or {@code null}
+     * @return false if there is no more packet
+     */
+    private boolean nextPacket(ByteBuffer dst) throws IOException {
+        if (isPacketPending) {
+            isPacketPending = false;
+            return true;
+        }
+        clearPacket();
+        while (true) {
+            if (audioDataPage == null || nextPacketIndex >= audioDataPage.getDataPacketCount()) {
+                if (isEnd) {
+                    clearPacket();
+                    return false;
                 }
-                isEnd = oggPage.isEOS();
-                isLastReadPageCompleted = oggPage.isCompleted();
-                lastPageLeftAudioDataPackets.addAll(oggPage.getDataPackets());
-                data = Bytes.concat(data, lastPageLeftAudioDataPackets.poll());
-                if (isEnd || oggPage.getDataPackets().size() != 1 || oggPage.isCompleted()) {
-                    break;
+                audioDataPage = oggStream.readPageView(streamId);
+                if (audioDataPage == null) {
+                    throw new InvalidOpusException("Corrupted opus binary data");
                 }
+                audioDataPageOffset = oggStream.getLastPageOffset();
+                isEnd = audioDataPage.isEOS();
+                nextPacketIndex = 0;
+                granulePositionTracker.onPage(audioDataPage);
+                continue;
+            }
+            int index = nextPacketIndex++;
+            boolean isPacketCompleted = index < audioDataPage.getDataPacketCount() - 1 || audioDataPage.isCompleted();
+            if (packetSize == 0 && isPacketCompleted) {
+                // Most packets are within a page, they are not assembled
+                packetIndex = index;
+                packetSize = audioDataPage.getDataPacketLength(index);
+                timestampPacket(index, GranulePositionTracker.getSampleCount(audioDataPage, index));
+                return true;
+            }
+            if (packetSize == 0) {
+                // The TOC byte and the frame count byte are in the first part
+                packetSampleCount = GranulePositionTracker.getSampleCount(audioDataPage, index);
+            }
+            appendPart(index, dst);
+            if (isPacketCompleted) {
+                packetIndex = -1;
+                timestampPacket(index, packetSampleCount);
+                return true;
+            }
+        }
+    }
+
+    /**
+     * Append a part of the packet that spans pages, to {@code dst} if there is enough room, otherwise the parts that
+     * are copied to it are moved to {@code packetAssembler}, and the following parts are assembled there.
+     */
+    private void appendPart(int index, ByteBuffer dst) {
+        int length = audioDataPage.getDataPacketLength(index);
+        if (dst != null && packetAssembler.isEmpty() && dst.remaining() - copiedSize >= length) {
+            ByteBuffer source = audioDataPage.getBuffer().duplicate();
+            int offset = audioDataPage.getDataPacketOffset(index);
+            source.limit(offset + length).position(offset);
+            ByteBuffer target = dst.duplicate();
+            target.position(dst.position() + copiedSize);
+            target.put(source);
+            copiedSize += length;
+        } else {
+            if (copiedSize > 0) {
+                packetAssembler.append(dst, dst.position(), copiedSize);
+                copiedSize = 0;
             }
-            return AudioDataPacket.from(data, idHeader.getStreamCount());
+            packetAssembler.append(audioDataPage, index);
         }
+        packetSize += length;
+    }
+
+    private void clearPacket() {
+        packetAssembler.clear();
+        packetSize = 0;
+        copiedSize = 0;
+    }
+
+    /**
+     * Timestamp the current packet, which is completed at {@code index} of {@code audioDataPage}.
+     */
+    private void timestampPacket(int index, int sampleCount) {
+        int count = audioDataPage.getDataPacketCount();
+        int lastCompletedIndex = audioDataPage.isCompleted() ? count - 1 : count - 2;
+        granulePositionTracker.next(sampleCount, audioDataPage, index == lastCompletedIndex);
+    }
+
+    /**
+     * Move to the audio data packet that contains the sample at {@code granulePosition}. Reading is resumed at the
+     * first packet that starts after the last page whose granule position is not greater than
+     * {@code granulePosition}, so the returned granule position may be before the target, but never after it, and
+     * the packets between them should be decoded and discarded for sample accurate seeking.
+     *
+     * <p>The pages are bisected by granule positions, unless a seek index is built with
+     * {@link OggOpusStream#buildSeekIndex()} or set with {@link OggOpusStream#setSeekIndex(OggPageIndex)}, then the
+     * index is searched. The page found in the index must have the same offset and checksum in the stream.</p>
+     *
+     * @param granulePosition the target granule position, in 48 kHz samples
+     * @return the granule position at the start of the next audio data packet to be read
+     * @throws IOException if IO read error
+     * @throws IllegalStateException if the stream is not read from a file or a seekable channel
+     * @throws InvalidOpusException if the seek index doesn't match the stream
+     */
+    public long seek(long granulePosition) throws IOException {
+        audioDataPage = null;
+        isPacketPending = false;
+        isEnd = false;
 
-        byte[] data = lastPageLeftAudioDataPackets.poll();
+        int index = -1;
+        boolean isFound;
+        if (seekIndex != null) {
+            index = seekIndex.floorIndex(granulePosition);
+            isFound = index >= 0;
+            oggStream.seek(isFound ? seekIndex.getOffset(index) : audioDataOffset);
+        } else {
+            isFound = oggStream.seekPage(streamId, granulePosition, audioDataOffset);
+        }
+        if (!isFound) {
+            long startGranulePosition = readStartGranulePosition();
+            granulePositionTracker.reset(startGranulePosition);
+            return startGranulePosition;
+        }
 
-        if (isLastReadPageCompleted || !lastPageLeftAudioDataPackets.isEmpty()) {
-            return AudioDataPacket.from(data, idHeader.getStreamCount());
+        // The packets completed on the found page end before its granule position, only the partial packet left
+        OggPageView view = oggStream.readPageView(streamId);
+        if (index >= 0 && (view == null || oggStream.getLastPageOffset() != seekIndex.getOffset(index)
+                || view.getCheckSum() != seekIndex.getCheckSum(index))) {
+            throw new InvalidOpusException("The seek index doesn't match the stream");
         }
+        audioDataPage = view;
+        audioDataPageOffset = oggStream.getLastPageOffset();
+        isEnd = view.isEOS();
+        nextPacketIndex = view.isCompleted() ? view.getDataPacketCount() : view.getDataPacketCount() - 1;
+        granulePositionTracker.reset(view.getGranulePosition());
+        return view.getGranulePosition();
+    }
 
-        while (true) {
-            OggPage oggPage = oggStream.readPage(streamId);
-            if (oggPage == null) {
-                throw new InvalidOpusException("Corrupted opus binary data");
-            }
-            isEnd = oggPage.isEOS();
-            isLastReadPageCompleted = oggPage.isCompleted();
-            lastPageLeftAudioDataPackets.addAll(oggPage.getDataPackets());
-            data = Bytes.concat(data, lastPageLeftAudioDataPackets.poll());
-            if (isEnd || oggPage.getDataPackets().size() != 1 || oggPage.isCompleted()) {
-                break;
+    /**
+     * Build an index of the audio data pages, so that {@link OggOpusStream#seek(long)} doesn't need to bisect the
+     * stream. All pages are read once, then the stream is moved back to the current position.
+     *
+     * @throws IOException if IO read error
+     * @throws IllegalStateException if the stream is not read from a file or a seekable channel
+     */
+    public void buildSeekIndex() throws IOException {
+        long position = oggStream.getPosition();
+        oggStream.seek(audioDataOffset);
+        seekIndex = OggPageIndex.build(oggStream, streamId);
+        restorePosition(position);
+    }
+
+    /**
+     * Get the duration of the stream from the granule position of its last page, without reading the audio data
+     * packets, so the cost doesn't depend on the length of the stream. Only the last 64 KB of the stream is read,
+     * from the first capture pattern that starts a valid page. If there isn't a page of this Opus stream with a
+     * granule position in it, e.g. another logical stream is chained after this one, the range before it is read
+     * with doubled size, until such page is found. Then the stream is moved back to the current position.
+     *
+     * @return the duration in 48 kHz samples, which is the granule position of the last page minus the pre-skip, or
+     * 0 if there is no audio data
+     * @throws IOException if IO read error
+     * @throws IllegalStateException if the stream is not read from a file or a seekable channel
+     */
+    public long probeDurationSamples() throws IOException {
+        long position = oggStream.getPosition();
+        long end = oggStream.size();
+        long probeSize = DURATION_PROBE_SIZE;
+        long granulePosition = -1;
+        while (granulePosition == -1 && end > audioDataOffset) {
+            long start = Math.max(audioDataOffset, end - probeSize);
+            granulePosition = readLastGranulePosition(start, end);
+            end = start;
+            probeSize *= 2;
+        }
+        restorePosition(position);
+        return Math.max(0, granulePosition - idHeader.getPreSkip());
+    }
+
+    /**
+     * Read the pages that start in the range {@code [start, end)}.
+     *
+     * @return the last granule position of this Opus stream in the range, or -1 if there isn't
+     */
+    private long readLastGranulePosition(long start, long end) throws IOException {
+        long granulePosition = -1;
+        oggStream.seek(start);
+        OggPageView view;
+        while ((view = oggStream.readPageView()) != null && oggStream.getLastPageOffset() < end) {
+            if (view.getSerialNum() == streamId && view.getGranulePosition() != -1) {
+                granulePosition = view.getGranulePosition();
             }
         }
-        return AudioDataPacket.from(data, idHeader.getStreamCount());
+        return granulePosition;
+    }
+
+    /**
+     * Move the stream back to {@code position} after other pages are read.
+     */
+    private void restorePosition(long position) throws IOException {
+        if (audioDataPage != null) {
+            // The view of the page being read is invalidated, read it again
+            oggStream.seek(audioDataPageOffset);
+            audioDataPage = oggStream.readPageView(streamId);
+        } else {
+            oggStream.seek(position);
+        }
+    }
+
+    /**
+     * Use an index that is built before, e.g. loaded with {@link OggPageIndex#loadSidecar(String)}, so that
+     * {@link OggOpusStream#seek(long)} doesn't need to bisect the stream. The index could contain pages of all
+     * logical streams, only the audio data pages of this Opus stream are used.
+     *
+     * @param seekIndex the index of the underlying Ogg stream
+     */
+    public void setSeekIndex(OggPageIndex seekIndex) {
+        this.seekIndex = seekIndex.subIndex(streamId, audioDataOffset);
+    }
+
+    /**
+     * @return the seek index, or {@code null} if it isn't built
+     */
+    public OggPageIndex getSeekIndex() {
+        return seekIndex;
+    }
+
+    /**
+     * Calculate the granule position at the start of the first audio data page, from its granule position and the
+     * duration of the packets completed on it. The stream is moved back to the first audio data page.
+     */
+    private long readStartGranulePosition() throws IOException {
+        OggPageView view = oggStream.readPageView(streamId);
+        long granulePosition = view != null ? GranulePositionTracker.getStartGranulePosition(view) : 0;
+        oggStream.seek(audioDataOffset);
+        return granulePosition;
     }
 
     private IdHeader readIdHeader(OggStream oggStream) throws IOException {
@@ -0,0 +1,176 @@
+package org.chenliang.oggus.opus;
+
+import org.chenliang.oggus.ogg.OggPacketWriter;
+import org.chenliang.oggus.ogg.PageFlushPolicy;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.channels.Channels;
+import java.nio.channels.WritableByteChannel;
+import java.util.Random;
+
+/**
+ * A class that provide methods to write an Ogg Opus stream, it's the counterpart of {@link OggOpusStream}.
+ *
+ * <p>The ID header is written to the first page, and the comment header is written to the following pages. Then
+ * audio data packets are packed into pages, the granule positions are calculated from the frame sizes of Opus
+ * packets. Only the current page is kept in memory, so live audio could be written without buffering the whole
+ * stream.</p>
+ *
+ * <pre>
+ * try (OggOpusWriter writer = OggOpusWriter.to(outputStream, idHeader, commentHeader)) {
+ *     writer.writeAudioPacket(audioDataPacket);
+ * }
+ * </pre>
+ */
+public class OggOpusWriter implements Closeable {
+    private final WritableByteChannel channel;
+    private final OggPacketWriter packetWriter;
+    private long granulePosition = 0;
+
+    private OggOpusWriter(WritableByteChannel channel, IdHeader idHeader, CommentHeader commentHeader,
+                          long serialNum) throws IOException {
+        this.channel = channel;
+        this.packetWriter = OggPacketWriter.to(channel, serialNum);
+        packetWriter.writePacket(idHeader.dump(), 0);
+        packetWriter.flush();
+        packetWriter.writePacket(commentHeader.dump(), 0);
+        packetWriter.flush();
+    }
+
+    /**
+     * Create a writer to an {@code OutputStream} with a random serial number. The headers are written immediately.
+     *
+     * @param outputStream  the output stream
+     * @param idHeader      the ID header
+     * @param commentHeader the comment header
+     * @return OggOpusWriter
+     * @throws IOException if an I/O error occurs
+     */
+    public static OggOpusWriter to(OutputStream outputStream, IdHeader idHeader, CommentHeader commentHeader)
+            throws IOException {
+        return to(Channels.newChannel(outputStream), idHeader, commentHeader);
+    }
+
+    /**
+     * Create a writer to a {@code WritableByteChannel} with a random serial number. The headers are written
+     * immediately.
+     *
+     * @param channel       the channel
+     * @param idHeader      the ID header
+     * @param commentHeader the comment header
+     * @return OggOpusWriter
+     * @throws IOException if an I/O error occurs
+     */
+    public static OggOpusWriter to(WritableByteChannel channel, IdHeader idHeader, CommentHeader commentHeader)
+            throws IOException {
+        return to(channel, idHeader, commentHeader, Integer.toUnsignedLong(new Random().nextInt()));
+    }
+
+    /**
+     * Create a writer to a {@code WritableByteChannel}. The headers are written immediately.
+     *
+     * @param channel       the channel
+     * @param idHeader      the ID header
+     * @param commentHeader the comment header
+     * @param serialNum     the serial number of the Ogg logical stream
+     * @return OggOpusWriter
+     * @throws IOException if an I/O error occurs
+     */
+    public static OggOpusWriter to(WritableByteChannel channel, IdHeader idHeader, CommentHeader commentHeader,
+                                   long serialNum) throws IOException {
+        return new OggOpusWriter(channel, idHeader, commentHeader, serialNum);
+    }
+
+    /**
+     * Set the policy to decide when to close a page, see {@link OpusPageFlushPolicies} for presets. By default, a page
+     * is only closed when it's full or {@link OggOpusWriter#flush()} is called.
+     *
+     * @param flushPolicy the policy
+     */
+    public void setFlushPolicy(PageFlushPolicy flushPolicy) {
+        packetWriter.setFlushPolicy(flushPolicy);
+    }
+
+    /**
+     * Write an audio data packet. The granule position is increased by the duration of the packet.
+     *
+     * @param audioDataPacket the audio data packet
+     * @throws IOException if an I/O error occurs
+     */
+    public void writeAudioPacket(AudioDataPacket audioDataPacket) throws IOException {
+        granulePosition += audioDataPacket.getSampleCount();
+        packetWriter.writePacket(audioDataPacket.dump(), granulePosition);
+    }
+
+    /**
+     * Write an audio data packet that is already dumped, e.g. copied from another stream, without parsing it. The
+     * granule position is increased by the duration of the packet.
+     *
+     * @param data the binary data of the audio data packet
+     * @throws IOException if an I/O error occurs
+     * @throws InvalidOpusException if the TOC byte or the frame count byte is missing
+     */
+    public void writeRawPacket(byte[] data) throws IOException {
+        granulePosition += OpusUtil.getSampleCount(data);
+        packetWriter.writePacket(data, granulePosition);
+    }
+
+    /**
+     * Write the last audio data packet to the EOS page, whose granule position discards the last {@code endTrim}
+     * samples of the packet, and finish the stream. No packet could be written after it.
+     *
+     * @param data    the binary data of the audio data packet
+     * @param endTrim the number of samples that are trimmed from the end of the packet
+     * @throws IOException if an I/O error occurs
+     * @throws IllegalArgumentException if {@code endTrim} is negative or longer than the packet
+     */
+    public void writeLastRawPacket(byte[] data, int endTrim) throws IOException {
+        int sampleCount = OpusUtil.getSampleCount(data);
+        if (endTrim < 0 || endTrim > sampleCount) {
+            throw new IllegalArgumentException("Invalid end trim: " + endTrim);
+        }
+        granulePosition += sampleCount - endTrim;
+        packetWriter.finish(data, granulePosition);
+    }
+
+    /**
+     * Write the current page even if it's not full.
+     *
+     * @throws IOException if an I/O error occurs
+     */
+    public void flush() throws IOException {
+        packetWriter.flush();
+    }
+
+    /**
+     * @return the granule position at the end of the last written audio data packet
+     */
+    public long getGranulePosition() {
+        return granulePosition;
+    }
+
+    /**
+     * Write the last page with EOS flag without closing the underlying channel. No packet could be written after it.
+     *
+     * @throws IOException if an I/O error occurs
+     */
+    public void finish() throws IOException {
+        packetWriter.finish();
+    }
+
+    /**
+     * Write the last page with EOS flag, and close the underlying channel.
+     *
+     * @throws IOException if an I/O error occurs
+     */
+    @Override
+    public void close() throws IOException {
+        try {
+            packetWriter.finish();
+        } finally {
+            channel.close();
+        }
+    }
+}
@@ -0,0 +1,164 @@
+package org.chenliang.oggus.opus;
+
+import org.chenliang.oggus.ogg.OggPageView;
+import org.chenliang.oggus.ogg.OggStream;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Collection;
+import java.util.Map;
+
+/**
+ * The summary of an Ogg Opus file: the headers, the duration, the size of the audio data and the number of packets
+ * of each config. If there are multiple logical streams, the first Opus stream is summarized.
+ *
+ * <p>The audio data pages are read with {@link OggStream#readPageView(long)}, only the TOC byte of each packet is
+ * inspected, so no packet is copied or parsed.</p>
+ */
+public class OpusFileStats {
+    private final Path file;
+    private long fileSize;
+    private long serialNum;
+    private IdHeader idHeader;
+    private CommentHeader commentHeader;
+    private long granulePosition;
+    private long packetCount;
+    private long audioDataSize;
+    private final long[] configPacketCounts = new long[32];
+
+    private OpusFileStats(Path file) {
+        this.file = file;
+    }
+
+    /**
+     * Read the whole file and summarize it.
+     *
+     * @param file path of an Ogg Opus file
+     * @return the summary
+     * @throws IOException if an I/O error occurs
+     * @throws InvalidOpusException if the file is not a valid Ogg Opus stream
+     */
+    public static OpusFileStats scan(Path file) throws IOException {
+        OpusFileStats stats = new OpusFileStats(file);
+        stats.fileSize = Files.size(file);
+        try (OggStream oggStream = OggStream.from(file.toString())) {
+            OggOpusStream oggOpusStream = OggOpusStream.from(oggStream);
+            stats.serialNum = oggOpusStream.getSerialNum();
+            stats.idHeader = oggOpusStream.getIdHeader();
+            stats.commentHeader = oggOpusStream.getCommentHeader();
+            stats.scanAudioData(oggStream);
+        }
+        return stats;
+    }
+
+    private void scanAudioData(OggStream oggStream) throws IOException {
+        OggPageView view;
+        while ((view = oggStream.readPageView(serialNum)) != null) {
+            audioDataSize += view.getBodySize();
+            int count = view.getDataPacketCount();
+            // A packet is counted on the page where it starts, which holds its TOC byte, so the continued packet at the
+            // beginning of a page was counted on a previous page
+            int first = view.isContinued() ? 1 : 0;
+            for (int i = first; i < count; i++) {
+                if (view.getDataPacketLength(i) > 0) {
+                    int toc = Byte.toUnsignedInt(view.getBuffer().get(view.getDataPacketOffset(i)));
+                    configPacketCounts[toc >> 3]++;
+                    packetCount++;
+                }
+            }
+            if (view.getGranulePosition() != -1) {
+                granulePosition = view.getGranulePosition();
+            }
+            if (view.isEOS()) {
+                break;
+            }
+        }
+    }
+
+    public Path getFile() {
+        return file;
+    }
+
+    public long getFileSize() {
+        return fileSize;
+    }
+
+    public long getSerialNum() {
+        return serialNum;
+    }
+
+    public IdHeader getIdHeader() {
+        return idHeader;
+    }
+
+    public CommentHeader getCommentHeader() {
+        return commentHeader;
+    }
+
+    public int getChannelCount() {
+        return idHeader.getChannelCount();
+    }
+
+    public String getVendor() {
+        return commentHeader.getVendor();
+    }
+
+    public Map<String, Collection<String>> getTags() {
+        return commentHeader.getTags();
+    }
+
+    /**
+     * @return the granule position of the last audio data page
+     */
+    public long getGranulePosition() {
+        return granulePosition;
+    }
+
+    /**
+     * The duration is the granule position of the last page minus the pre-skip samples, see
+     * <a href=https://tools.ietf.org/html/rfc7845#section-4.1>RFC7845 Section-4.1</a>.
+     *
+     * @return the duration in 48 kHz samples
+     */
+    public long getDurationSamples() {
+        return Math.max(0, granulePosition - idHeader.getPreSkip());
+    }
+
+    /**
+     * @return the duration in seconds
+     */
+    public double getDuration() {
+        return getDurationSamples() / 48000.0;
+    }
+
+    /**
+     * @return the number of audio data packets
+     */
+    public long getPacketCount() {
+        return packetCount;
+    }
+
+    /**
+     * @return the size of audio data packets in bytes, page headers are not included
+     */
+    public long getAudioDataSize() {
+        return audioDataSize;
+    }
+
+    /**
+     * @return the average bitrate of audio data in bits per second, or 0 if the duration is 0
+     */
+    public double getBitrate() {
+        long durationSamples = getDurationSamples();
+        return durationSamples == 0 ? 0 : audioDataSize * 8 * 48000.0 / durationSamples;
+    }
+
+    /**
+     * @param configId the config id in the TOC byte, from 0 to 31
+     * @return the number of audio data packets of the config
+     */
+    public long getConfigPacketCount(int configId) {
+        return configPacketCounts[configId];
+    }
+}
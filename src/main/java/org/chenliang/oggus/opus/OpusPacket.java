@@ -1,6 +1,6 @@
 package org.chenliang.oggus.opus;
 
-import java.util.LinkedList;
+import java.util.ArrayList;
 import java.util.List;
 
 /**
@@ -29,7 +29,7 @@ import java.util.List;
 public abstract class OpusPacket {
     protected Config config;
     protected Channel channel;
-    protected final List<byte[]> frames = new LinkedList<>();
+    protected final List<byte[]> frames = new ArrayList<>();
 
     /**
      * Add a frame to this Opus packet.
@@ -114,6 +114,13 @@ public abstract class OpusPacket {
      */
     public abstract void setPadLenBytesSum(int padLenBytesSum);
 
+    /**
+     * @return the duration of this packet in 48 kHz samples
+     */
+    public int getSampleCount() {
+        return getFrameCount() * config.getSamplesPerFrame();
+    }
+
     /**
      * @return the length of binary bytes that are padded at the last of this Opus packet
      */
@@ -135,6 +142,23 @@ public abstract class OpusPacket {
      */
     public abstract byte[] dumpToSelfDelimitingFormat();
 
+    /**
+     * Get the upper bound of the dumped binary size, which is used to pre-size the output buffer: a TOC byte, a
+     * frame count byte, the padding length bytes, two bytes for the length of each frame, the frames and the padding.
+     *
+     * @return the max size of the dumped binary in bytes
+     */
+    protected int getMaxDumpSize() {
+        int size = 2 + 2 * frames.size();
+        for (byte[] frame : frames) {
+            size += frame.length;
+        }
+        if (hasPadding()) {
+            size += getPadLenBytesSum() / 255 + 1 + getPadDataLen();
+        }
+        return size;
+    }
+
     protected int getTocByte() {
         int toc = config.getId() << 3;
         if (channel == Channel.STEREO) {
@@ -0,0 +1,380 @@
+package org.chenliang.oggus.opus;
+
+import java.util.Arrays;
+
+/**
+ * A reusable descriptor of an Opus packet that is stored in a byte array. Unlike {@link OpusPacket}, frames are not
+ * copied when a packet is parsed: the descriptor only records the fields of the packet header, and the offset and
+ * length of each frame in the original array.
+ *
+ * <p>The same descriptor could be used to parse many packets, nothing is allocated in parsing. The descriptor
+ * refers to the array that is parsed last, so the array must not be changed while the descriptor is in use. Call
+ * {@link OpusPacketView#toOpusPacket()} to get an {@link OpusPacket} that owns a copy of the frames.</p>
+ *
+ * <pre>
+ * OpusPacketView view = new OpusPacketView();
+ * for (byte[] data : packets) {
+ *     view.parse(data);
+ *     int sampleCount = view.getSampleCount();
+ * }
+ * </pre>
+ */
+public class OpusPacketView {
+    /**
+     * The max number of frames in an Opus packet, which is 120 ms of 2.5 ms frames.
+     */
+    public static final int MAX_FRAME_COUNT = 48;
+
+    private final int[] frameOffsets = new int[MAX_FRAME_COUNT];
+    private final int[] frameLengths = new int[MAX_FRAME_COUNT];
+    private byte[] data;
+    private int offset;
+    private int length;
+    private int toc;
+    private int frameCount;
+    private boolean isVbr;
+    private boolean hasPadding;
+    private int padLenBytesSum;
+    private int padDataLen;
+    private boolean isSelfDelimiting;
+
+    /**
+     * Parse a standard Opus packet that takes the whole array.
+     *
+     * @param data the binary data that only contains a standard format Opus packet
+     * @return this descriptor
+     * @throws InvalidOpusException if the data is not a valid Opus packet
+     */
+    public OpusPacketView parse(byte[] data) {
+        return parse(data, 0, data.length);
+    }
+
+    /**
+     * Parse a standard Opus packet that takes {@code length} bytes of {@code data} from {@code offset}. In standard
+     * format, the length of the last frame is implied by the packet length.
+     *
+     * @param data   the binary data
+     * @param offset the start offset of the packet
+     * @param length the length of the packet
+     * @return this descriptor
+     * @throws InvalidOpusException if the data is not a valid Opus packet
+     */
+    public OpusPacketView parse(byte[] data, int offset, int length) {
+        return parse(data, offset, length, false);
+    }
+
+    /**
+     * Parse a self-delimiting Opus packet that starts from {@code offset}, and ends within {@code maxLength} bytes.
+     * The length of the packet could be got with {@link OpusPacketView#getLength()}, which is where the next packet
+     * starts in a multistream packet.
+     *
+     * @param data      the binary data
+     * @param offset    the start offset of the packet
+     * @param maxLength the max length of the packet
+     * @return this descriptor
+     * @throws InvalidOpusException if the data is not a valid Opus packet
+     */
+    public OpusPacketView parseSelfDelimiting(byte[] data, int offset, int maxLength) {
+        return parse(data, offset, maxLength, true);
+    }
+
+    private OpusPacketView parse(byte[] data, int offset, int length, boolean isSelfDelimiting) {
+        if (offset < 0 || length < 0 || offset > data.length - length) {
+            throw new IndexOutOfBoundsException("offset: " + offset + ", length: " + length);
+        }
+        int end = offset + length;
+        if (length < 1) {
+            throw corrupted();
+        }
+        this.data = data;
+        this.offset = offset;
+        this.isSelfDelimiting = isSelfDelimiting;
+        this.toc = Byte.toUnsignedInt(data[offset]);
+        this.isVbr = false;
+        this.hasPadding = false;
+        this.padLenBytesSum = 0;
+        this.padDataLen = 0;
+
+        int pos = offset + 1;
+        int code = toc & 0x03;
+        switch (code) {
+            case 0:
+                frameCount = 1;
+                if (isSelfDelimiting) {
+                    pos = readFrameLength(pos, end, 0);
+                } else {
+                    frameLengths[0] = end - pos;
+                }
+                break;
+            case 1:
+                frameCount = 2;
+                if (isSelfDelimiting) {
+                    pos = readFrameLength(pos, end, 0);
+                } else {
+                    frameLengths[0] = (end - pos) / 2;
+                }
+                frameLengths[1] = frameLengths[0];
+                break;
+            case 2:
+                frameCount = 2;
+                pos = readFrameLength(pos, end, 0);
+                if (isSelfDelimiting) {
+                    pos = readFrameLength(pos, end, 1);
+                } else {
+                    frameLengths[1] = end - pos - frameLengths[0];
+                }
+                break;
+            default:
+                pos = readCodeThreeHeader(pos, end);
+                if (isVbr) {
+                    int explicitCount = isSelfDelimiting ? frameCount : frameCount - 1;
+                    for (int i = 0; i < explicitCount; i++) {
+                        pos = readFrameLength(pos, end, i);
+                    }
+                    if (!isSelfDelimiting) {
+                        int lastLength = end - pos - padDataLen;
+                        for (int i = 0; i < frameCount - 1; i++) {
+                            lastLength -= frameLengths[i];
+                        }
+                        frameLengths[frameCount - 1] = lastLength;
+                    }
+                } else {
+                    if (isSelfDelimiting) {
+                        pos = readFrameLength(pos, end, 0);
+                    } else {
+                        frameLengths[0] = (end - pos - padDataLen) / frameCount;
+                    }
+                    Arrays.fill(frameLengths, 1, frameCount, frameLengths[0]);
+                }
+                break;
+        }
+
+        for (int i = 0; i < frameCount; i++) {
+            if (frameLengths[i] < 0) {
+                throw corrupted();
+            }
+            frameOffsets[i] = pos;
+            pos += frameLengths[i];
+        }
+        pos += padDataLen;
+        if (pos > end) {
+            throw corrupted();
+        }
+        this.length = isSelfDelimiting ? pos - offset : length;
+        return this;
+    }
+
+    private int readCodeThreeHeader(int pos, int end) {
+        if (pos >= end) {
+            throw corrupted();
+        }
+        int frameCountByte = Byte.toUnsignedInt(data[pos++]);
+        isVbr = (frameCountByte & 0x80) != 0;
+        hasPadding = (frameCountByte & 0x40) != 0;
+        frameCount = frameCountByte & 0x3F;
+        if (frameCount == 0 || frameCount > MAX_FRAME_COUNT) {
+            throw corrupted();
+        }
+        if (hasPadding) {
+            while (true) {
+                if (pos >= end) {
+                    throw corrupted();
+                }
+                int n = Byte.toUnsignedInt(data[pos++]);
+                padLenBytesSum += n;
+                if (n < 255) {
+                    break;
+                }
+            }
+            padDataLen = (padLenBytesSum / 255) * 254 + padLenBytesSum % 255;
+        }
+        return pos;
+    }
+
+    /**
+     * Read a frame length of 1 or 2 bytes, see
+     * <a href=https://tools.ietf.org/html/rfc6716#section-3.1>RFC6716 Section-3.1</a>.
+     */
+    private int readFrameLength(int pos, int end, int index) {
+        if (pos >= end) {
+            throw corrupted();
+        }
+        int frameLength = Byte.toUnsignedInt(data[pos++]);
+        if (frameLength >= 252) {
+            if (pos >= end) {
+                throw corrupted();
+            }
+            frameLength += Byte.toUnsignedInt(data[pos++]) * 4;
+        }
+        frameLengths[index] = frameLength;
+        return pos;
+    }
+
+    private static InvalidOpusException corrupted() {
+        return new InvalidOpusException("Corrupted opus binary data");
+    }
+
+    public int getToc() {
+        return toc;
+    }
+
+    public int getCode() {
+        return toc & 0x03;
+    }
+
+    public Config getConfig() {
+        return Config.of(toc >> 3);
+    }
+
+    public Channel getChannel() {
+        return (toc & 0x04) == 0 ? Channel.MONO : Channel.STEREO;
+    }
+
+    public int getFrameCount() {
+        return frameCount;
+    }
+
+    /**
+     * @return true if the frames are of variable lengths. It is always false if code is not 3.
+     */
+    public boolean isVbr() {
+        return isVbr;
+    }
+
+    /**
+     * @return true if the packet has padding. It is always false if code is not 3.
+     */
+    public boolean hasPadding() {
+        return hasPadding;
+    }
+
+    /**
+     * @return the sum of bytes that represent the padding length
+     */
+    public int getPadLenBytesSum() {
+        return padLenBytesSum;
+    }
+
+    /**
+     * @return the length of binary bytes that are padded at the last of this Opus packet
+     */
+    public int getPadDataLen() {
+        return padDataLen;
+    }
+
+    /**
+     * @return the duration of this packet in 48 kHz samples
+     */
+    public int getSampleCount() {
+        return frameCount * getConfig().getSamplesPerFrame();
+    }
+
+    /**
+     * @param index the index of frame
+     * @return the offset of the frame in the parsed array
+     */
+    public int getFrameOffset(int index) {
+        checkFrameIndex(index);
+        return frameOffsets[index];
+    }
+
+    /**
+     * @param index the index of frame
+     * @return the length of the frame
+     */
+    public int getFrameLength(int index) {
+        checkFrameIndex(index);
+        return frameLengths[index];
+    }
+
+    /**
+     * @return the parsed array
+     */
+    public byte[] getData() {
+        return data;
+    }
+
+    /**
+     * @return the offset of the packet in the parsed array
+     */
+    public int getOffset() {
+        return offset;
+    }
+
+    /**
+     * @return the length of the packet including the padding
+     */
+    public int getLength() {
+        return length;
+    }
+
+    /**
+     * @return true if the packet is parsed in self-delimiting format
+     */
+    public boolean isSelfDelimiting() {
+        return isSelfDelimiting;
+    }
+
+    /**
+     * Copy the packet in standard format. A self-delimiting packet is converted by removing the length of the last
+     * frame, which is always the last field before the frames, so the data is copied in two ranges without being
+     * re-encoded.
+     *
+     * @return the binary data of the standard format packet
+     */
+    public byte[] toStandardFormat() {
+        if (!isSelfDelimiting) {
+            return Arrays.copyOfRange(data, offset, offset + length);
+        }
+        int lengthFieldEnd = frameOffsets[0];
+        int lengthFieldSize = frameLengths[frameCount - 1] >= 252 ? 2 : 1;
+        int headerSize = lengthFieldEnd - lengthFieldSize - offset;
+        byte[] standardData = new byte[length - lengthFieldSize];
+        System.arraycopy(data, offset, standardData, 0, headerSize);
+        System.arraycopy(data, lengthFieldEnd, standardData, headerSize, offset + length - lengthFieldEnd);
+        return standardData;
+    }
+
+    /**
+     * Copy the frames to an {@link OpusPacket} object.
+     *
+     * @return the OpusPacket
+     */
+    public OpusPacket toOpusPacket() {
+        return copyTo(OpusPackets.newPacketOfToc(toc));
+    }
+
+    /**
+     * Copy the frames to an existing {@link OpusPacket} object of the same code, all of its fields and frames are
+     * replaced. Each frame is copied to a new array.
+     *
+     * @param opusPacket the OpusPacket to copy to
+     * @return the OpusPacket
+     * @throws IllegalArgumentException if the code of {@code opusPacket} is different
+     */
+    public OpusPacket copyTo(OpusPacket opusPacket) {
+        if (opusPacket.getCode() != getCode()) {
+            throw new IllegalArgumentException("Can't copy a code " + getCode() + " packet to a code "
+                    + opusPacket.getCode() + " packet");
+        }
+        opusPacket.setConfig(getConfig());
+        opusPacket.setChannel(getChannel());
+        opusPacket.getFrames().clear();
+        if (getCode() == 3) {
+            opusPacket.setFrameCount(frameCount);
+            opusPacket.setVbr(isVbr);
+            opusPacket.setHasPadding(hasPadding);
+            opusPacket.setPadLenBytesSum(padLenBytesSum);
+        }
+        for (int i = 0; i < frameCount; i++) {
+            opusPacket.addFrame(Arrays.copyOfRange(data, frameOffsets[i], frameOffsets[i] + frameLengths[i]));
+        }
+        return opusPacket;
+    }
+
+    private void checkFrameIndex(int index) {
+        if (index < 0 || index >= frameCount) {
+            throw new IndexOutOfBoundsException("Frame index: " + index);
+        }
+    }
+}
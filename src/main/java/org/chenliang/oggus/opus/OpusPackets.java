@@ -1,7 +1,5 @@
 package org.chenliang.oggus.opus;
 
-import java.io.ByteArrayInputStream;
-import java.io.IOException;
 import java.util.ArrayList;
 import java.util.List;
 
@@ -49,16 +47,15 @@ public class OpusPackets {
      * @return the list {@code OpusPacket} parsed from the binary data
      */
     public static List<OpusPacket> from(byte[] data, int streamCount) {
-        ArrayList<OpusPacket> opusPackets = new ArrayList<>();
-        ByteArrayInputStream in = new ByteArrayInputStream(data);
-        try {
-            for (int i = 0; i < streamCount - 1; i++) {
-                opusPackets.add(OpusPackets.readDelimitedOpusPacket(in));
-            }
-            opusPackets.add(OpusPackets.readStandardOpusPacket(in));
-        } catch (IOException e) {
-            throw new InvalidOpusException("Corrupted opus binary data");
+        ArrayList<OpusPacket> opusPackets = new ArrayList<>(streamCount);
+        OpusPacketView view = new OpusPacketView();
+        int offset = 0;
+        for (int i = 0; i < streamCount - 1; i++) {
+            view.parseSelfDelimiting(data, offset, data.length - offset);
+            opusPackets.add(view.toOpusPacket());
+            offset += view.getLength();
         }
+        opusPackets.add(view.parse(data, offset, data.length - offset).toOpusPacket());
         return opusPackets;
     }
 
@@ -86,119 +83,4 @@ public class OpusPackets {
                 throw new IllegalArgumentException("Invalid Opus packet code: " + code);
         }
     }
-
-    private static OpusPacket readStandardOpusPacket(ByteArrayInputStream in) throws IOException {
-        int toc = in.read();
-        OpusPacket opusPacket = newPacketOfToc(toc);
-        switch (opusPacket.getCode()) {
-            case 0:
-                opusPacket.addFrame(in.readAllBytes());
-                break;
-            case 1:
-                int leftDataLen = in.available();
-                opusPacket.addFrame(in.readNBytes(leftDataLen / 2));
-                opusPacket.addFrame(in.readNBytes(leftDataLen / 2));
-                break;
-            case 2:
-                int frameLen1 = readFrameLen(in);
-                opusPacket.addFrame(in.readNBytes(frameLen1));
-                opusPacket.addFrame(in.readAllBytes());
-                break;
-            case 3:
-                readCode3PacketHeader(in, opusPacket);
-                if (opusPacket.isVbr()) {
-                    int[] frameLens = new int[opusPacket.getFrameCount() - 1];
-                    for (int k = 0; k < opusPacket.getFrameCount() - 1; k++) {
-                        frameLens[k] = readFrameLen(in);
-                    }
-                    for (int k = 0; k < opusPacket.getFrameCount() - 1; k++) {
-                        opusPacket.addFrame(in.readNBytes(frameLens[k]));
-                    }
-                    int lastFrameLen = in.available() - opusPacket.getPadDataLen();
-                    opusPacket.addFrame(in.readNBytes(lastFrameLen));
-                } else {
-                    int frameLen = (in.available() - opusPacket.getPadDataLen()) / opusPacket.getFrameCount();
-                    for (int k = 0; k < opusPacket.getFrameCount(); k++) {
-                        opusPacket.addFrame(in.readNBytes(frameLen));
-                    }
-                }
-                if (opusPacket.hasPadding()) {
-                    in.skip(opusPacket.getPadDataLen());
-                }
-                break;
-        }
-        return opusPacket;
-    }
-
-    private static OpusPacket readDelimitedOpusPacket(ByteArrayInputStream in) throws IOException {
-        int toc = in.read();
-        OpusPacket opusPacket = newPacketOfToc(toc);
-        switch (opusPacket.getCode()) {
-            case 0:
-                int frameLen = readFrameLen(in);
-                opusPacket.addFrame(in.readNBytes(frameLen));
-                break;
-            case 1:
-                frameLen = readFrameLen(in);
-                opusPacket.addFrame(in.readNBytes(frameLen));
-                opusPacket.addFrame(in.readNBytes(frameLen));
-                break;
-            case 2:
-                int frameLen1 = readFrameLen(in);
-                int frameLen2 = readFrameLen(in);
-                opusPacket.addFrame(in.readNBytes(frameLen1));
-                opusPacket.addFrame(in.readNBytes(frameLen2));
-                break;
-            case 3:
-                readCode3PacketHeader(in, opusPacket);
-                if (opusPacket.isVbr()) {
-                    int[] frameLens = new int[opusPacket.getFrameCount()];
-                    for (int k = 0; k < opusPacket.getFrameCount(); k++) {
-                        frameLens[k] = readFrameLen(in);
-                    }
-                    for (int k = 0; k < opusPacket.getFrameCount(); k++) {
-                        opusPacket.addFrame(in.readNBytes(frameLens[k]));
-                    }
-                } else {
-                    frameLen = readFrameLen(in);
-                    for (int k = 0; k < opusPacket.getFrameCount(); k++) {
-                        opusPacket.addFrame(in.readNBytes(frameLen));
-                    }
-                }
-                if (opusPacket.hasPadding()) {
-                    in.skip(opusPacket.getPadDataLen());
-                }
-                break;
-        }
-        return opusPacket;
-    }
-
-    private static void readCode3PacketHeader(ByteArrayInputStream in, OpusPacket opusPacket) {
-        int frameCountByte = in.read();
-        boolean isVbr = (frameCountByte & 0x80) != 0;
-        boolean hasPadding = (frameCountByte & 0x40) != 0;
-        int frameCount = frameCountByte & 0x3F;
-        int paddingLenSum = 0;
-        if (hasPadding) {
-            while (true) {
-                int n = in.read();
-                paddingLenSum += n;
-                if (n < 255) {
-                    break;
-                }
-            }
-        }
-        opusPacket.setFrameCount(frameCount);
-        opusPacket.setVbr(isVbr);
-        opusPacket.setHasPadding(hasPadding);
-        opusPacket.setPadLenBytesSum(paddingLenSum);
-    }
-
-    private static int readFrameLen(ByteArrayInputStream in) {
-        int frameLen = in.read();
-        if (frameLen > 252) {
-            frameLen = in.read() * 4 + frameLen;
-        }
-        return frameLen;
-    }
 }
@@ -0,0 +1,42 @@
+package org.chenliang.oggus.opus;
+
+import org.chenliang.oggus.ogg.PageFlushPolicy;
+
+/**
+ * {@link PageFlushPolicy} presets for {@link OggOpusWriter}. The granule position of Ogg Opus stream is the number of
+ * 48 kHz samples, so the duration of audio in a page is calculated from the frame sizes of Opus packets.
+ */
+public class OpusPageFlushPolicies {
+    private static final int SAMPLES_PER_MILLISECOND = 48;
+
+    private OpusPageFlushPolicies() {
+    }
+
+    /**
+     * @param millis the duration of audio in milliseconds
+     * @return the policy that closes a page after it contains {@code millis} of audio
+     */
+    public static PageFlushPolicy afterMillis(double millis) {
+        return PageFlushPolicy.afterGranules((long) (millis * SAMPLES_PER_MILLISECOND));
+    }
+
+    /**
+     * Close a page after 20 ms of audio, which is the most common frame size. It's suitable for live streaming like
+     * push-to-talk, the end-to-end latency added by page packing is at most one 20 ms packet.
+     *
+     * @return the low latency policy
+     */
+    public static PageFlushPolicy lowLatency() {
+        return afterMillis(20);
+    }
+
+    /**
+     * Close a page after 1 second of audio or when it's full. It reduces the page header overhead to a few bytes per
+     * second, while keeping the seeking granularity of 1 second.
+     *
+     * @return the high efficiency policy
+     */
+    public static PageFlushPolicy highEfficiency() {
+        return afterMillis(1000);
+    }
+}
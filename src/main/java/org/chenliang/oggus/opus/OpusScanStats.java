@@ -0,0 +1,158 @@
+package org.chenliang.oggus.opus;
+
+import java.util.Collections;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * An accumulator of the summaries of many Ogg Opus files. It is not thread safe, each thread could accumulate its own
+ * files, then the accumulators are merged with {@link OpusScanStats#merge(OpusScanStats)}.
+ */
+public class OpusScanStats {
+    private long fileCount;
+    private long failedFileCount;
+    private long totalFileSize;
+    private long totalAudioDataSize;
+    private long totalDurationSamples;
+    private long packetCount;
+    private final long[] configPacketCounts = new long[32];
+    private final Map<Integer, Long> channelCountFiles = new TreeMap<>();
+    private final Map<Integer, Long> channelMappingFamilyFiles = new TreeMap<>();
+    private final Map<String, Long> vendorFiles = new TreeMap<>();
+    private final Map<String, Long> tagFiles = new TreeMap<>();
+
+    /**
+     * Add the summary of a file.
+     *
+     * @param stats the summary of a file
+     */
+    public void add(OpusFileStats stats) {
+        fileCount++;
+        totalFileSize += stats.getFileSize();
+        totalAudioDataSize += stats.getAudioDataSize();
+        totalDurationSamples += stats.getDurationSamples();
+        packetCount += stats.getPacketCount();
+        for (int i = 0; i < configPacketCounts.length; i++) {
+            configPacketCounts[i] += stats.getConfigPacketCount(i);
+        }
+        channelCountFiles.merge(stats.getChannelCount(), 1L, Long::sum);
+        channelMappingFamilyFiles.merge(stats.getIdHeader().getChannelMappingFamily(), 1L, Long::sum);
+        vendorFiles.merge(String.valueOf(stats.getVendor()), 1L, Long::sum);
+        for (String tag : stats.getTags().keySet()) {
+            tagFiles.merge(tag, 1L, Long::sum);
+        }
+    }
+
+    /**
+     * Count a file that could not be read or is not a valid Ogg Opus stream.
+     */
+    public void addFailure() {
+        failedFileCount++;
+    }
+
+    /**
+     * Add all files accumulated by another accumulator.
+     *
+     * @param other the other accumulator
+     * @return this accumulator
+     */
+    public OpusScanStats merge(OpusScanStats other) {
+        fileCount += other.fileCount;
+        failedFileCount += other.failedFileCount;
+        totalFileSize += other.totalFileSize;
+        totalAudioDataSize += other.totalAudioDataSize;
+        totalDurationSamples += other.totalDurationSamples;
+        packetCount += other.packetCount;
+        for (int i = 0; i < configPacketCounts.length; i++) {
+            configPacketCounts[i] += other.configPacketCounts[i];
+        }
+        other.channelCountFiles.forEach((key, count) -> channelCountFiles.merge(key, count, Long::sum));
+        other.channelMappingFamilyFiles.forEach((key, count) -> channelMappingFamilyFiles.merge(key, count, Long::sum));
+        other.vendorFiles.forEach((key, count) -> vendorFiles.merge(key, count, Long::sum));
+        other.tagFiles.forEach((key, count) -> tagFiles.merge(key, count, Long::sum));
+        return this;
+    }
+
+    /**
+     * @return the number of valid files
+     */
+    public long getFileCount() {
+        return fileCount;
+    }
+
+    /**
+     * @return the number of files that could not be read or are not valid Ogg Opus streams
+     */
+    public long getFailedFileCount() {
+        return failedFileCount;
+    }
+
+    public long getTotalFileSize() {
+        return totalFileSize;
+    }
+
+    public long getTotalAudioDataSize() {
+        return totalAudioDataSize;
+    }
+
+    /**
+     * @return the total duration of valid files in 48 kHz samples
+     */
+    public long getTotalDurationSamples() {
+        return totalDurationSamples;
+    }
+
+    /**
+     * @return the total duration of valid files in seconds
+     */
+    public double getTotalDuration() {
+        return totalDurationSamples / 48000.0;
+    }
+
+    /**
+     * @return the average bitrate of audio data in bits per second, weighted by duration
+     */
+    public double getAverageBitrate() {
+        return totalDurationSamples == 0 ? 0 : totalAudioDataSize * 8 * 48000.0 / totalDurationSamples;
+    }
+
+    public long getPacketCount() {
+        return packetCount;
+    }
+
+    /**
+     * @param configId the config id in the TOC byte, from 0 to 31
+     * @return the number of audio data packets of the config in all files
+     */
+    public long getConfigPacketCount(int configId) {
+        return configPacketCounts[configId];
+    }
+
+    /**
+     * @return the number of files of each channel count
+     */
+    public Map<Integer, Long> getChannelCountFiles() {
+        return Collections.unmodifiableMap(channelCountFiles);
+    }
+
+    /**
+     * @return the number of files of each channel mapping family
+     */
+    public Map<Integer, Long> getChannelMappingFamilyFiles() {
+        return Collections.unmodifiableMap(channelMappingFamilyFiles);
+    }
+
+    /**
+     * @return the number of files of each vendor string, the files without vendor string are counted as "null"
+     */
+    public Map<String, Long> getVendorFiles() {
+        return Collections.unmodifiableMap(vendorFiles);
+    }
+
+    /**
+     * @return the number of files that have each tag field
+     */
+    public Map<String, Long> getTagFiles() {
+        return Collections.unmodifiableMap(tagFiles);
+    }
+}
@@ -1,5 +1,14 @@
 package org.chenliang.oggus.opus;
 
+import java.nio.ByteBuffer;
+
+/**
+ * Utilities for Opus packet binary data.
+ *
+ * <p>The inspection methods only read the TOC byte, and the frame count byte of code 3 packets, so they are much
+ * cheaper than parsing a packet with {@link OpusPackets#from(byte[])}. For a multistream packet, all streams have the
+ * same duration, so the first packet is inspected.</p>
+ */
 public class OpusUtil {
 
     public static byte[] frameLengthToBytes(int n) {
@@ -10,4 +19,136 @@ public class OpusUtil {
         int y = (n - x) / 4;
         return new byte[]{(byte) x, (byte) y};
     }
+
+    /**
+     * @param packet the binary data of an Opus packet
+     * @return the config in the TOC byte
+     * @throws InvalidOpusException if the packet is empty
+     */
+    public static Config getConfig(byte[] packet) {
+        return Config.of(getToc(packet, 0, packet.length) >> 3);
+    }
+
+    /**
+     * @param packet the binary data of an Opus packet
+     * @return the channel in the TOC byte
+     * @throws InvalidOpusException if the packet is empty
+     */
+    public static Channel getChannel(byte[] packet) {
+        return (getToc(packet, 0, packet.length) & 0x04) == 0 ? Channel.MONO : Channel.STEREO;
+    }
+
+    /**
+     * @param packet the binary data of an Opus packet
+     * @return the number of frames in the packet
+     * @throws InvalidOpusException if the TOC byte or the frame count byte is missing
+     */
+    public static int getFrameCount(byte[] packet) {
+        return getFrameCount(packet, 0, packet.length);
+    }
+
+    /**
+     * @param data   the binary data
+     * @param offset the start offset of an Opus packet in {@code data}
+     * @param length the length of the Opus packet
+     * @return the number of frames in the packet
+     * @throws InvalidOpusException if the TOC byte or the frame count byte is missing
+     */
+    public static int getFrameCount(byte[] data, int offset, int length) {
+        int toc = getToc(data, offset, length);
+        return getFrameCount(toc, length < 2 ? -1 : data[offset + 1], length);
+    }
+
+    /**
+     * Get the duration of a packet in 48 kHz samples, which is the unit of Ogg Opus granule positions.
+     *
+     * @param packet the binary data of an Opus packet
+     * @return the number of 48 kHz samples
+     * @throws InvalidOpusException if the TOC byte or the frame count byte is missing
+     */
+    public static int getSampleCount(byte[] packet) {
+        return getSampleCount(packet, 0, packet.length);
+    }
+
+    /**
+     * Get the duration of a packet in 48 kHz samples, which is the unit of Ogg Opus granule positions.
+     *
+     * @param data   the binary data
+     * @param offset the start offset of an Opus packet in {@code data}
+     * @param length the length of the Opus packet
+     * @return the number of 48 kHz samples
+     * @throws InvalidOpusException if the TOC byte or the frame count byte is missing
+     */
+    public static int getSampleCount(byte[] data, int offset, int length) {
+        int frameCount = getFrameCount(data, offset, length);
+        return frameCount * Config.of(Byte.toUnsignedInt(data[offset]) >> 3).getSamplesPerFrame();
+    }
+
+    /**
+     * Get the duration of a packet in a buffer in 48 kHz samples, e.g. a data packet of an
+     * {@link org.chenliang.oggus.ogg.OggPageView}. The position of {@code buffer} is not changed.
+     *
+     * @param buffer the buffer
+     * @param offset the absolute offset of an Opus packet in {@code buffer}
+     * @param length the length of the Opus packet
+     * @return the number of 48 kHz samples
+     * @throws InvalidOpusException if the TOC byte or the frame count byte is missing
+     */
+    public static int getSampleCount(ByteBuffer buffer, int offset, int length) {
+        if (length < 1) {
+            throw new InvalidOpusException("Corrupted opus binary data");
+        }
+        int toc = Byte.toUnsignedInt(buffer.get(offset));
+        int frameCount = getFrameCount(toc, length < 2 ? -1 : buffer.get(offset + 1), length);
+        return frameCount * Config.of(toc >> 3).getSamplesPerFrame();
+    }
+
+    /**
+     * Get the duration of each packet in 48 kHz samples.
+     *
+     * @param packets      the binary data of Opus packets
+     * @param sampleCounts the array to store the durations, which must not be shorter than {@code packets}
+     * @return the total duration of all packets in 48 kHz samples
+     * @throws InvalidOpusException if the TOC byte or the frame count byte of a packet is missing
+     */
+    public static long getSampleCounts(byte[][] packets, int[] sampleCounts) {
+        if (sampleCounts.length < packets.length) {
+            throw new IllegalArgumentException("The sample counts array is shorter than the packets array");
+        }
+        long total = 0;
+        for (int i = 0; i < packets.length; i++) {
+            sampleCounts[i] = getSampleCount(packets[i]);
+            total += sampleCounts[i];
+        }
+        return total;
+    }
+
+    private static int getFrameCount(int toc, int frameCountByte, int length) {
+        switch (toc & 0x03) {
+            case 0:
+                return 1;
+            case 1:
+            case 2:
+                return 2;
+            default:
+                if (length < 2) {
+                    throw new InvalidOpusException("Corrupted opus binary data");
+                }
+                int frameCount = frameCountByte & 0x3F;
+                if (frameCount == 0) {
+                    throw new InvalidOpusException("Corrupted opus binary data");
+                }
+                return frameCount;
+        }
+    }
+
+    private static int getToc(byte[] data, int offset, int length) {
+        if (offset < 0 || length < 0 || offset > data.length - length) {
+            throw new IndexOutOfBoundsException("offset: " + offset + ", length: " + length);
+        }
+        if (length < 1) {
+            throw new InvalidOpusException("Corrupted opus binary data");
+        }
+        return Byte.toUnsignedInt(data[offset]);
+    }
 }
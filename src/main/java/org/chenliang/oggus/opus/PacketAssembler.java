@@ -0,0 +1,73 @@
+package org.chenliang.oggus.opus;
+
+import org.chenliang.oggus.ogg.OggPageView;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+/**
+ * Assemble a data packet that spans pages. The parts of the packet are copied from the page views to a growable
+ * buffer, which is reused for the following packets, so each byte is copied once no matter how many pages the packet
+ * spans, and the capacity grows to the largest packet.
+ */
+class PacketAssembler {
+    private static final int INITIAL_CAPACITY = 4096;
+    private byte[] buffer = new byte[0];
+    private int size = 0;
+
+    /**
+     * Append a part of the packet.
+     *
+     * @param view  the page that contains the part
+     * @param index the index of the data packet in the page
+     */
+    void append(OggPageView view, int index) {
+        append(view.getBuffer(), view.getDataPacketOffset(index), view.getDataPacketLength(index));
+    }
+
+    /**
+     * Append a part of the packet, the position of {@code source} is not changed.
+     *
+     * @param source the buffer that contains the part
+     * @param offset the absolute offset of the part in {@code source}
+     * @param length the length of the part
+     */
+    void append(ByteBuffer source, int offset, int length) {
+        if (buffer.length < size + length) {
+            buffer = Arrays.copyOf(buffer, Math.max(Math.max(buffer.length * 2, INITIAL_CAPACITY), size + length));
+        }
+        ByteBuffer duplicate = source.duplicate();
+        duplicate.position(offset);
+        duplicate.get(buffer, size, length);
+        size += length;
+    }
+
+    boolean isEmpty() {
+        return size == 0;
+    }
+
+    int size() {
+        return size;
+    }
+
+    /**
+     * @return a new array of the assembled packet
+     */
+    byte[] toByteArray() {
+        return Arrays.copyOf(buffer, size);
+    }
+
+    /**
+     * Copy the assembled packet to the position of {@code dst}.
+     */
+    void copyTo(ByteBuffer dst) {
+        dst.put(buffer, 0, size);
+    }
+
+    /**
+     * Discard the assembled packet, the buffer is kept for the next packet.
+     */
+    void clear() {
+        size = 0;
+    }
+}
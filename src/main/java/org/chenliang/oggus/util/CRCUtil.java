@@ -1,8 +1,23 @@
 package org.chenliang.oggus.util;
 
+import java.nio.ByteBuffer;
+
+/**
+ * CRC-32 checksum used by Ogg pages. The generator polynomial is {@code 0x04c11db7}, the initial value and the
+ * final XOR value are both 0, and the bits are not reflected.
+ *
+ * <p>{@link CRCUtil#getCRC(byte[])} is the simple byte-at-a-time reference implementation. The {@code update(...)}
+ * methods use the slice-by-8 algorithm, which consumes 8 bytes per iteration with 8 lookup tables, and could be
+ * called incrementally:</p>
+ * <pre>
+ * int crc = CRCUtil.update(0, header, 0, header.length);
+ * crc = CRCUtil.update(crc, body, 0, body.length);
+ * </pre>
+ */
 public class CRCUtil {
     protected static final int CRC_POLYNOMIAL = 0x04c11db7;
     private static final int[] CRC_TABLE = new int[256];
+    private static final int[][] SLICE_TABLES = new int[8][256];
 
     static {
         int crc;
@@ -17,8 +32,22 @@ public class CRCUtil {
             }
             CRC_TABLE[i] = crc;
         }
+
+        System.arraycopy(CRC_TABLE, 0, SLICE_TABLES[0], 0, 256);
+        for (int k = 1; k < 8; k++) {
+            for (int i = 0; i < 256; i++) {
+                int prev = SLICE_TABLES[k - 1][i];
+                SLICE_TABLES[k][i] = (prev << 8) ^ CRC_TABLE[prev >>> 24];
+            }
+        }
     }
 
+    /**
+     * Calculate the checksum of the whole byte array, one byte at a time.
+     *
+     * @param data the binary data
+     * @return the checksum
+     */
     public static int getCRC(byte[] data) {
         int crc = 0;
         int a, b;
@@ -31,4 +60,87 @@ public class CRCUtil {
 
         return crc;
     }
+
+    /**
+     * Update the checksum with {@code length} bytes of {@code data} starting from {@code offset}.
+     *
+     * @param crc    the checksum of the preceding data, 0 for the start of data
+     * @param data   the binary data
+     * @param offset the start offset in {@code data}
+     * @param length the number of bytes to update with
+     * @return the updated checksum
+     */
+    public static int update(int crc, byte[] data, int offset, int length) {
+        if (offset < 0 || length < 0 || offset > data.length - length) {
+            throw new IndexOutOfBoundsException("offset: " + offset + ", length: " + length);
+        }
+        int[] t0 = SLICE_TABLES[0], t1 = SLICE_TABLES[1], t2 = SLICE_TABLES[2], t3 = SLICE_TABLES[3];
+        int[] t4 = SLICE_TABLES[4], t5 = SLICE_TABLES[5], t6 = SLICE_TABLES[6], t7 = SLICE_TABLES[7];
+
+        int i = offset;
+        int end = offset + length;
+        for (int sliceEnd = end - 7; i < sliceEnd; i += 8) {
+            crc ^= (data[i] & 0xff) << 24 | (data[i + 1] & 0xff) << 16 | (data[i + 2] & 0xff) << 8
+                    | (data[i + 3] & 0xff);
+            crc = t7[crc >>> 24] ^ t6[(crc >>> 16) & 0xff] ^ t5[(crc >>> 8) & 0xff] ^ t4[crc & 0xff]
+                    ^ t3[data[i + 4] & 0xff] ^ t2[data[i + 5] & 0xff] ^ t1[data[i + 6] & 0xff]
+                    ^ t0[data[i + 7] & 0xff];
+        }
+        for (; i < end; i++) {
+            crc = (crc << 8) ^ t0[(crc >>> 24) ^ (data[i] & 0xff)];
+        }
+        return crc;
+    }
+
+    /**
+     * Update the checksum with the remaining bytes of {@code buffer}. Like
+     * {@link java.util.zip.CRC32#update(ByteBuffer)}, the position of the buffer is moved to its limit.
+     *
+     * @param crc    the checksum of the preceding data, 0 for the start of data
+     * @param buffer the binary data
+     * @return the updated checksum
+     */
+    public static int update(int crc, ByteBuffer buffer) {
+        int pos = buffer.position();
+        int limit = buffer.limit();
+        crc = update(crc, buffer, pos, limit - pos);
+        buffer.position(limit);
+        return crc;
+    }
+
+    /**
+     * Update the checksum with {@code length} bytes of {@code buffer} starting from the absolute index
+     * {@code offset}. The position of the buffer is not changed.
+     *
+     * @param crc    the checksum of the preceding data, 0 for the start of data
+     * @param buffer the binary data
+     * @param offset the absolute start index in {@code buffer}
+     * @param length the number of bytes to update with
+     * @return the updated checksum
+     */
+    public static int update(int crc, ByteBuffer buffer, int offset, int length) {
+        if (offset < 0 || length < 0 || offset > buffer.limit() - length) {
+            throw new IndexOutOfBoundsException("offset: " + offset + ", length: " + length);
+        }
+        if (buffer.hasArray()) {
+            return update(crc, buffer.array(), buffer.arrayOffset() + offset, length);
+        }
+
+        int[] t0 = SLICE_TABLES[0], t1 = SLICE_TABLES[1], t2 = SLICE_TABLES[2], t3 = SLICE_TABLES[3];
+        int[] t4 = SLICE_TABLES[4], t5 = SLICE_TABLES[5], t6 = SLICE_TABLES[6], t7 = SLICE_TABLES[7];
+
+        int i = offset;
+        int end = offset + length;
+        for (int sliceEnd = end - 7; i < sliceEnd; i += 8) {
+            crc ^= (buffer.get(i) & 0xff) << 24 | (buffer.get(i + 1) & 0xff) << 16
+                    | (buffer.get(i + 2) & 0xff) << 8 | (buffer.get(i + 3) & 0xff);
+            crc = t7[crc >>> 24] ^ t6[(crc >>> 16) & 0xff] ^ t5[(crc >>> 8) & 0xff] ^ t4[crc & 0xff]
+                    ^ t3[buffer.get(i + 4) & 0xff] ^ t2[buffer.get(i + 5) & 0xff]
+                    ^ t1[buffer.get(i + 6) & 0xff] ^ t0[buffer.get(i + 7) & 0xff];
+        }
+        for (; i < end; i++) {
+            crc = (crc << 8) ^ t0[(crc >>> 24) ^ (buffer.get(i) & 0xff)];
+        }
+        return crc;
+    }
 }
@@ -1,8 +1,21 @@
 package org.chenliang.oggus;
 
+import org.chenliang.oggus.ogg.PageFlushPolicy;
+import org.chenliang.oggus.opus.AudioDataPacket;
+import org.chenliang.oggus.opus.Channel;
+import org.chenliang.oggus.opus.CommentHeader;
+import org.chenliang.oggus.opus.Config;
+import org.chenliang.oggus.opus.IdHeader;
+import org.chenliang.oggus.opus.OggOpusWriter;
 import org.chenliang.oggus.opus.OpusPacket;
+import org.chenliang.oggus.opus.OpusPackets;
 
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Path;
 import java.util.Arrays;
+import java.util.function.IntUnaryOperator;
 
 import static org.junit.jupiter.api.Assertions.assertArrayEquals;
 import static org.junit.jupiter.api.Assertions.assertEquals;
@@ -14,6 +27,59 @@ public class TestUtil {
         return frameData1;
     }
 
+    public static IdHeader createIdHeader(int channelCount, int preSkip) {
+        IdHeader idHeader = IdHeader.emptyHeader();
+        idHeader.setMajorVersion(0);
+        idHeader.setMinorVersion(1);
+        idHeader.setChannelCount(channelCount);
+        idHeader.setPreSkip(preSkip);
+        idHeader.setInputSampleRate(48000);
+        idHeader.setOutputGain(0);
+        idHeader.setChannelMappingFamily(0);
+        return idHeader;
+    }
+
+    public static CommentHeader createCommentHeader() {
+        CommentHeader commentHeader = CommentHeader.emptyHeader();
+        commentHeader.setVendor("test vendor");
+        commentHeader.addTag("TITLE", "Test title");
+        return commentHeader;
+    }
+
+    /**
+     * Create an audio data packet of one code 0 Opus packet.
+     */
+    public static AudioDataPacket createAudioDataPacket(Config config, int frameLength, byte content) {
+        OpusPacket opusPacket = OpusPackets.newPacket(config, Channel.STEREO, 0);
+        opusPacket.addFrame(createBinary(frameLength, content));
+        AudioDataPacket audioDataPacket = AudioDataPacket.empty();
+        audioDataPacket.addOpusPacket(opusPacket);
+        return audioDataPacket;
+    }
+
+    /**
+     * Write an Ogg Opus stream of {@code packetCount} audio data packets, 3 packets per page. The frame of the i-th
+     * packet is {@code frameLength.applyAsInt(i)} bytes of i.
+     */
+    public static AudioDataPacket[] writeOggOpusStream(OutputStream outputStream, IdHeader idHeader, Config config,
+                                                       int packetCount, IntUnaryOperator frameLength)
+            throws IOException {
+        AudioDataPacket[] audioDataPackets = new AudioDataPacket[packetCount];
+        try (OggOpusWriter writer = OggOpusWriter.to(outputStream, idHeader, createCommentHeader())) {
+            writer.setFlushPolicy(PageFlushPolicy.afterPackets(3));
+            for (int i = 0; i < packetCount; i++) {
+                audioDataPackets[i] = createAudioDataPacket(config, frameLength.applyAsInt(i), (byte) i);
+                writer.writeAudioPacket(audioDataPackets[i]);
+            }
+        }
+        return audioDataPackets;
+    }
+
+    public static AudioDataPacket[] writeOggOpusFile(Path file, IdHeader idHeader, Config config, int packetCount,
+                                                     IntUnaryOperator frameLength) throws IOException {
+        return writeOggOpusStream(new FileOutputStream(file.toFile()), idHeader, config, packetCount, frameLength);
+    }
+
     public static void assertOpusPacketEqual(OpusPacket expected, OpusPacket actual) {
         assertEquals(expected.getCode(), actual.getCode());
         assertEquals(expected.getConfig(), actual.getConfig());
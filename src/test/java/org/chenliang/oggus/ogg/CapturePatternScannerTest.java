@@ -0,0 +1,53 @@
+package org.chenliang.oggus.ogg;
+
+import org.chenliang.oggus.TestUtil;
+import org.junit.jupiter.api.Test;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class CapturePatternScannerTest {
+    @Test
+    void should_find_capture_pattern_at_every_position() {
+        for (int length = 4; length < 40; length++) {
+            for (int index = 0; index + 4 <= length; index++) {
+                byte[] data = TestUtil.createBinary(length, (byte) 'O');
+                System.arraycopy(OggPage.CAPTURE_PATTERN, 0, data, index, 4);
+                data[index] = 'O';
+
+                assertEquals(index, CapturePatternScanner.indexOf(wrap(data), 0, length));
+            }
+        }
+    }
+
+    @Test
+    void should_not_find_capture_pattern_that_is_out_of_range() {
+        byte[] data = TestUtil.createBinary(32, (byte) 0);
+        System.arraycopy(OggPage.CAPTURE_PATTERN, 0, data, 20, 4);
+
+        assertEquals(-1, CapturePatternScanner.indexOf(wrap(data), 21, 32));
+        assertEquals(-1, CapturePatternScanner.indexOf(wrap(data), 0, 23));
+        assertEquals(20, CapturePatternScanner.indexOf(wrap(data), 20, 24));
+    }
+
+    @Test
+    void should_find_first_capture_pattern_after_partial_matches() {
+        byte[] data = "OOgOgOggOggOgSOggOggS".getBytes();
+
+        assertEquals(17, CapturePatternScanner.indexOf(wrap(data), 0, data.length));
+    }
+
+    @Test
+    void should_not_find_capture_pattern_in_binary_without_it() {
+        byte[] data = "OgOgOgOgOggSx".getBytes();
+        data[11] = 's';
+
+        assertEquals(-1, CapturePatternScanner.indexOf(wrap(data), 0, data.length));
+    }
+
+    private ByteBuffer wrap(byte[] data) {
+        return ByteBuffer.wrap(data).order(ByteOrder.LITTLE_ENDIAN);
+    }
+}
@@ -0,0 +1,107 @@
+package org.chenliang.oggus.ogg;
+
+import com.google.common.primitives.Bytes;
+import org.chenliang.oggus.TestUtil;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class OggDemuxerTest {
+    @Test
+    void should_dispatch_pages_of_multiplexed_and_chained_streams_in_one_pass() throws IOException {
+        byte[] data = Bytes.concat(
+                createOggPage(1, 0, 0x02), createOggPage(2, 0, 0x02),
+                createOggPage(1, 1, 0), createOggPage(2, 1, 0), createOggPage(1, 2, 0x04), createOggPage(2, 2, 0x04),
+                createOggPage(1, 0, 0x02), createOggPage(3, 0, 0x02),
+                createOggPage(3, 1, 0), createOggPage(1, 1, 0), createOggPage(3, 2, 0));
+        List<String> events = new ArrayList<>();
+        OggDemuxer demuxer = OggDemuxer.create(new OggDemuxer.StreamListener() {
+            @Override
+            public OggPageParser.PageListener onStreamStart(OggPageView bosPage, int linkIndex) {
+                long serialNum = bosPage.getSerialNum();
+                events.add("start " + linkIndex + ":" + serialNum);
+                if (serialNum == 3) {
+                    return null;
+                }
+                return view -> events.add("page " + view.getSerialNum() + "/" + view.getSeqNum());
+            }
+
+            @Override
+            public void onStreamEnd(long serialNum, boolean isCompleted) {
+                events.add("end " + serialNum + " " + isCompleted);
+            }
+        });
+
+        demuxer.demux(OggStream.from(new ByteArrayInputStream(data)));
+
+        assertEquals(Arrays.asList(
+                "start 0:1", "page 1/0", "start 0:2", "page 2/0",
+                "page 1/1", "page 2/1", "page 1/2", "end 1 true", "page 2/2", "end 2 true",
+                "start 1:1", "page 1/0", "start 1:3",
+                "page 1/1", "end 1 false"), events);
+        assertEquals(1, demuxer.getLinkIndex());
+        assertEquals(3, demuxer.getIgnoredPageCount());
+    }
+
+    @Test
+    void should_end_streams_of_previous_link_without_eos_page() {
+        byte[] data = Bytes.concat(createOggPage(1, 0, 0x02), createOggPage(1, 1, 0), createOggPage(2, 0, 0x02));
+        List<String> events = new ArrayList<>();
+        OggDemuxer demuxer = OggDemuxer.create(new OggDemuxer.StreamListener() {
+            @Override
+            public OggPageParser.PageListener onStreamStart(OggPageView bosPage, int linkIndex) {
+                return view -> {
+                };
+            }
+
+            @Override
+            public void onStreamEnd(long serialNum, boolean isCompleted) {
+                events.add("end " + serialNum + " " + isCompleted);
+            }
+        });
+
+        OggPageParser.create(demuxer).feed(ByteBuffer.wrap(data));
+
+        assertEquals(Arrays.asList("end 1 false"), events);
+        assertEquals(1, demuxer.getLinkIndex());
+    }
+
+    @Test
+    void should_ignore_pages_of_stream_without_bos_page() {
+        OggDemuxer demuxer = OggDemuxer.create((bosPage, linkIndex) -> view -> {
+            throw new IllegalStateException();
+        });
+
+        OggPageParser.create(demuxer).feed(ByteBuffer.wrap(createOggPage(1, 1, 0)));
+
+        assertEquals(1, demuxer.getIgnoredPageCount());
+        assertEquals(-1, demuxer.getLinkIndex());
+    }
+
+    @Test
+    void should_throw_exception_if_bos_page_is_repeated_in_link() {
+        byte[] data = Bytes.concat(createOggPage(1, 0, 0x02), createOggPage(1, 0, 0x02));
+        OggDemuxer demuxer = OggDemuxer.create((bosPage, linkIndex) -> view -> {
+        });
+
+        assertThrows(InvalidOggException.class, () -> OggPageParser.create(demuxer).feed(ByteBuffer.wrap(data)));
+    }
+
+    private byte[] createOggPage(long serialNum, int seqNum, int flag) {
+        OggPage oggPage = OggPage.empty();
+        oggPage.setFlag(flag);
+        oggPage.setSerialNum(serialNum);
+        oggPage.setSeqNum(seqNum);
+        oggPage.setGranulePosition(seqNum * 100);
+        oggPage.addDataPacket(TestUtil.createBinary(100, (byte) seqNum));
+        return oggPage.dump();
+    }
+}
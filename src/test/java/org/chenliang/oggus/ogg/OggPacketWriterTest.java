@@ -0,0 +1,185 @@
+package org.chenliang.oggus.ogg;
+
+import com.google.common.primitives.Longs;
+import org.chenliang.oggus.TestUtil;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.channels.Channels;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class OggPacketWriterTest {
+    @Test
+    void should_pack_packets_into_one_page() throws IOException {
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        OggPacketWriter writer = OggPacketWriter.to(Channels.newChannel(outputStream), 100);
+
+        writer.writePacket(TestUtil.createBinary(10, (byte) 1), 20);
+        writer.writePacket(TestUtil.createBinary(255, (byte) 2), 40);
+        writer.finish();
+
+        OggStream oggStream = OggStream.from(new ByteArrayInputStream(outputStream.toByteArray()));
+        OggPage oggPage = oggStream.readPage();
+        assertTrue(oggPage.isBOS());
+        assertTrue(oggPage.isEOS());
+        assertFalse(oggPage.isContinued());
+        assertEquals(100, oggPage.getSerialNum());
+        assertEquals(0, oggPage.getSeqNum());
+        assertEquals(40, oggPage.getGranulePosition());
+        assertArrayEquals(new byte[]{10, (byte) 255, 0}, oggPage.getLaceValues());
+        assertNull(oggStream.readPage());
+    }
+
+    @Test
+    void should_continue_packet_that_does_not_fit_in_page() throws IOException {
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        OggPacketWriter writer = OggPacketWriter.to(Channels.newChannel(outputStream), 1);
+
+        byte[] packet1 = TestUtil.createBinary(100, (byte) 1);
+        byte[] packet2 = TestUtil.createBinary(255 * 300, (byte) 2);
+        writer.writePacket(packet1, 10);
+        writer.writePacket(packet2, 20);
+        writer.finish();
+
+        OggStream oggStream = OggStream.from(new ByteArrayInputStream(outputStream.toByteArray()));
+        OggPage oggPage1 = oggStream.readPage();
+        assertEquals(255, oggPage1.getSegCount());
+        assertEquals(10, oggPage1.getGranulePosition());
+        assertFalse(oggPage1.isCompleted());
+        assertArrayEquals(packet1, oggPage1.getDataPackets().get(0));
+        assertEquals(255 * 254, oggPage1.getDataPackets().get(1).length);
+
+        OggPage oggPage2 = oggStream.readPage();
+        assertTrue(oggPage2.isContinued());
+        assertTrue(oggPage2.isEOS());
+        assertEquals(1, oggPage2.getSeqNum());
+        assertEquals(20, oggPage2.getGranulePosition());
+        assertEquals(47, oggPage2.getSegCount());
+        assertEquals(255 * 46, oggPage2.getDataPackets().get(0).length);
+    }
+
+    @Test
+    void should_set_granule_position_to_minus_one_if_no_packet_ends_in_page() throws IOException {
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        OggPacketWriter writer = OggPacketWriter.to(Channels.newChannel(outputStream), 1);
+
+        writer.writePacket(TestUtil.createBinary(255 * 255 * 2, (byte) 1), 10);
+        writer.finish();
+
+        OggStream oggStream = OggStream.from(new ByteArrayInputStream(outputStream.toByteArray()));
+        assertEquals(-1, oggStream.readPage().getGranulePosition());
+        assertEquals(-1, oggStream.readPage().getGranulePosition());
+        OggPage lastPage = oggStream.readPage();
+        assertTrue(lastPage.isContinued());
+        assertArrayEquals(new byte[]{0}, lastPage.getLaceValues());
+        assertEquals(10, lastPage.getGranulePosition());
+    }
+
+    @Test
+    void should_write_empty_eos_page_if_current_page_is_flushed() throws IOException {
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        OggPacketWriter writer = OggPacketWriter.to(Channels.newChannel(outputStream), 1);
+
+        writer.writePacket(TestUtil.createBinary(10, (byte) 1), 10);
+        writer.flush();
+        writer.flush();
+        writer.finish();
+
+        OggStream oggStream = OggStream.from(new ByteArrayInputStream(outputStream.toByteArray()));
+        assertFalse(oggStream.readPage().isEOS());
+        OggPage lastPage = oggStream.readPage();
+        assertTrue(lastPage.isEOS());
+        assertEquals(0, lastPage.getSegCount());
+        assertEquals(10, lastPage.getGranulePosition());
+        assertNull(oggStream.readPage());
+    }
+
+    @Test
+    void should_not_write_packet_after_finished() throws IOException {
+        OggPacketWriter writer = OggPacketWriter.to(Channels.newChannel(new ByteArrayOutputStream()), 1);
+        writer.finish();
+
+        assertThrows(IllegalStateException.class, () -> writer.writePacket(new byte[1], 1));
+    }
+
+    @Test
+    void should_close_page_after_given_packet_count() throws IOException {
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        OggPacketWriter writer = OggPacketWriter.to(Channels.newChannel(outputStream), 1);
+        writer.setFlushPolicy(PageFlushPolicy.afterPackets(2));
+
+        for (int i = 1; i <= 5; i++) {
+            writer.writePacket(TestUtil.createBinary(10, (byte) i), i);
+        }
+        writer.finish();
+
+        assertArrayEquals(new long[]{2, 4, 5}, readGranulePositions(outputStream));
+    }
+
+    @Test
+    void should_close_page_after_given_bytes() throws IOException {
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        OggPacketWriter writer = OggPacketWriter.to(Channels.newChannel(outputStream), 1);
+        writer.setFlushPolicy(PageFlushPolicy.afterBytes(25));
+
+        for (int i = 1; i <= 5; i++) {
+            writer.writePacket(TestUtil.createBinary(10, (byte) i), i);
+        }
+        writer.finish();
+
+        assertArrayEquals(new long[]{3, 5}, readGranulePositions(outputStream));
+    }
+
+    @Test
+    void should_close_page_after_given_granule_duration() throws IOException {
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        OggPacketWriter writer = OggPacketWriter.to(Channels.newChannel(outputStream), 1);
+        writer.setFlushPolicy(PageFlushPolicy.anyOf(PageFlushPolicy.afterGranules(30),
+                PageFlushPolicy.afterPackets(100)));
+
+        for (int i = 1; i <= 10; i++) {
+            writer.writePacket(TestUtil.createBinary(10, (byte) i), i * 10);
+        }
+        writer.finish();
+
+        assertArrayEquals(new long[]{30, 60, 90, 100}, readGranulePositions(outputStream));
+    }
+
+    @Test
+    void should_write_last_packet_to_eos_page_regardless_of_flush_policy() throws IOException {
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        OggPacketWriter writer = OggPacketWriter.to(Channels.newChannel(outputStream), 1);
+        writer.setFlushPolicy(PageFlushPolicy.afterPackets(2));
+
+        writer.writePacket(TestUtil.createBinary(10, (byte) 1), 10);
+        writer.finish(TestUtil.createBinary(10, (byte) 2), 15);
+
+        OggStream oggStream = OggStream.from(new ByteArrayInputStream(outputStream.toByteArray()));
+        OggPage oggPage = oggStream.readPage();
+        assertTrue(oggPage.isEOS());
+        assertEquals(2, oggPage.getDataPackets().size());
+        assertEquals(15, oggPage.getGranulePosition());
+        assertNull(oggStream.readPage());
+        assertThrows(IllegalStateException.class, () -> writer.writePacket(new byte[1], 20));
+    }
+
+    private long[] readGranulePositions(ByteArrayOutputStream outputStream) throws IOException {
+        OggStream oggStream = OggStream.from(new ByteArrayInputStream(outputStream.toByteArray()));
+        List<Long> granulePositions = new ArrayList<>();
+        OggPage oggPage;
+        while ((oggPage = oggStream.readPage()) != null) {
+            granulePositions.add(oggPage.getGranulePosition());
+        }
+        return Longs.toArray(granulePositions);
+    }
+}
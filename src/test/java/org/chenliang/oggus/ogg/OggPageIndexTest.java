@@ -0,0 +1,212 @@
+package org.chenliang.oggus.ogg;
+
+import com.google.common.primitives.Bytes;
+import org.chenliang.oggus.TestUtil;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class OggPageIndexTest {
+    @Test
+    void should_build_index_of_pages_with_granule_position() throws IOException {
+        OggPage page1 = createOggPage(1, 960);
+        OggPage page2 = createOggPage(2, 960);
+        OggPage page3 = createOggPage(1, -1);
+        OggPage page4 = createOggPage(1, 1920);
+        byte[] data = Bytes.concat(page1.dump(), page2.dump(), page3.dump(), page4.dump());
+
+        OggPageIndex index = OggPageIndex.build(OggStream.from(new ByteArrayInputStream(data)), 1);
+
+        assertEquals(2, index.size());
+        assertEquals(0, index.getOffset(0));
+        assertEquals(960, index.getGranulePosition(0));
+        assertEquals(page1.getEncodedSize() + page2.getEncodedSize() + page3.getEncodedSize(), index.getOffset(1));
+        assertEquals(1920, index.getGranulePosition(1));
+        assertEquals(page4.getCheckSum(), index.getCheckSum(1));
+    }
+
+    @Test
+    void should_build_index_of_all_pages_and_get_index_of_logical_stream() throws IOException {
+        OggPage page1 = createOggPage(1, 0);
+        OggPage page2 = createOggPage(0xFFFFFFFFL, 0);
+        OggPage page3 = createOggPage(1, 960);
+        OggPage page4 = createOggPage(1, -1);
+        OggPage page5 = createOggPage(1, 1920);
+        byte[] data = Bytes.concat(page1.dump(), page2.dump(), page3.dump(), page4.dump(), page5.dump());
+
+        OggPageIndex index = OggPageIndex.build(OggStream.from(new ByteArrayInputStream(data)));
+        assertEquals(5, index.size());
+        assertEquals(0xFFFFFFFFL, index.getSerialNum(1));
+        assertEquals(-1, index.getGranulePosition(3));
+        assertEquals(page2.getCheckSum(), index.getCheckSum(1));
+
+        OggPageIndex subIndex = index.subIndex(1, 1);
+        assertEquals(2, subIndex.size());
+        assertEquals(index.getOffset(2), subIndex.getOffset(0));
+        assertEquals(index.getOffset(4), subIndex.getOffset(1));
+        assertEquals(page5.getCheckSum(), subIndex.getCheckSum(1));
+    }
+
+    @Test
+    void should_build_index_of_file_in_parallel(@TempDir Path tempDir) throws IOException {
+        Path file = tempDir.resolve("test.ogg");
+        byte[][] pagesData = new byte[300][];
+        for (int i = 0; i < 300; i++) {
+            pagesData[i] = createOggPage(i % 3, i * 960).dump();
+        }
+        Files.write(file, Bytes.concat(pagesData));
+
+        OggPageIndex index = OggPageIndex.build(OggStream.from(file.toString()));
+        OggPageIndex parallelIndex = OggPageIndex.buildParallel(file);
+
+        assertEquals(300, parallelIndex.size());
+        for (int i = 0; i < 300; i++) {
+            assertEquals(index.getOffset(i), parallelIndex.getOffset(i));
+            assertEquals(index.getGranulePosition(i), parallelIndex.getGranulePosition(i));
+            assertEquals(index.getSerialNum(i), parallelIndex.getSerialNum(i));
+            assertEquals(index.getCheckSum(i), parallelIndex.getCheckSum(i));
+        }
+    }
+
+    @Test
+    void should_save_and_load_sidecar_file(@TempDir Path tempDir) throws IOException {
+        Path file = tempDir.resolve("test.ogg");
+        Files.write(file, Bytes.concat(createOggPage(1, 960).dump(), createOggPage(2, 960).dump()));
+        OggPageIndex index = OggPageIndex.loadOrBuildSidecar(file.toString());
+        assertTrue(Files.exists(tempDir.resolve("test.ogg.idx")));
+
+        OggPageIndex loadedIndex = OggPageIndex.loadSidecar(file.toString());
+
+        assertEquals(2, loadedIndex.size());
+        for (int i = 0; i < 2; i++) {
+            assertEquals(index.getOffset(i), loadedIndex.getOffset(i));
+            assertEquals(index.getGranulePosition(i), loadedIndex.getGranulePosition(i));
+            assertEquals(index.getSerialNum(i), loadedIndex.getSerialNum(i));
+            assertEquals(index.getCheckSum(i), loadedIndex.getCheckSum(i));
+        }
+        assertEquals(1, loadedIndex.floorIndex(960));
+    }
+
+    @Test
+    void should_get_index_of_logical_stream_from_loaded_sidecar_file(@TempDir Path tempDir) throws IOException {
+        Path file = tempDir.resolve("test.ogg");
+        byte[][] pagesData = new byte[30][];
+        for (int i = 0; i < 30; i++) {
+            pagesData[i] = createOggPage(i % 3 == 0 ? 0xFFFFFFFFL : i % 3, i % 5 == 4 ? -1 : i * 960).dump();
+        }
+        Files.write(file, Bytes.concat(pagesData));
+        OggPageIndex index = OggPageIndex.build(OggStream.from(file.toString()));
+        index.saveSidecar(file.toString());
+
+        OggPageIndex loadedIndex = OggPageIndex.loadSidecar(file.toString());
+
+        assertEquals(30, loadedIndex.size());
+        for (long serialNum : new long[]{0, 1, 2, 0xFFFFFFFFL}) {
+            for (long fromOffset : new long[]{0, 1, index.getOffset(15), index.getOffset(29) + 1}) {
+                OggPageIndex expected = index.subIndex(serialNum, fromOffset);
+                OggPageIndex actual = loadedIndex.subIndex(serialNum, fromOffset);
+                assertEquals(expected.size(), actual.size());
+                for (int i = 0; i < expected.size(); i++) {
+                    assertEquals(expected.getOffset(i), actual.getOffset(i));
+                    assertEquals(expected.getGranulePosition(i), actual.getGranulePosition(i));
+                    assertEquals(expected.getSerialNum(i), actual.getSerialNum(i));
+                    assertEquals(expected.getCheckSum(i), actual.getCheckSum(i));
+                }
+            }
+        }
+        OggPageIndex subIndex = loadedIndex.subIndex(2, 0);
+        assertEquals(8, subIndex.size());
+        assertEquals(3, subIndex.floorIndex(11 * 960));
+    }
+
+    @Test
+    void should_get_index_of_chained_link_that_reuses_serial_number(@TempDir Path tempDir) throws IOException {
+        Path file = tempDir.resolve("test.ogg");
+        byte[][] pagesData = new byte[7][];
+        long[] granulePositions = {0, 960, 1920, 0, 960, 1920, 2880};
+        for (int i = 0; i < 7; i++) {
+            OggPage oggPage = createOggPage(1, granulePositions[i]);
+            if (granulePositions[i] == 0) {
+                oggPage.setBOS();
+            }
+            pagesData[i] = oggPage.dump();
+        }
+        Files.write(file, Bytes.concat(pagesData));
+        OggPageIndex index = OggPageIndex.build(OggStream.from(file.toString()));
+        index.saveSidecar(file.toString());
+        long secondLinkOffset = index.getOffset(4);
+
+        for (OggPageIndex oggPageIndex : new OggPageIndex[]{index, OggPageIndex.loadSidecar(file.toString())}) {
+            OggPageIndex firstLink = oggPageIndex.subIndex(1, 1);
+            assertEquals(2, firstLink.size());
+            assertEquals(index.getOffset(2), firstLink.getOffset(firstLink.floorIndex(2000)));
+
+            OggPageIndex secondLink = oggPageIndex.subIndex(1, secondLinkOffset);
+            assertEquals(3, secondLink.size());
+            assertEquals(secondLinkOffset, secondLink.getOffset(secondLink.floorIndex(1000)));
+            assertEquals(index.getOffset(5), secondLink.getOffset(secondLink.floorIndex(2000)));
+        }
+    }
+
+    @Test
+    void should_not_load_sidecar_file_that_does_not_exist_or_is_stale(@TempDir Path tempDir) throws IOException {
+        Path file = tempDir.resolve("test.ogg");
+        Files.write(file, createOggPage(1, 960).dump());
+        assertNull(OggPageIndex.loadSidecar(file.toString()));
+
+        OggPageIndex.loadOrBuildSidecar(file.toString());
+        Files.write(file, Bytes.concat(createOggPage(1, 960).dump(), createOggPage(1, 1920).dump()));
+        assertNull(OggPageIndex.loadSidecar(file.toString()));
+        assertEquals(2, OggPageIndex.loadOrBuildSidecar(file.toString()).size());
+
+        Files.setLastModifiedTime(file, FileTime.fromMillis(0));
+        assertNull(OggPageIndex.loadSidecar(file.toString()));
+
+        Files.write(tempDir.resolve("test.ogg.idx"), new byte[10]);
+        assertNull(OggPageIndex.loadSidecar(file.toString()));
+    }
+
+    @Test
+    void should_find_last_page_not_after_granule_position() {
+        OggPageIndex.Builder builder = new OggPageIndex.Builder();
+        for (int i = 0; i < 100; i++) {
+            builder.add(i * 1000L, (i + 1) * 960L, 1, 0);
+        }
+        OggPageIndex index = builder.build();
+
+        assertEquals(-1, index.floorIndex(959));
+        assertEquals(0, index.floorIndex(960));
+        assertEquals(0, index.floorIndex(1919));
+        assertEquals(49, index.floorIndex(50 * 960));
+        assertEquals(99, index.floorIndex(Long.MAX_VALUE));
+        assertEquals(-1, new OggPageIndex.Builder().build().floorIndex(0));
+    }
+
+    @Test
+    void should_throw_exception_if_page_index_is_out_of_range() {
+        OggPageIndex.Builder builder = new OggPageIndex.Builder();
+        builder.add(0, 960, 1, 0);
+        OggPageIndex index = builder.build();
+
+        assertThrows(IndexOutOfBoundsException.class, () -> index.getOffset(1));
+        assertThrows(IndexOutOfBoundsException.class, () -> index.getGranulePosition(-1));
+    }
+
+    private OggPage createOggPage(long serialNum, long granulePosition) {
+        OggPage oggPage = OggPage.empty();
+        oggPage.setSerialNum(serialNum);
+        oggPage.setGranulePosition(granulePosition);
+        oggPage.addDataPacket(TestUtil.createBinary(100, (byte) 1));
+        return oggPage;
+    }
+}
@@ -0,0 +1,184 @@
+package org.chenliang.oggus.ogg;
+
+import com.google.common.primitives.Bytes;
+import org.chenliang.oggus.TestUtil;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class OggPageParserTest {
+    @Test
+    void should_parse_pages_fed_in_chunks_of_any_size() throws IOException {
+        OggPage embeddedPage = createOggPage(1, 1000);
+        OggPage outerPage = createOggPage(3, 0);
+        outerPage.addDataPacket(Bytes.concat(new byte[10000], embeddedPage.dump(), new byte[10000]));
+        OggPage largePage = createOggPage(2, 0);
+        largePage.addPartialDataPacket(new byte[255 * 255]);
+        byte[] data = Bytes.concat(createOggPage(1, 100).dump(), "OgOg".getBytes(), outerPage.dump(),
+                largePage.dump(), "OggOgOg".getBytes(), createOggPage(2, 300).dump(), "Og".getBytes());
+        List<OggPage> expectedPages = new ArrayList<>();
+        OggStream oggStream = OggStream.from(new ByteArrayInputStream(data));
+        OggPage oggPage;
+        while ((oggPage = oggStream.readPage()) != null) {
+            expectedPages.add(oggPage);
+        }
+
+        Random random = new Random(1);
+        for (int maxChunkSize : new int[]{1, 5, 300, 70000, data.length}) {
+            List<OggPage> pages = new ArrayList<>();
+            OggPageParser parser = OggPageParser.create(view -> pages.add(view.toOggPage()));
+            int maxPendingByteCount = 0;
+            for (int offset = 0; offset < data.length; ) {
+                int length = Math.min(1 + random.nextInt(maxChunkSize), data.length - offset);
+                ByteBuffer chunk = ByteBuffer.wrap(data, offset, length);
+                parser.feed(chunk);
+                assertFalse(chunk.hasRemaining());
+                maxPendingByteCount = Math.max(maxPendingByteCount, parser.getPendingByteCount());
+                offset += length;
+            }
+
+            assertEquals(expectedPages.size(), pages.size());
+            for (int i = 0; i < pages.size(); i++) {
+                assertOggPageEquals(expectedPages.get(i), pages.get(i));
+            }
+            assertTrue(maxPendingByteCount < OggPage.MAX_PAGE_SIZE);
+            assertEquals(2, parser.getPendingByteCount());
+            assertEquals(data.length - 2, parser.getPosition());
+            assertEquals(oggStream.getSkippedByteCount(), parser.getSkippedByteCount() + 2);
+        }
+    }
+
+    @Test
+    void should_keep_incomplete_page_until_it_is_completed() {
+        OggPage expectedPage = createOggPage(1, 1000);
+        byte[] data = expectedPage.dump();
+        List<OggPage> pages = new ArrayList<>();
+        OggPageParser parser = OggPageParser.create(view -> pages.add(view.toOggPage()));
+
+        parser.feed(ByteBuffer.wrap(data, 0, 500));
+        assertTrue(pages.isEmpty());
+        assertEquals(500, parser.getPendingByteCount());
+        assertEquals(-1, parser.getLastPageOffset());
+
+        parser.feed(ByteBuffer.wrap(data, 500, data.length - 500));
+        assertEquals(1, pages.size());
+        assertOggPageEquals(expectedPage, pages.get(0));
+        assertEquals(0, parser.getPendingByteCount());
+        assertEquals(0, parser.getLastPageOffset());
+    }
+
+    @Test
+    void should_skip_carry_over_bytes_that_could_not_start_capture_pattern() {
+        OggPage expectedPage = createOggPage(1, 1000);
+        List<OggPage> pages = new ArrayList<>();
+        OggPageParser parser = OggPageParser.create(view -> pages.add(view.toOggPage()));
+
+        parser.feed(ByteBuffer.wrap("xxOgg".getBytes()));
+        assertEquals(3, parser.getPendingByteCount());
+        assertEquals(2, parser.getSkippedByteCount());
+        parser.feed(ByteBuffer.wrap("x".getBytes()));
+        assertEquals(1, parser.getPendingByteCount());
+        assertEquals(5, parser.getSkippedByteCount());
+
+        parser.feed(ByteBuffer.wrap("OgOg".getBytes()));
+        assertEquals(3, parser.getPendingByteCount());
+        assertEquals(7, parser.getSkippedByteCount());
+        parser.feed(ByteBuffer.wrap(Bytes.concat(new byte[100000], expectedPage.dump())));
+        assertEquals(1, pages.size());
+        assertOggPageEquals(expectedPage, pages.get(0));
+        assertEquals(0, parser.getPendingByteCount());
+        assertEquals(10 + 100000, parser.getSkippedByteCount());
+
+        // A capture pattern that starts in the carry-over data
+        byte[] data = expectedPage.dump();
+        parser.feed(ByteBuffer.wrap(data, 0, 2));
+        parser.feed(ByteBuffer.wrap(data, 2, data.length - 2));
+        assertEquals(2, pages.size());
+        assertEquals(10 + 100000, parser.getSkippedByteCount());
+    }
+
+    @Test
+    void should_drop_page_with_mismatched_checksum() {
+        byte[] data = createCorruptedStream();
+        List<OggPage> pages = new ArrayList<>();
+        OggPageParser parser = OggPageParser.create(view -> pages.add(view.toOggPage()));
+        parser.setCheckSumPolicy(CheckSumPolicy.DROP);
+
+        for (int i = 0; i < data.length; i++) {
+            parser.feed(ByteBuffer.wrap(data, i, 1));
+        }
+
+        assertEquals(2, pages.size());
+        assertEquals(1, pages.get(0).getSeqNum());
+        assertEquals(3, pages.get(1).getSeqNum());
+        assertEquals(1, parser.getCheckSumErrorCount());
+    }
+
+    @Test
+    void should_move_position_to_end_of_consumed_bytes_if_exception_is_thrown() {
+        OggPage page1 = createOggPage(1, 100);
+        OggPage page2 = createOggPage(1, 200);
+        byte[] data = Bytes.concat(page1.dump(), page2.dump());
+        List<OggPage> pages = new ArrayList<>();
+        OggPageParser parser = OggPageParser.create(view -> {
+            pages.add(view.toOggPage());
+            if (pages.size() == 1) {
+                throw new IllegalStateException();
+            }
+        });
+        ByteBuffer chunk = ByteBuffer.wrap(data);
+
+        assertThrows(IllegalStateException.class, () -> parser.feed(chunk));
+        assertEquals(page1.dump().length, chunk.position());
+
+        parser.feed(chunk);
+        assertFalse(chunk.hasRemaining());
+        assertEquals(2, pages.size());
+        assertOggPageEquals(page2, pages.get(1));
+    }
+
+    private byte[] createCorruptedStream() {
+        byte[][] pagesData = new byte[3][];
+        for (int i = 0; i < 3; i++) {
+            OggPage oggPage = createOggPage(1, 1000);
+            oggPage.setSeqNum(i + 1);
+            pagesData[i] = oggPage.dump();
+        }
+        pagesData[1][100]++;
+        return Bytes.concat(pagesData);
+    }
+
+    private OggPage createOggPage(long serialNum, int packetLength) {
+        OggPage oggPage = OggPage.empty();
+        oggPage.setGranulePosition(packetLength);
+        oggPage.setSerialNum(serialNum);
+        oggPage.setSeqNum(1);
+        if (packetLength > 0) {
+            oggPage.addDataPacket(TestUtil.createBinary(packetLength, (byte) 1));
+        }
+        return oggPage;
+    }
+
+    private void assertOggPageEquals(OggPage expected, OggPage actual) {
+        assertEquals(expected.isContinued(), actual.isContinued());
+        assertEquals(expected.isBOS(), actual.isBOS());
+        assertEquals(expected.isEOS(), actual.isEOS());
+        assertEquals(expected.getGranulePosition(), actual.getGranulePosition());
+        assertEquals(expected.getSerialNum(), actual.getSerialNum());
+        assertEquals(expected.getSeqNum(), actual.getSeqNum());
+        assertEquals(expected.getCheckSum(), actual.getCheckSum());
+        assertArrayEquals(expected.getLaceValues(), actual.getLaceValues());
+        assertArrayEquals(expected.getDataPackets().toArray(), actual.getDataPackets().toArray());
+    }
+}
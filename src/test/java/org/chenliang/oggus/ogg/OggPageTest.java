@@ -4,6 +4,14 @@ import com.google.common.primitives.Bytes;
 import org.chenliang.oggus.TestUtil;
 import org.junit.jupiter.api.Test;
 
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.BufferOverflowException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.Channels;
+import java.util.Arrays;
+
 import static org.junit.jupiter.api.Assertions.assertArrayEquals;
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertFalse;
@@ -58,6 +66,8 @@ class OggPageTest {
     @Test
     void should_correctly_return_is_completed_status() {
         OggPage oggPage = OggPage.empty();
+        assertTrue(oggPage.isCompleted());
+
         oggPage.addDataPacket(TestUtil.createBinary(256, (byte) 1));
 
         assertTrue(oggPage.isCompleted());
@@ -109,6 +119,29 @@ class OggPageTest {
         assertArrayEquals(new byte[]{(byte) 255, 1, (byte) 255, 0}, oggPage.getLaceValues());
     }
 
+    @Test
+    void should_gen_lace_values_of_full_page() {
+        OggPage oggPage = OggPage.empty();
+        for (int i = 0; i < 127; i++) {
+            oggPage.addDataPacket(TestUtil.createBinary(300, (byte) i));
+        }
+        oggPage.addPartialDataPacket(TestUtil.createBinary(255, (byte) 127));
+
+        assertEquals(OggPage.MAX_SEG_COUNT, oggPage.getSegCount());
+        byte[] laceValues = oggPage.getLaceValues();
+        assertEquals(OggPage.MAX_SEG_COUNT, laceValues.length);
+        assertEquals((byte) 255, laceValues[252]);
+        assertEquals(45, laceValues[253]);
+        assertEquals((byte) 255, laceValues[254]);
+        assertEquals(128, oggPage.getDataPackets().size());
+        assertArrayEquals(TestUtil.createBinary(300, (byte) 126), oggPage.getDataPackets().get(126));
+
+        oggPage.clear();
+        assertEquals(0, oggPage.getSegCount());
+        assertEquals(0, oggPage.getLaceValues().length);
+        assertTrue(oggPage.getDataPackets().isEmpty());
+    }
+
     @Test
     void should_add_partial_data_packet() {
         OggPage oggPage = OggPage.empty();
@@ -142,4 +175,79 @@ class OggPageTest {
         int checkSum = oggPage.getCheckSum();
         assertEquals(222, checkSum);
     }
-}
\ No newline at end of file
+
+    @Test
+    void should_get_encoded_size() {
+        OggPage oggPage = createOggPage();
+
+        assertEquals(741, oggPage.getEncodedSize());
+        assertEquals(oggPage.dump().length, oggPage.getEncodedSize());
+    }
+
+    @Test
+    void should_write_ogg_page_to_byte_buffer() {
+        byte[] expectedBytes = createOggPage().dump();
+        OggPage oggPage = createOggPage();
+        ByteBuffer buffer = ByteBuffer.allocate(1000).order(ByteOrder.BIG_ENDIAN);
+        buffer.position(10);
+
+        oggPage.writeTo(buffer);
+
+        assertEquals(10 + expectedBytes.length, buffer.position());
+        assertEquals(ByteOrder.BIG_ENDIAN, buffer.order());
+        assertArrayEquals(expectedBytes, Arrays.copyOfRange(buffer.array(), 10, buffer.position()));
+        assertEquals(0x9783362e, oggPage.getCheckSum());
+    }
+
+    @Test
+    void should_write_ogg_page_to_direct_byte_buffer() {
+        byte[] expectedBytes = createOggPage().dump();
+        ByteBuffer buffer = ByteBuffer.allocateDirect(expectedBytes.length);
+
+        createOggPage().writeTo(buffer);
+
+        buffer.flip();
+        byte[] actualBytes = new byte[buffer.remaining()];
+        buffer.get(actualBytes);
+        assertArrayEquals(expectedBytes, actualBytes);
+    }
+
+    @Test
+    void should_throw_exception_when_buffer_is_too_small() {
+        OggPage oggPage = createOggPage();
+        ByteBuffer buffer = ByteBuffer.allocate(740);
+
+        assertThrows(BufferOverflowException.class, () -> oggPage.writeTo(buffer));
+        assertEquals(0, buffer.position());
+    }
+
+    @Test
+    void should_write_ogg_page_to_channel() throws IOException {
+        byte[] expectedBytes = createOggPage().dump();
+        OggPage oggPage = createOggPage();
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+
+        oggPage.writeTo(Channels.newChannel(outputStream));
+
+        assertArrayEquals(expectedBytes, outputStream.toByteArray());
+        assertEquals(0x9783362e, oggPage.getCheckSum());
+    }
+
+    @Test
+    void should_calculate_same_checksum_without_dumping() {
+        OggPage oggPage = createOggPage();
+
+        assertEquals(0x9783362e, oggPage.getCheckSum());
+    }
+
+    private OggPage createOggPage() {
+        OggPage oggPage = OggPage.empty();
+        oggPage.setFlag(0x01);
+        oggPage.setGranulePosition(257);
+        oggPage.setSerialNum(0xffffffff);
+        oggPage.setSeqNum(1025);
+        oggPage.addDataPacket(TestUtil.createBinary(456, (byte) 1));
+        oggPage.addPartialDataPacket(TestUtil.createBinary(255, (byte) 2));
+        return oggPage;
+    }
+}
@@ -0,0 +1,107 @@
+package org.chenliang.oggus.ogg;
+
+import com.google.common.primitives.Bytes;
+import org.chenliang.oggus.TestUtil;
+import org.junit.jupiter.api.Test;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class OggPageViewTest {
+    @Test
+    void should_decode_header_fields_from_buffer() {
+        OggPage oggPage = createOggPage();
+        OggPageView view = OggPageView.wrap(ByteBuffer.wrap(oggPage.dump()));
+
+        assertEquals(0, view.getVersion());
+        assertTrue(view.isContinued());
+        assertTrue(view.isEOS());
+        assertFalse(view.isBOS());
+        assertEquals(257, view.getGranulePosition());
+        assertEquals(0xffffffffL, view.getSerialNum());
+        assertEquals(1025, view.getSeqNum());
+        assertEquals(oggPage.getCheckSum(), view.getCheckSum());
+        assertEquals(3, view.getSegCount());
+        assertEquals(201, view.getLaceValue(1));
+        assertEquals(30, view.getHeaderSize());
+        assertEquals(711, view.getBodySize());
+        assertEquals(741, view.getPageSize());
+        assertFalse(view.isCompleted());
+    }
+
+    @Test
+    void should_return_data_packets_as_slices_of_buffer() {
+        OggPage oggPage = createOggPage();
+        byte[] data = Bytes.concat(new byte[]{1, 2, 3}, oggPage.dump());
+        ByteBuffer buffer = ByteBuffer.wrap(data);
+        buffer.position(3);
+
+        OggPageView view = OggPageView.wrap(buffer);
+
+        assertEquals(3, buffer.position());
+        assertEquals(2, view.getDataPacketCount());
+        assertEquals(33, view.getDataPacketOffset(0));
+        assertEquals(456, view.getDataPacketLength(0));
+        assertEquals(255, view.getDataPacketLength(1));
+        ByteBuffer packet = view.getDataPacket(1);
+        assertEquals(255, packet.remaining());
+        assertTrue(packet.hasArray());
+        assertEquals(data, packet.array());
+        assertArrayEquals(oggPage.getDataPackets().get(1), view.copyDataPacket(1));
+    }
+
+    @Test
+    void should_copy_view_to_ogg_page() {
+        OggPage oggPage = createOggPage();
+        OggPage copiedPage = OggPageView.wrap(ByteBuffer.wrap(oggPage.dump())).toOggPage();
+
+        assertArrayEquals(oggPage.dump(), copiedPage.dump());
+        assertFalse(copiedPage.isCompleted());
+    }
+
+    @Test
+    void should_view_page_without_segments() {
+        OggPage oggPage = OggPage.empty();
+        OggPageView view = OggPageView.wrap(ByteBuffer.wrap(oggPage.dump()));
+
+        assertEquals(0, view.getDataPacketCount());
+        assertTrue(view.isCompleted());
+        assertEquals(OggPage.HEADER_SIZE, view.getPageSize());
+    }
+
+    @Test
+    void should_throw_exception_if_page_is_not_completed_in_buffer() {
+        byte[] data = createOggPage().dump();
+        ByteBuffer buffer = ByteBuffer.wrap(Arrays.copyOf(data, data.length - 1));
+
+        InvalidOggException exception = assertThrows(InvalidOggException.class, () -> OggPageView.wrap(buffer));
+
+        assertEquals("Ogg page is not completed in buffer", exception.getMessage());
+    }
+
+    @Test
+    void should_throw_exception_if_buffer_does_not_start_with_capture_pattern() {
+        ByteBuffer buffer = ByteBuffer.wrap(TestUtil.createBinary(100, (byte) 'O'));
+
+        InvalidOggException exception = assertThrows(InvalidOggException.class, () -> OggPageView.wrap(buffer));
+
+        assertEquals("No Ogg page at buffer position: 0", exception.getMessage());
+    }
+
+    private OggPage createOggPage() {
+        OggPage oggPage = OggPage.empty();
+        oggPage.setFlag(0x05);
+        oggPage.setGranulePosition(257);
+        oggPage.setSerialNum(0xffffffffL);
+        oggPage.setSeqNum(1025);
+        oggPage.addDataPacket(TestUtil.createBinary(456, (byte) 1));
+        oggPage.addPartialDataPacket(TestUtil.createBinary(255, (byte) 2));
+        return oggPage;
+    }
+}
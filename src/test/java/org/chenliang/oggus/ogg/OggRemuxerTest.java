@@ -0,0 +1,207 @@
+package org.chenliang.oggus.ogg;
+
+import com.google.common.primitives.Bytes;
+import org.chenliang.oggus.TestUtil;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.channels.Channels;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class OggRemuxerTest {
+    @Test
+    void should_merge_small_pages_and_keep_header_pages() throws IOException {
+        ByteArrayOutputStream inputStream = new ByteArrayOutputStream();
+        OggPacketWriter writer = OggPacketWriter.to(Channels.newChannel(inputStream), 7);
+        writer.writePacket(TestUtil.createBinary(19, (byte) 1), 0);
+        writer.flush();
+        writer.writePacket(TestUtil.createBinary(30, (byte) 2), 0);
+        writer.flush();
+        writer.setFlushPolicy(PageFlushPolicy.afterPackets(1));
+        List<byte[]> packets = new ArrayList<>();
+        for (int i = 1; i <= 25; i++) {
+            byte[] packet = TestUtil.createBinary(60, (byte) i);
+            packets.add(packet);
+            writer.writePacket(packet, i * 960);
+        }
+        writer.finish();
+
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        long pageCount = OggRemuxer.create(PageFlushPolicy.afterPackets(10))
+                .remux(OggStream.from(new ByteArrayInputStream(inputStream.toByteArray())),
+                        Channels.newChannel(outputStream));
+
+        assertEquals(5, pageCount);
+        List<OggPage> pages = readPages(outputStream.toByteArray());
+        assertEquals(5, pages.size());
+        assertTrue(pages.get(0).isBOS());
+        assertEquals(1, pages.get(1).getDataPackets().size());
+        assertArrayEquals(new long[]{0, 0, 10 * 960, 20 * 960, 25 * 960}, getGranulePositions(pages));
+        for (int i = 0; i < pages.size(); i++) {
+            assertEquals(i, pages.get(i).getSeqNum());
+            assertEquals(7, pages.get(i).getSerialNum());
+        }
+        assertTrue(pages.get(4).isEOS());
+        List<byte[]> audioPackets = new ArrayList<>();
+        for (int i = 2; i < pages.size(); i++) {
+            audioPackets.addAll(pages.get(i).getDataPackets());
+        }
+        assertArrayEquals(packets.toArray(), audioPackets.toArray());
+    }
+
+    @Test
+    void should_keep_packets_that_span_pages() throws IOException {
+        ByteArrayOutputStream inputStream = new ByteArrayOutputStream();
+        OggPacketWriter writer = OggPacketWriter.to(Channels.newChannel(inputStream), 1);
+        writer.setFlushPolicy(PageFlushPolicy.afterPackets(1));
+        byte[][] packets = {TestUtil.createBinary(100, (byte) 1), TestUtil.createBinary(255 * 300, (byte) 2),
+                TestUtil.createBinary(100, (byte) 3), TestUtil.createBinary(100, (byte) 4)};
+        for (int i = 0; i < packets.length; i++) {
+            writer.writePacket(packets[i], (i + 1) * 10);
+        }
+        writer.finish();
+
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        OggRemuxer.create(PageFlushPolicy.manual()).remux(
+                OggStream.from(new ByteArrayInputStream(inputStream.toByteArray())), Channels.newChannel(outputStream));
+
+        List<OggPage> pages = readPages(outputStream.toByteArray());
+        // The first part of the big packet fills a page, so it could not be merged with the pages around it
+        assertEquals(3, pages.size());
+        assertEquals(10, pages.get(0).getGranulePosition());
+        assertFalse(pages.get(1).isCompleted());
+        assertEquals(-1, pages.get(1).getGranulePosition());
+        assertTrue(pages.get(2).isContinued());
+        assertTrue(pages.get(2).isEOS());
+        assertEquals(40, pages.get(2).getGranulePosition());
+
+        OggStream oggStream = OggStream.from(new ByteArrayInputStream(outputStream.toByteArray()));
+        List<byte[]> actualPackets = new ArrayList<>();
+        byte[] partialPacket = new byte[0];
+        OggPage oggPage;
+        while ((oggPage = oggStream.readPage()) != null) {
+            List<byte[]> dataPackets = oggPage.getDataPackets();
+            for (int i = 0; i < dataPackets.size(); i++) {
+                partialPacket = Bytes.concat(partialPacket, dataPackets.get(i));
+                if (i < dataPackets.size() - 1 || oggPage.isCompleted()) {
+                    actualPackets.add(partialPacket);
+                    partialPacket = new byte[0];
+                }
+            }
+        }
+        assertArrayEquals(packets, actualPackets.toArray());
+    }
+
+    @Test
+    void should_remux_multiplexed_streams_and_keep_sequence_number_gaps() throws IOException {
+        byte[] data = Bytes.concat(
+                createOggPage(1, 0, 0x02, 0), createOggPage(2, 0, 0x02, 0),
+                createOggPage(1, 1, 0, 10), createOggPage(2, 1, 0, 10), createOggPage(1, 2, 0, 20),
+                createOggPage(2, 2, 0, 20), createOggPage(1, 5, 0, 50), createOggPage(1, 6, 0x04, 60),
+                createOggPage(2, 3, 0x04, 30));
+
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        OggRemuxer.create(PageFlushPolicy.manual()).remux(OggStream.from(new ByteArrayInputStream(data)),
+                Channels.newChannel(outputStream));
+
+        List<String> pages = new ArrayList<>();
+        for (OggPage oggPage : readPages(outputStream.toByteArray())) {
+            pages.add(oggPage.getSerialNum() + "/" + oggPage.getSeqNum() + "/" + oggPage.getGranulePosition()
+                    + "/" + oggPage.getDataPackets().size());
+        }
+        // The merged page of stream 2 is written before the page of stream 1 that starts after it
+        assertEquals(Arrays.asList("1/0/0/1", "2/0/0/1", "1/1/20/2", "2/1/20/2", "1/4/60/2", "2/2/30/1"), pages);
+    }
+
+    @Test
+    void should_not_merge_unfinished_packet_with_page_that_is_not_continued() throws IOException {
+        OggPage unfinishedPage = OggPage.empty();
+        unfinishedPage.setSerialNum(1);
+        unfinishedPage.setSeqNum(1);
+        unfinishedPage.setGranulePosition(-1);
+        unfinishedPage.addPartialDataPacket(TestUtil.createBinary(255, (byte) 1));
+        byte[] data = Bytes.concat(createOggPage(1, 0, 0x02, 0), unfinishedPage.dump(), createOggPage(1, 2, 0x04, 10));
+
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        OggRemuxer.create(PageFlushPolicy.manual()).remux(OggStream.from(new ByteArrayInputStream(data)),
+                Channels.newChannel(outputStream));
+
+        List<OggPage> pages = readPages(outputStream.toByteArray());
+        assertEquals(3, pages.size());
+        assertFalse(pages.get(1).isCompleted());
+        assertEquals(-1, pages.get(1).getGranulePosition());
+        assertFalse(pages.get(2).isContinued());
+        assertArrayEquals(new byte[][]{TestUtil.createBinary(10, (byte) 2)}, pages.get(2).getDataPackets().toArray());
+    }
+
+    @Test
+    void should_measure_first_page_duration_from_first_granule_position() throws IOException {
+        List<byte[]> pagesData = new ArrayList<>();
+        pagesData.add(createOggPage(1, 0, 0x02, 0));
+        pagesData.add(createOggPage(1, 1, 0, 0));
+        for (int i = 1; i <= 10; i++) {
+            pagesData.add(createOggPage(1, i + 1, i == 10 ? 0x04 : 0, 1000000 + i * 960));
+        }
+
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        OggRemuxer.create(PageFlushPolicy.afterGranules(5 * 960)).remux(
+                OggStream.from(new ByteArrayInputStream(Bytes.concat(pagesData.toArray(new byte[0][])))),
+                Channels.newChannel(outputStream));
+
+        List<OggPage> pages = readPages(outputStream.toByteArray());
+        assertArrayEquals(new long[]{0, 0, 1000000 + 5 * 960, 1000000 + 10 * 960}, getGranulePositions(pages));
+        assertEquals(5, pages.get(2).getDataPackets().size());
+    }
+
+    @Test
+    void should_drop_pages_with_mismatched_checksum() throws IOException {
+        byte[] corruptedPage = createOggPage(1, 2, 0, 20);
+        corruptedPage[corruptedPage.length - 1]++;
+        byte[] data = Bytes.concat(createOggPage(1, 0, 0x02, 0), createOggPage(1, 1, 0, 10), corruptedPage,
+                createOggPage(1, 3, 0x04, 30));
+        OggStream input = OggStream.from(new ByteArrayInputStream(data));
+
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        OggRemuxer.create(PageFlushPolicy.manual()).remux(input, Channels.newChannel(outputStream));
+
+        List<OggPage> pages = readPages(outputStream.toByteArray());
+        assertArrayEquals(new long[]{0, 10, 30}, getGranulePositions(pages));
+        assertEquals(3, pages.get(2).getSeqNum());
+        assertEquals(CheckSumPolicy.SKIP, input.getCheckSumPolicy());
+    }
+
+    private byte[] createOggPage(long serialNum, long seqNum, int flag, long granulePosition) {
+        OggPage oggPage = OggPage.empty();
+        oggPage.setSerialNum(serialNum);
+        oggPage.setSeqNum(seqNum);
+        oggPage.setFlag(flag);
+        oggPage.setGranulePosition(granulePosition);
+        oggPage.addDataPacket(TestUtil.createBinary(10, (byte) seqNum));
+        return oggPage.dump();
+    }
+
+    private List<OggPage> readPages(byte[] data) throws IOException {
+        OggStream oggStream = OggStream.from(new ByteArrayInputStream(data));
+        oggStream.setCheckSumPolicy(CheckSumPolicy.THROW);
+        List<OggPage> pages = new ArrayList<>();
+        OggPageView view;
+        while ((view = oggStream.readPageView()) != null) {
+            assertTrue(view.isCheckSumValid());
+            pages.add(view.toOggPage());
+        }
+        return pages;
+    }
+
+    private long[] getGranulePositions(List<OggPage> pages) {
+        return pages.stream().mapToLong(OggPage::getGranulePosition).toArray();
+    }
+}
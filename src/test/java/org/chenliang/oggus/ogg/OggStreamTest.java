@@ -4,14 +4,30 @@ import com.google.common.primitives.Bytes;
 import org.chenliang.oggus.TestUtil;
 import org.junit.jupiter.api.Disabled;
 import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
 
 import java.io.ByteArrayInputStream;
 import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Pipe;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 import static org.junit.jupiter.api.Assertions.assertArrayEquals;
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
 import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 
 class OggStreamTest {
     @Test
@@ -34,6 +50,18 @@ class OggStreamTest {
         assertNull(oggStream.readPage());
     }
 
+    @Test
+    void should_throw_exception_if_channel_is_non_blocking() throws IOException {
+        Pipe pipe = Pipe.open();
+        try {
+            pipe.source().configureBlocking(false);
+            assertThrows(IllegalArgumentException.class, () -> OggStream.from(pipe.source()));
+        } finally {
+            pipe.source().close();
+            pipe.sink().close();
+        }
+    }
+
     @Test
     void should_not_read_ogg_page_from_input_stream_with_only_invalid_data() throws IOException {
         byte[] buf = new byte[10];
@@ -68,6 +96,89 @@ class OggStreamTest {
         assertOggPageEquals(expectedPage2, oggStream.readPage());
     }
 
+    @Test
+    void should_report_skipped_bytes() throws IOException {
+        OggPage expectedPage = createOggPage();
+        byte[] invalidData = TestUtil.createBinary(1000, (byte) 'O');
+        byte[] data = Bytes.concat(invalidData, expectedPage.dump(), invalidData);
+        OggStream oggStream = OggStream.from(new ByteArrayInputStream(data));
+
+        assertOggPageEquals(expectedPage, oggStream.readPage());
+        assertEquals(1000, oggStream.getSkippedByteCount());
+        assertNull(oggStream.readPage());
+        assertEquals(2000, oggStream.getSkippedByteCount());
+    }
+
+    @Test
+    void should_skip_capture_pattern_that_is_not_a_valid_page_when_resynchronizing() throws IOException {
+        OggPage expectedPage = createOggPage();
+        byte[] fakePageData = Bytes.concat("OggS".getBytes(), TestUtil.createBinary(30, (byte) 1));
+        byte[] corruptedPageData = expectedPage.dump();
+        corruptedPageData[100] = 0;
+        byte[] data = Bytes.concat("x".getBytes(), fakePageData, corruptedPageData, expectedPage.dump());
+        OggStream oggStream = OggStream.from(new ByteArrayInputStream(data));
+
+        assertOggPageEquals(expectedPage, oggStream.readPage());
+        assertEquals(1 + fakePageData.length + corruptedPageData.length, oggStream.getSkippedByteCount());
+        assertNull(oggStream.readPage());
+    }
+
+    @Test
+    void should_resynchronize_after_megabytes_of_invalid_data() throws IOException {
+        OggPage expectedPage = createOggPage();
+        byte[] invalidData = new byte[4 * 1024 * 1024];
+        new Random(1).nextBytes(invalidData);
+        byte[] data = Bytes.concat(invalidData, expectedPage.dump());
+        OggStream oggStream = OggStream.from(new ByteArrayInputStream(data));
+
+        assertOggPageEquals(expectedPage, oggStream.readPage());
+        assertEquals(invalidData.length, oggStream.getSkippedByteCount());
+    }
+
+    @Test
+    void should_not_verify_checksum_of_pages_in_sync_by_default() throws IOException {
+        OggStream oggStream = OggStream.from(new ByteArrayInputStream(createCorruptedStream()));
+
+        assertEquals(CheckSumPolicy.SKIP, oggStream.getCheckSumPolicy());
+        assertEquals(1, oggStream.readPage().getSeqNum());
+        assertEquals(2, oggStream.readPage().getSeqNum());
+        assertEquals(3, oggStream.readPage().getSeqNum());
+        assertEquals(0, oggStream.getCheckSumErrorCount());
+    }
+
+    @Test
+    void should_drop_page_with_mismatched_checksum() throws IOException {
+        OggStream oggStream = OggStream.from(new ByteArrayInputStream(createCorruptedStream()));
+        oggStream.setCheckSumPolicy(CheckSumPolicy.DROP);
+
+        assertEquals(1, oggStream.readPage().getSeqNum());
+        assertEquals(3, oggStream.readPage().getSeqNum());
+        assertNull(oggStream.readPage());
+        assertEquals(1, oggStream.getCheckSumErrorCount());
+    }
+
+    @Test
+    void should_throw_exception_if_checksum_mismatches() throws IOException {
+        OggStream oggStream = OggStream.from(new ByteArrayInputStream(createCorruptedStream()));
+        oggStream.setCheckSumPolicy(CheckSumPolicy.THROW);
+
+        assertEquals(1, oggStream.readPage().getSeqNum());
+        InvalidOggException exception = assertThrows(InvalidOggException.class, oggStream::readPage);
+        assertEquals("Ogg page checksum mismatch, seqNum: 2", exception.getMessage());
+        assertEquals(3, oggStream.readPage().getSeqNum());
+    }
+
+    @Test
+    void should_count_page_with_mismatched_checksum() throws IOException {
+        OggStream oggStream = OggStream.from(new ByteArrayInputStream(createCorruptedStream()));
+        oggStream.setCheckSumPolicy(CheckSumPolicy.COUNT);
+
+        assertEquals(1, oggStream.readPage().getSeqNum());
+        assertEquals(2, oggStream.readPage().getSeqNum());
+        assertEquals(3, oggStream.readPage().getSeqNum());
+        assertEquals(1, oggStream.getCheckSumErrorCount());
+    }
+
     @Test
     void should_read_page_with_given_serial_num() throws IOException {
         int serialNum = 100;
@@ -85,7 +196,30 @@ class OggStreamTest {
     }
 
     @Test
-    @Disabled
+    void should_read_pages_into_given_page_object() throws IOException {
+        OggPage expectedPage1 = createOggPage();
+        expectedPage1.setBOS();
+        OggPage expectedPage2 = OggPage.empty();
+        expectedPage2.setSerialNum(1);
+        expectedPage2.setSeqNum(2);
+        expectedPage2.addDataPacket(TestUtil.createBinary(10, (byte) 3));
+        OggPage expectedPage3 = createOggPage();
+        expectedPage3.setSerialNum(100);
+        byte[] data = Bytes.concat(expectedPage1.dump(), expectedPage2.dump(), expectedPage3.dump());
+        OggStream oggStream = OggStream.from(new ByteArrayInputStream(data));
+        OggPage oggPage = OggPage.empty();
+
+        assertSame(oggPage, oggStream.readPage(oggPage));
+        assertOggPageEquals(expectedPage1, oggPage);
+        byte[] keptDataPacket = oggPage.getDataPackets().get(0);
+        assertSame(oggPage, oggStream.readPage(1, oggPage));
+        assertOggPageEquals(expectedPage2, oggPage);
+        assertArrayEquals(TestUtil.createBinary(456, (byte) 1), keptDataPacket);
+        assertNull(oggStream.readPage(1, oggPage));
+        assertOggPageEquals(expectedPage2, oggPage);
+    }
+
+    @Test
     void should_not_read_if_ogg_page_is_not_completed() throws IOException {
         byte[] unCompletedPageData = {'O', 'g', 'g', 'S', 0, 1};
         ByteArrayInputStream inputStream = new ByteArrayInputStream(unCompletedPageData);
@@ -105,6 +239,270 @@ class OggStreamTest {
         assertOggPageEquals(expectedPage, oggStream.readPage());
     }
 
+    @Test
+    void should_read_ogg_page_view_without_copying_data_packets() throws IOException {
+        OggPage expectedPage = createOggPage();
+        ByteArrayInputStream inputStream = new ByteArrayInputStream(expectedPage.dump());
+        OggStream oggStream = OggStream.from(inputStream);
+
+        OggPageView view = oggStream.readPageView();
+
+        assertEquals(expectedPage.getSerialNum(), view.getSerialNum());
+        assertEquals(expectedPage.getCheckSum(), view.getCheckSum());
+        assertEquals(2, view.getDataPacketCount());
+        assertEquals(ByteBuffer.wrap(expectedPage.getDataPackets().get(0)), view.getDataPacket(0));
+        assertEquals(ByteBuffer.wrap(expectedPage.getDataPackets().get(1)), view.getDataPacket(1));
+        assertNull(oggStream.readPageView());
+    }
+
+    @Test
+    void should_read_ogg_page_view_with_given_serial_num() throws IOException {
+        OggPage expectedPage1 = createOggPage();
+        OggPage expectedPage2 = createOggPage();
+        expectedPage2.setSerialNum(100);
+        byte[] data = Bytes.concat(expectedPage1.dump(), expectedPage2.dump());
+        OggStream oggStream = OggStream.from(new ByteArrayInputStream(data));
+
+        assertOggPageEquals(expectedPage2, oggStream.readPageView(100).toOggPage());
+        assertNull(oggStream.readPageView(100));
+    }
+
+    @Test
+    void should_read_pages_that_are_larger_than_read_chunks() throws IOException {
+        OggPage expectedPage = OggPage.empty();
+        expectedPage.addPartialDataPacket(TestUtil.createBinary(255 * 255, (byte) 3));
+        byte[] data = Bytes.concat(expectedPage.dump(), expectedPage.dump(), expectedPage.dump());
+        OggStream oggStream = OggStream.from(new ByteArrayInputStream(data));
+
+        for (int i = 0; i < 3; i++) {
+            assertOggPageEquals(expectedPage, oggStream.readPage());
+        }
+        assertNull(oggStream.readPage());
+    }
+
+    @Test
+    void should_read_ogg_pages_from_mapped_file(@TempDir Path tempDir) throws IOException {
+        OggPage expectedPage1 = createOggPage();
+        expectedPage1.setBOS();
+        OggPage expectedPage2 = createOggPage();
+        Path file = tempDir.resolve("test.ogg");
+        Files.write(file, Bytes.concat(expectedPage1.dump(), "OgOg".getBytes(), expectedPage2.dump()));
+
+        try (OggStream oggStream = OggStream.fromMappedFile(file.toString())) {
+            assertOggPageEquals(expectedPage1, oggStream.readPage());
+            assertOggPageEquals(expectedPage2, oggStream.readPage());
+            assertNull(oggStream.readPage());
+            assertEquals(Files.size(file), oggStream.getPosition());
+        }
+    }
+
+    @Test
+    void should_read_ogg_pages_across_mapped_windows(@TempDir Path tempDir) throws IOException {
+        OggPage expectedPage = OggPage.empty();
+        expectedPage.addPartialDataPacket(TestUtil.createBinary(255 * 200, (byte) 3));
+        byte[] pageData = expectedPage.dump();
+        Path file = tempDir.resolve("test.ogg");
+        Files.write(file, Bytes.concat(pageData, pageData, pageData, pageData, pageData));
+
+        try (OggStream oggStream = OggStream.fromMappedFile(file.toString(), OggPage.MAX_PAGE_SIZE)) {
+            for (int i = 0; i < 5; i++) {
+                assertEquals((long) i * pageData.length, oggStream.getPosition());
+                assertOggPageEquals(expectedPage, oggStream.readPage());
+            }
+            assertNull(oggStream.readPage());
+        }
+    }
+
+    @Test
+    void should_not_read_ogg_page_from_empty_mapped_file(@TempDir Path tempDir) throws IOException {
+        Path file = Files.createFile(tempDir.resolve("empty.ogg"));
+
+        try (OggStream oggStream = OggStream.fromMappedFile(file.toString())) {
+            assertNull(oggStream.readPage());
+        }
+    }
+
+    @Test
+    void should_throw_exception_if_mapped_window_is_smaller_than_max_page_size(@TempDir Path tempDir)
+            throws IOException {
+        Path file = Files.createFile(tempDir.resolve("empty.ogg"));
+
+        assertThrows(IllegalArgumentException.class, () -> OggStream.fromMappedFile(file.toString(), 1024));
+    }
+
+    @Test
+    void should_seek_to_last_page_not_after_granule_position(@TempDir Path tempDir) throws IOException {
+        Path file = tempDir.resolve("test.ogg");
+        Files.write(file, createMultiplexedStream(300));
+
+        try (OggStream oggStream = OggStream.from(file.toString())) {
+            assertTrue(oggStream.seekPage(1, 12345, 0));
+            OggPage oggPage = oggStream.readPage();
+            assertEquals(1, oggPage.getSerialNum());
+            assertEquals(12300, oggPage.getGranulePosition());
+
+            assertTrue(oggStream.seekPage(1, 100, 0));
+            assertEquals(100, oggStream.readPage().getGranulePosition());
+
+            assertTrue(oggStream.seekPage(1, Long.MAX_VALUE, 0));
+            assertEquals(30000, oggStream.readPage().getGranulePosition());
+        }
+    }
+
+    @Test
+    void should_seek_to_start_position_if_all_pages_are_after_granule_position(@TempDir Path tempDir)
+            throws IOException {
+        Path file = tempDir.resolve("test.ogg");
+        Files.write(file, createMultiplexedStream(300));
+
+        try (OggStream oggStream = OggStream.fromMappedFile(file.toString(), OggPage.MAX_PAGE_SIZE)) {
+            assertFalse(oggStream.seekPage(1, 99, 0));
+            assertEquals(0, oggStream.getPosition());
+            assertEquals(100, oggStream.readPage(1).getGranulePosition());
+        }
+    }
+
+    @Test
+    void should_seek_to_offset_that_is_not_start_of_page(@TempDir Path tempDir) throws IOException {
+        Path file = tempDir.resolve("test.ogg");
+        byte[] data = createMultiplexedStream(10);
+        Files.write(file, data);
+
+        try (OggStream oggStream = OggStream.from(file.toString())) {
+            assertEquals(data.length, oggStream.size());
+            oggStream.seek(100);
+            OggPage oggPage = oggStream.readPage();
+            assertEquals(2, oggPage.getSerialNum());
+            assertEquals(100, oggPage.getGranulePosition());
+            oggStream.seek(0);
+            assertEquals(1, oggStream.readPage().getSerialNum());
+        }
+    }
+
+    @Test
+    void should_read_pages_of_chunks_in_parallel_in_file_order(@TempDir Path tempDir) throws IOException {
+        OggPage embeddedPage = createOggPage();
+        OggPage outerPage = OggPage.empty();
+        outerPage.setSerialNum(3);
+        outerPage.addDataPacket(Bytes.concat(new byte[10000], embeddedPage.dump(), new byte[10000]));
+        byte[] data = Bytes.concat(createMultiplexedStream(30), outerPage.dump(), "OgOg".getBytes(),
+                createMultiplexedStream(100));
+        Path file = tempDir.resolve("test.ogg");
+        Files.write(file, data);
+        List<OggPage> expectedPages = new ArrayList<>();
+        try (OggStream oggStream = OggStream.from(file.toString())) {
+            OggPage oggPage;
+            while ((oggPage = oggStream.readPage()) != null) {
+                expectedPages.add(oggPage);
+            }
+        }
+
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        List<OggPage> pages;
+        try (Stream<OggPage> stream = OggStream.parallelPages(file, (offset, view) -> view.toOggPage(),
+                OggPage.MAX_PAGE_SIZE, executor, 3)) {
+            pages = stream.collect(Collectors.toList());
+        } finally {
+            executor.shutdown();
+        }
+
+        assertEquals(expectedPages.size(), pages.size());
+        for (int i = 0; i < pages.size(); i++) {
+            assertOggPageEquals(expectedPages.get(i), pages.get(i));
+        }
+    }
+
+    @Test
+    void should_read_pages_with_bad_checksum_after_chunk_boundary_in_parallel(@TempDir Path tempDir)
+            throws IOException {
+        byte[] data = createMultiplexedStream(100);
+        int pageSize = data.length / 200;
+        // The first two pages that start after the end of the first chunk
+        int firstPage = OggPage.MAX_PAGE_SIZE / pageSize + 1;
+        data[firstPage * pageSize + 100]++;
+        data[(firstPage + 1) * pageSize + 100]++;
+        Path file = tempDir.resolve("test.ogg");
+        Files.write(file, data);
+
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        List<Long> offsets;
+        List<Long> badPageOffsets;
+        try (Stream<long[]> stream = OggStream.parallelPages(file, (offset, view) ->
+                new long[]{offset, view.isCheckSumValid() ? 1 : 0}, OggPage.MAX_PAGE_SIZE, executor, 3)) {
+            List<long[]> pages = stream.collect(Collectors.toList());
+            offsets = pages.stream().map(page -> page[0]).collect(Collectors.toList());
+            badPageOffsets = pages.stream().filter(page -> page[1] == 0).map(page -> page[0])
+                    .collect(Collectors.toList());
+        } finally {
+            executor.shutdown();
+        }
+
+        assertEquals(200, offsets.size());
+        for (int i = 0; i < offsets.size(); i++) {
+            assertEquals(i * (long) pageSize, offsets.get(i));
+        }
+        assertEquals(Arrays.asList((long) firstPage * pageSize, (long) (firstPage + 1) * pageSize), badPageOffsets);
+    }
+
+    @Test
+    void should_map_pages_read_in_parallel_with_offsets(@TempDir Path tempDir) throws IOException {
+        Path file = tempDir.resolve("test.ogg");
+        byte[] data = createMultiplexedStream(100);
+        Files.write(file, data);
+
+        List<Long> offsets;
+        try (Stream<Long> stream = OggStream.parallelPages(file, (offset, view) -> offset)) {
+            offsets = stream.collect(Collectors.toList());
+        }
+        try (Stream<OggPage> stream = OggStream.parallelPages(file)) {
+            assertEquals(2, stream.limit(2).count());
+        }
+
+        assertEquals(200, offsets.size());
+        for (int i = 0; i < offsets.size(); i++) {
+            assertEquals(i * (long) data.length / 200, offsets.get(i));
+        }
+    }
+
+    @Test
+    void should_throw_exception_if_seeking_stream_that_is_not_seekable() {
+        OggStream oggStream = OggStream.from(new ByteArrayInputStream(createMultiplexedStream(2)));
+
+        assertFalse(oggStream.isSeekable());
+        assertThrows(IllegalStateException.class, () -> oggStream.seek(0));
+        assertThrows(IllegalStateException.class, () -> oggStream.seekPage(1, 0, 0));
+    }
+
+    /**
+     * Create a stream with two logical streams, whose pages are interleaved. The granule position of the i-th
+     * (1-based) page of both streams is {@code i * 100}.
+     */
+    private byte[] createMultiplexedStream(int pageCount) {
+        byte[][] pagesData = new byte[pageCount * 2][];
+        for (int i = 0; i < pageCount; i++) {
+            for (int serialNum = 1; serialNum <= 2; serialNum++) {
+                OggPage oggPage = OggPage.empty();
+                oggPage.setGranulePosition((i + 1) * 100);
+                oggPage.setSerialNum(serialNum);
+                oggPage.setSeqNum(i);
+                oggPage.addDataPacket(TestUtil.createBinary(1000, (byte) i));
+                pagesData[i * 2 + serialNum - 1] = oggPage.dump();
+            }
+        }
+        return Bytes.concat(pagesData);
+    }
+
+    private byte[] createCorruptedStream() {
+        byte[][] pagesData = new byte[3][];
+        for (int i = 0; i < 3; i++) {
+            OggPage oggPage = createOggPage();
+            oggPage.setSeqNum(i + 1);
+            pagesData[i] = oggPage.dump();
+        }
+        pagesData[1][100]++;
+        return Bytes.concat(pagesData);
+    }
+
     private OggPage createOggPage() {
         OggPage oggPage = OggPage.empty();
         oggPage.setFlag(0x00);
@@ -0,0 +1,119 @@
+package org.chenliang.oggus.opus;
+
+import org.chenliang.oggus.TestUtil;
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class AudioDataPacketViewTest {
+    @Test
+    void should_split_multistream_packet_into_byte_ranges() {
+        OpusPacket[] opusPackets = createOpusPackets();
+        AudioDataPacket audioDataPacket = AudioDataPacket.empty();
+        for (OpusPacket opusPacket : opusPackets) {
+            audioDataPacket.addOpusPacket(opusPacket);
+        }
+        byte[] data = audioDataPacket.dump();
+
+        AudioDataPacketView view = new AudioDataPacketView().split(data, opusPackets.length);
+
+        assertEquals(opusPackets.length, view.getStreamCount());
+        assertEquals(960, view.getSampleCount());
+        int offset = 0;
+        for (int i = 0; i < opusPackets.length; i++) {
+            boolean isLast = i == opusPackets.length - 1;
+            byte[] expectedData = isLast ? opusPackets[i].dumpToStandardFormat()
+                    : opusPackets[i].dumpToSelfDelimitingFormat();
+            assertEquals(offset, view.getPacketOffset(i));
+            assertEquals(expectedData.length, view.getPacketLength(i));
+            assertEquals(!isLast, view.isSelfDelimiting(i));
+            assertArrayEquals(expectedData, Arrays.copyOfRange(data, offset, offset + expectedData.length));
+            offset += expectedData.length;
+        }
+        assertEquals(data.length, offset);
+    }
+
+    @Test
+    void should_convert_packets_to_standard_format() {
+        OpusPacket[] opusPackets = createOpusPackets();
+        AudioDataPacket audioDataPacket = AudioDataPacket.empty();
+        for (OpusPacket opusPacket : opusPackets) {
+            audioDataPacket.addOpusPacket(opusPacket);
+        }
+
+        AudioDataPacketView view = new AudioDataPacketView().split(audioDataPacket.dump(), opusPackets.length);
+
+        OpusPacketView opusPacketView = new OpusPacketView();
+        for (int i = 0; i < opusPackets.length; i++) {
+            assertArrayEquals(opusPackets[i].dumpToStandardFormat(), view.toStandardFormat(i));
+            TestUtil.assertOpusPacketEqual(opusPackets[i], view.getOpusPacketView(i, opusPacketView).toOpusPacket());
+        }
+    }
+
+    @Test
+    void should_reuse_view_for_packets_of_different_stream_counts() {
+        OpusPacket opusPacket = OpusPackets.newPacket(Config.of(1), Channel.MONO, 0);
+        opusPacket.addFrame(TestUtil.createBinary(20, (byte) 1));
+        byte[] data = opusPacket.dumpToStandardFormat();
+        AudioDataPacketView view = new AudioDataPacketView();
+        AudioDataPacket audioDataPacket = AudioDataPacket.empty();
+        for (int i = 0; i < 12; i++) {
+            audioDataPacket.addOpusPacket(opusPacket);
+        }
+
+        view.split(audioDataPacket.dump(), 12);
+        assertEquals(12, view.getStreamCount());
+        view.split(data, 1);
+
+        assertEquals(1, view.getStreamCount());
+        assertFalse(view.isSelfDelimiting(0));
+        assertArrayEquals(data, view.toStandardFormat(0));
+        assertThrows(IndexOutOfBoundsException.class, () -> view.getPacketOffset(1));
+    }
+
+    @Test
+    void should_throw_exception_if_packet_contains_less_streams() {
+        OpusPacket opusPacket = OpusPackets.newPacket(Config.of(1), Channel.MONO, 0);
+        opusPacket.addFrame(TestUtil.createBinary(20, (byte) 1));
+        byte[] data = opusPacket.dumpToSelfDelimitingFormat();
+
+        AudioDataPacketView view = new AudioDataPacketView();
+        assertThrows(InvalidOpusException.class, () -> view.split(data, 3));
+        assertThrows(InvalidOpusException.class, () -> view.split(Arrays.copyOf(data, 10), 2));
+    }
+
+    private OpusPacket[] createOpusPackets() {
+        OpusPacket codeZeroPacket = OpusPackets.newPacket(Config.of(1), Channel.STEREO, 0);
+        codeZeroPacket.addFrame(TestUtil.createBinary(300, (byte) 1));
+
+        OpusPacket codeOnePacket = OpusPackets.newPacket(Config.of(9), Channel.STEREO, 1);
+        codeOnePacket.addFrame(TestUtil.createBinary(100, (byte) 2));
+        codeOnePacket.addFrame(TestUtil.createBinary(100, (byte) 3));
+
+        OpusPacket codeTwoPacket = OpusPackets.newPacket(Config.of(13), Channel.MONO, 2);
+        codeTwoPacket.addFrame(TestUtil.createBinary(100, (byte) 4));
+        codeTwoPacket.addFrame(TestUtil.createBinary(252, (byte) 5));
+
+        OpusPacket vbrPacket = OpusPackets.newPacket(Config.of(18), Channel.STEREO, 3);
+        vbrPacket.setVbr(true);
+        vbrPacket.setFrameCount(2);
+        vbrPacket.setHasPadding(true);
+        vbrPacket.setPadLenBytesSum(3);
+        vbrPacket.addFrame(TestUtil.createBinary(600, (byte) 6));
+        vbrPacket.addFrame(TestUtil.createBinary(10, (byte) 7));
+
+        OpusPacket cbrPacket = OpusPackets.newPacket(Config.of(17), Channel.STEREO, 3);
+        cbrPacket.setVbr(false);
+        cbrPacket.setFrameCount(4);
+        cbrPacket.setHasPadding(false);
+        for (int i = 0; i < 4; i++) {
+            cbrPacket.addFrame(TestUtil.createBinary(40, (byte) 8));
+        }
+        return new OpusPacket[]{codeZeroPacket, codeOnePacket, codeTwoPacket, vbrPacket, cbrPacket};
+    }
+}
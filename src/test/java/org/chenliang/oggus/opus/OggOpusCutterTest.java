@@ -0,0 +1,165 @@
+package org.chenliang.oggus.opus;
+
+import com.google.common.collect.ObjectArrays;
+import org.chenliang.oggus.TestUtil;
+import org.chenliang.oggus.ogg.OggStream;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.channels.Channels;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class OggOpusCutterTest {
+    private static final int PRE_SKIP = 312;
+
+    @Test
+    void should_cut_range_of_seekable_stream_with_preroll_and_end_trim(@TempDir Path tempDir) throws IOException {
+        Path file = tempDir.resolve("test.opus");
+        AudioDataPacket[] audioDataPackets = writeOggOpusFile(file, 2, 100);
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        try (OggStream oggStream = OggStream.from(file.toString())) {
+            OggOpusStream input = OggOpusStream.from(oggStream);
+            input.readAudioPacket();
+            assertEquals(10000, OggOpusCutter.cut(input, 20000, 30000, Channels.newChannel(outputStream)));
+        }
+
+        // The first packet that ends after the pre-roll at 16160 is packet 17, which starts at 16008
+        OggOpusStream oggOpusStream = OggOpusStream.from(new ByteArrayInputStream(outputStream.toByteArray()));
+        assertEquals(20000 - 16008, oggOpusStream.getIdHeader().getPreSkip());
+        assertEquals(2, oggOpusStream.getIdHeader().getChannelCount());
+        AudioDataPacket audioDataPacket = null;
+        for (int i = 17; i <= 31; i++) {
+            audioDataPacket = oggOpusStream.readAudioPacket();
+            assertArrayEquals(audioDataPackets[i].dump(), audioDataPacket.dump());
+            assertEquals(i * 960 - PRE_SKIP - 20000, audioDataPacket.getStartSample());
+        }
+        assertEquals(10000, audioDataPacket.getEndSample());
+        assertNull(oggOpusStream.readAudioPacket());
+    }
+
+    @Test
+    void should_cut_stream_that_is_not_seekable_to_its_end() throws IOException {
+        ByteArrayOutputStream inputStream = new ByteArrayOutputStream();
+        TestUtil.writeOggOpusStream(inputStream, TestUtil.createIdHeader(2, PRE_SKIP), Config.of(1), 10, i -> 100);
+        OggOpusStream input = OggOpusStream.from(new ByteArrayInputStream(inputStream.toByteArray()));
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+
+        assertEquals(10 * 960 - PRE_SKIP, OggOpusCutter.cut(input, 0, Long.MAX_VALUE,
+                Channels.newChannel(outputStream)));
+        assertArrayEquals(readPackets(inputStream.toByteArray()), readPackets(outputStream.toByteArray()));
+        OggOpusStream oggOpusStream = OggOpusStream.from(new ByteArrayInputStream(outputStream.toByteArray()));
+        assertEquals(PRE_SKIP, oggOpusStream.getIdHeader().getPreSkip());
+    }
+
+    @Test
+    void should_write_empty_stream_if_range_is_after_end(@TempDir Path tempDir) throws IOException {
+        Path file = tempDir.resolve("test.opus");
+        writeOggOpusFile(file, 2, 10);
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        try (OggStream oggStream = OggStream.from(file.toString())) {
+            assertEquals(0, OggOpusCutter.cut(OggOpusStream.from(oggStream), 48000, 96000,
+                    Channels.newChannel(outputStream)));
+        }
+
+        assertNull(OggOpusStream.from(new ByteArrayInputStream(outputStream.toByteArray())).readAudioPacket());
+        assertThrows(IllegalArgumentException.class, () -> OggOpusCutter.cut(null, 10, 5, null));
+    }
+
+    @Test
+    void should_concat_streams_and_drop_packets_in_pre_skip_of_following_streams(@TempDir Path tempDir)
+            throws IOException {
+        AudioDataPacket[] first = writeOggOpusFile(tempDir.resolve("1.opus"), 2, 10);
+        AudioDataPacket[] second = writeOggOpusFile(tempDir.resolve("2.opus"), 2, 10);
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        try (OggStream oggStream1 = OggStream.from(tempDir.resolve("1.opus").toString());
+             OggStream oggStream2 = OggStream.from(tempDir.resolve("2.opus").toString())) {
+            assertEquals(19 * 960 - PRE_SKIP, OggOpusCutter.concat(Arrays.asList(OggOpusStream.from(oggStream1),
+                    OggOpusStream.from(oggStream2)), Channels.newChannel(outputStream)));
+        }
+
+        // The first packet of the second stream starts in its pre-skip
+        OggOpusStream oggOpusStream = OggOpusStream.from(new ByteArrayInputStream(outputStream.toByteArray()));
+        AudioDataPacket[] rest = Arrays.copyOfRange(second, 1, second.length);
+        for (AudioDataPacket expectedPacket : ObjectArrays.concat(first, rest, AudioDataPacket.class)) {
+            assertArrayEquals(expectedPacket.dump(), oggOpusStream.readAudioPacket().dump());
+        }
+        assertNull(oggOpusStream.readAudioPacket());
+    }
+
+    @Test
+    void should_concat_streams_cut_at_position_within_packet(@TempDir Path tempDir) throws IOException {
+        Path file = tempDir.resolve("test.opus");
+        AudioDataPacket[] audioDataPackets = writeOggOpusFile(file, 2, 100);
+        ByteArrayOutputStream first = new ByteArrayOutputStream();
+        ByteArrayOutputStream second = new ByteArrayOutputStream();
+        try (OggStream oggStream = OggStream.from(file.toString())) {
+            OggOpusCutter.cut(OggOpusStream.from(oggStream), 0, 20000, Channels.newChannel(first));
+        }
+        try (OggStream oggStream = OggStream.from(file.toString())) {
+            OggOpusCutter.cut(OggOpusStream.from(oggStream), 20000, 40000, Channels.newChannel(second));
+        }
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+
+        assertEquals(40000, OggOpusCutter.concat(Arrays.asList(
+                OggOpusStream.from(new ByteArrayInputStream(first.toByteArray())),
+                OggOpusStream.from(new ByteArrayInputStream(second.toByteArray()))),
+                Channels.newChannel(outputStream)));
+
+        // Packet 21 contains the cut position, it is in both cut streams, but only written once
+        OggOpusStream oggOpusStream = OggOpusStream.from(new ByteArrayInputStream(outputStream.toByteArray()));
+        assertEquals(PRE_SKIP, oggOpusStream.getIdHeader().getPreSkip());
+        AudioDataPacket audioDataPacket = null;
+        for (int i = 0; i <= 41; i++) {
+            audioDataPacket = oggOpusStream.readAudioPacket();
+            assertArrayEquals(audioDataPackets[i].dump(), audioDataPacket.dump());
+            assertEquals(i * 960 - PRE_SKIP, audioDataPacket.getStartSample());
+        }
+        assertEquals(40000, audioDataPacket.getEndSample());
+        assertNull(oggOpusStream.readAudioPacket());
+    }
+
+    @Test
+    void should_throw_exception_if_concat_streams_with_incompatible_id_headers(@TempDir Path tempDir)
+            throws IOException {
+        writeOggOpusFile(tempDir.resolve("1.opus"), 2, 10);
+        writeOggOpusFile(tempDir.resolve("2.opus"), 1, 10);
+        try (OggStream oggStream1 = OggStream.from(tempDir.resolve("1.opus").toString());
+             OggStream oggStream2 = OggStream.from(tempDir.resolve("2.opus").toString())) {
+            assertThrows(IllegalArgumentException.class, () -> OggOpusCutter.concat(Arrays.asList(
+                    OggOpusStream.from(oggStream1), OggOpusStream.from(oggStream2)),
+                    Channels.newChannel(new ByteArrayOutputStream())));
+        }
+        assertThrows(IllegalArgumentException.class, () -> OggOpusCutter.concat(Collections.emptyList(),
+                Channels.newChannel(new ByteArrayOutputStream())));
+    }
+
+    private byte[][] readPackets(byte[] data) throws IOException {
+        OggOpusStream oggOpusStream = OggOpusStream.from(new ByteArrayInputStream(data));
+        List<byte[]> packets = new ArrayList<>();
+        AudioDataPacket audioDataPacket;
+        while ((audioDataPacket = oggOpusStream.readAudioPacket()) != null) {
+            packets.add(audioDataPacket.dump());
+        }
+        return packets.toArray(new byte[0][]);
+    }
+
+    /**
+     * Write 20 ms packets of 100 bytes, 3 packets per page.
+     */
+    private AudioDataPacket[] writeOggOpusFile(Path file, int channelCount, int packetCount) throws IOException {
+        return TestUtil.writeOggOpusFile(file, TestUtil.createIdHeader(channelCount, PRE_SKIP), Config.of(1),
+                packetCount, i -> 100);
+    }
+}
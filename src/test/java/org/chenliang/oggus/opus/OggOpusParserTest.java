@@ -0,0 +1,180 @@
+package org.chenliang.oggus.opus;
+
+import com.google.common.primitives.Bytes;
+import org.chenliang.oggus.TestUtil;
+import org.chenliang.oggus.ogg.OggDemuxer;
+import org.chenliang.oggus.ogg.OggPage;
+import org.chenliang.oggus.ogg.OggStream;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class OggOpusParserTest {
+    @Test
+    void should_parse_ogg_opus_stream_fed_in_chunks() throws IOException {
+        OggPage otherPage = OggPage.empty();
+        otherPage.setBOS();
+        otherPage.setSerialNum(2);
+        otherPage.addDataPacket("OtherHead".getBytes());
+        byte[] opusData = writeOggOpusStream(100);
+        byte[] data = Bytes.concat(otherPage.dump(), opusData);
+        List<AudioDataPacket> expectedPackets = new ArrayList<>();
+        OggOpusStream oggOpusStream = OggOpusStream.from(new ByteArrayInputStream(opusData));
+        AudioDataPacket audioDataPacket;
+        while ((audioDataPacket = oggOpusStream.readAudioPacket()) != null) {
+            expectedPackets.add(audioDataPacket);
+        }
+
+        List<String> events = new ArrayList<>();
+        List<AudioDataPacket> packets = new ArrayList<>();
+        OggOpusParser parser = OggOpusParser.create(new OggOpusParser.PacketListener() {
+            @Override
+            public void onHeaders(IdHeader idHeader, CommentHeader commentHeader) {
+                events.add("headers " + idHeader.getPreSkip() + " " + commentHeader.getVendor());
+            }
+
+            @Override
+            public void onAudioPacket(AudioDataPacket audioDataPacket) {
+                packets.add(audioDataPacket);
+            }
+
+            @Override
+            public void onEnd() {
+                events.add("end " + packets.size());
+            }
+        });
+        Random random = new Random(1);
+        for (int offset = 0; offset < data.length; ) {
+            int length = Math.min(1 + random.nextInt(5000), data.length - offset);
+            parser.feed(ByteBuffer.wrap(data, offset, length));
+            offset += length;
+        }
+
+        assertEquals(Arrays.asList("headers 312 test vendor", "end 100"), events);
+        assertEquals(expectedPackets.size(), packets.size());
+        for (int i = 0; i < packets.size(); i++) {
+            assertArrayEquals(expectedPackets.get(i).dump(), packets.get(i).dump());
+            assertEquals(expectedPackets.get(i).getStartSample(), packets.get(i).getStartSample());
+            assertEquals(expectedPackets.get(i).getEndSample(), packets.get(i).getEndSample());
+        }
+        assertEquals(oggOpusStream.getSerialNum(), parser.getSerialNum());
+        assertEquals(312, parser.getIdHeader().getPreSkip());
+        assertTrue(parser.isEnd());
+    }
+
+    @Test
+    void should_parse_chained_ogg_opus_streams_dispatched_by_demuxer() throws IOException {
+        byte[] data = Bytes.concat(writeOggOpusStream(10), writeOggOpusStream(30));
+        List<OggOpusParser> parsers = new ArrayList<>();
+        List<Integer> packetCounts = new ArrayList<>();
+        OggDemuxer demuxer = OggDemuxer.create((bosPage, linkIndex) -> {
+            if (!OggOpusParser.isIdHeaderPage(bosPage)) {
+                return null;
+            }
+            int index = packetCounts.size();
+            packetCounts.add(0);
+            OggOpusParser parser = OggOpusParser.create(audioDataPacket ->
+                    packetCounts.set(index, packetCounts.get(index) + 1));
+            parsers.add(parser);
+            return parser;
+        });
+
+        demuxer.demux(OggStream.from(new ByteArrayInputStream(data)));
+
+        assertEquals(Arrays.asList(10, 30), packetCounts);
+        assertEquals(1, demuxer.getLinkIndex());
+        for (OggOpusParser parser : parsers) {
+            assertEquals("test vendor", parser.getCommentHeader().getVendor());
+            assertTrue(parser.isEnd());
+        }
+    }
+
+    @Test
+    void should_not_parse_headers_before_id_header_page_is_completed() throws IOException {
+        byte[] data = writeOggOpusStream(1);
+        OggOpusParser parser = OggOpusParser.create(audioDataPacket -> {
+        });
+
+        parser.feed(ByteBuffer.wrap(data, 0, 30));
+
+        assertNull(parser.getIdHeader());
+        assertEquals(-1, parser.getSerialNum());
+    }
+
+    @Test
+    void should_throw_exception_if_id_header_page_contains_other_data() {
+        OggPage oggPage = OggPage.empty();
+        oggPage.setBOS();
+        oggPage.addDataPacket(TestUtil.createIdHeader(2, 312).dump());
+        oggPage.addDataPacket(new byte[10]);
+        OggOpusParser parser = OggOpusParser.create(audioDataPacket -> {
+        });
+
+        assertThrows(InvalidOpusException.class, () -> parser.feed(ByteBuffer.wrap(oggPage.dump())));
+    }
+
+    @Test
+    void should_drop_partial_packet_on_eos_page_in_the_same_way_as_ogg_opus_stream() throws IOException {
+        byte[][] packets = new byte[3][];
+        for (int i = 0; i < packets.length; i++) {
+            packets[i] = TestUtil.createAudioDataPacket(Config.of(1), 1000, (byte) i).dump();
+        }
+        OggPage idHeaderPage = createOggPage(0, 0, TestUtil.createIdHeader(2, 312).dump());
+        idHeaderPage.setBOS();
+        OggPage commentHeaderPage = createOggPage(0, 1, TestUtil.createCommentHeader().dump());
+        OggPage oggPage1 = createOggPage(960, 2, packets[0]);
+        OggPage oggPage2 = createOggPage(1920, 3, packets[1]);
+        oggPage2.addPartialDataPacket(Arrays.copyOf(packets[2], 510));
+        oggPage2.setEOS();
+        byte[] data = Bytes.concat(idHeaderPage.dump(), commentHeaderPage.dump(), oggPage1.dump(), oggPage2.dump());
+
+        List<AudioDataPacket> pulledPackets = new ArrayList<>();
+        OggOpusStream oggOpusStream = OggOpusStream.from(new ByteArrayInputStream(data));
+        AudioDataPacket audioDataPacket;
+        while ((audioDataPacket = oggOpusStream.readAudioPacket()) != null) {
+            pulledPackets.add(audioDataPacket);
+        }
+        List<AudioDataPacket> pushedPackets = new ArrayList<>();
+        OggOpusParser.create(pushedPackets::add).feed(ByteBuffer.wrap(data));
+
+        for (List<AudioDataPacket> audioDataPackets : Arrays.asList(pulledPackets, pushedPackets)) {
+            assertEquals(2, audioDataPackets.size());
+            assertArrayEquals(packets[0], audioDataPackets.get(0).dump());
+            assertArrayEquals(packets[1], audioDataPackets.get(1).dump());
+            assertEquals(960 - 312, audioDataPackets.get(1).getStartSample());
+            assertEquals(1920 - 312, audioDataPackets.get(1).getEndSample());
+        }
+    }
+
+    private OggPage createOggPage(int granulePosition, int seqNum, byte[] dataPacket) {
+        OggPage oggPage = OggPage.empty();
+        oggPage.setGranulePosition(granulePosition);
+        oggPage.setSerialNum(1);
+        oggPage.setSeqNum(seqNum);
+        oggPage.addDataPacket(dataPacket);
+        return oggPage;
+    }
+
+    /**
+     * Write 20 ms packets, 3 packets per page, and some packets are large enough to span pages.
+     */
+    private byte[] writeOggOpusStream(int packetCount) throws IOException {
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        TestUtil.writeOggOpusStream(outputStream, TestUtil.createIdHeader(2, 312), Config.of(1), packetCount,
+                i -> i % 50 == 25 ? 70000 : 300);
+        return outputStream.toByteArray();
+    }
+}
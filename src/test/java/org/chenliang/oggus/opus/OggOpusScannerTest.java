@@ -0,0 +1,125 @@
+package org.chenliang.oggus.opus;
+
+import org.chenliang.oggus.TestUtil;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class OggOpusScannerTest {
+    @Test
+    void should_summarize_ogg_opus_file(@TempDir Path tempDir) throws IOException {
+        Path file = tempDir.resolve("test.opus");
+        writeOggOpusFile(file, 2, 100, Config.of(1));
+
+        OpusFileStats stats = OpusFileStats.scan(file);
+
+        assertEquals(Files.size(file), stats.getFileSize());
+        assertEquals(2, stats.getChannelCount());
+        assertEquals("test vendor", stats.getVendor());
+        assertEquals(Collections.singletonList("Test title"), stats.getTags().get("TITLE"));
+        assertEquals(100, stats.getPacketCount());
+        assertEquals(100, stats.getConfigPacketCount(1));
+        assertEquals(0, stats.getConfigPacketCount(0));
+        assertEquals(100 * 960, stats.getGranulePosition());
+        assertEquals(100 * 960 - 312, stats.getDurationSamples());
+        assertEquals((100 * 960 - 312) / 48000.0, stats.getDuration());
+        assertEquals(100 * 301, stats.getAudioDataSize());
+        assertEquals(100 * 301 * 8 / stats.getDuration(), stats.getBitrate(), 1e-6);
+    }
+
+    @Test
+    void should_count_packet_that_spans_pages_once(@TempDir Path tempDir) throws IOException {
+        Path file = tempDir.resolve("test.opus");
+        try (OggOpusWriter writer = OggOpusWriter.to(new FileOutputStream(file.toFile()),
+                TestUtil.createIdHeader(1, 312), TestUtil.createCommentHeader())) {
+            writer.writeAudioPacket(TestUtil.createAudioDataPacket(Config.of(16), 70000, (byte) 1));
+            writer.writeAudioPacket(TestUtil.createAudioDataPacket(Config.of(17), 10, (byte) 2));
+        }
+
+        OpusFileStats stats = OpusFileStats.scan(file);
+
+        assertEquals(2, stats.getPacketCount());
+        assertEquals(1, stats.getConfigPacketCount(16));
+        assertEquals(1, stats.getConfigPacketCount(17));
+    }
+
+    @Test
+    void should_scan_directory_tree_in_parallel(@TempDir Path tempDir) throws IOException {
+        Files.createDirectories(tempDir.resolve("a/b"));
+        writeOggOpusFile(tempDir.resolve("1.opus"), 2, 50, Config.of(1));
+        writeOggOpusFile(tempDir.resolve("a/2.opus"), 1, 100, Config.of(1));
+        writeOggOpusFile(tempDir.resolve("a/b/3.opus"), 2, 150, Config.of(2));
+        writeOggOpusFile(tempDir.resolve("a/b/4.ogg"), 2, 150, Config.of(2));
+        Files.write(tempDir.resolve("a/5.opus"), TestUtil.createBinary(100, (byte) 1));
+        Set<Path> scannedFiles = Collections.synchronizedSet(new HashSet<>());
+        Set<Path> failedFiles = Collections.synchronizedSet(new HashSet<>());
+
+        OpusScanStats stats;
+        try (OggOpusScanner scanner = OggOpusScanner.create(4, 2)) {
+            stats = scanner.scan(tempDir, new OggOpusScanner.ScanListener() {
+                @Override
+                public void onScanned(OpusFileStats stats) {
+                    scannedFiles.add(stats.getFile());
+                }
+
+                @Override
+                public void onFailed(Path file, Exception exception) {
+                    failedFiles.add(file);
+                }
+            });
+        }
+
+        assertEquals(new HashSet<>(Arrays.asList(tempDir.resolve("1.opus"), tempDir.resolve("a/2.opus"),
+                tempDir.resolve("a/b/3.opus"))), scannedFiles);
+        assertEquals(Collections.singleton(tempDir.resolve("a/5.opus")), failedFiles);
+        assertEquals(3, stats.getFileCount());
+        assertEquals(1, stats.getFailedFileCount());
+        assertEquals(300, stats.getPacketCount());
+        assertEquals(150, stats.getConfigPacketCount(1));
+        assertEquals(150, stats.getConfigPacketCount(2));
+        long durationSamples = 150 * 960 + 150 * 1920 - 3 * 312;
+        assertEquals(durationSamples, stats.getTotalDurationSamples());
+        assertEquals(300 * 301 * 8 * 48000.0 / durationSamples, stats.getAverageBitrate(), 1e-6);
+        assertEquals(Long.valueOf(2), stats.getChannelCountFiles().get(2));
+        assertEquals(Long.valueOf(1), stats.getChannelCountFiles().get(1));
+        assertEquals(Long.valueOf(3), stats.getVendorFiles().get("test vendor"));
+        assertEquals(Long.valueOf(3), stats.getTagFiles().get("TITLE"));
+    }
+
+    @Test
+    void should_throw_exception_thrown_by_listener(@TempDir Path tempDir) throws IOException {
+        writeOggOpusFile(tempDir.resolve("1.opus"), 2, 10, Config.of(1));
+
+        try (OggOpusScanner scanner = OggOpusScanner.create(2, 2)) {
+            assertThrows(IllegalStateException.class, () -> scanner.scan(tempDir, stats -> {
+                throw new IllegalStateException();
+            }));
+        }
+    }
+
+    @Test
+    void should_merge_scan_stats() {
+        OpusScanStats stats1 = new OpusScanStats();
+        stats1.addFailure();
+        OpusScanStats stats2 = new OpusScanStats();
+        stats2.addFailure();
+        stats2.addFailure();
+
+        assertEquals(3, stats1.merge(stats2).getFailedFileCount());
+    }
+
+    private void writeOggOpusFile(Path file, int channelCount, int packetCount, Config config) throws IOException {
+        TestUtil.writeOggOpusFile(file, TestUtil.createIdHeader(channelCount, 312), config, packetCount, i -> 300);
+    }
+}
@@ -5,11 +5,21 @@ import com.google.common.primitives.Bytes;
 import com.google.common.primitives.Ints;
 import org.chenliang.oggus.TestUtil;
 import org.chenliang.oggus.ogg.OggPage;
+import org.chenliang.oggus.ogg.OggPageIndex;
+import org.chenliang.oggus.ogg.OggStream;
 import org.junit.jupiter.api.Disabled;
 import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
 
 import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.FileOutputStream;
 import java.io.IOException;
+import java.nio.BufferOverflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.util.Arrays;
 import java.util.Collection;
 import java.util.Map;
@@ -17,17 +27,20 @@ import java.util.stream.Collectors;
 
 import static org.junit.jupiter.api.Assertions.assertArrayEquals;
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
 import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
 import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 
 class OggOpusStreamTest {
     @Test
     void should_read_valid_ogg_stream_with_one_audio_packet() throws IOException {
-        IdHeader idHeader = createIdHeader();
+        IdHeader idHeader = TestUtil.createIdHeader(2, 127);
         OggPage oggPage1 = createOggPage(0, 0, idHeader.dump());
         oggPage1.setBOS();
 
-        CommentHeader commentHeader = createCommentHeader();
+        CommentHeader commentHeader = TestUtil.createCommentHeader();
         OggPage oggPage2 = createOggPage(0, 1, commentHeader.dump());
 
         OpusPacket opusPacket = OpusPackets.newPacket(Config.of(0), Channel.MONO, 0);
@@ -57,7 +70,7 @@ class OggOpusStreamTest {
 
     @Test
     void should_throw_exception_if_id_header_page_not_exist() {
-        CommentHeader commentHeader = createCommentHeader();
+        CommentHeader commentHeader = TestUtil.createCommentHeader();
         OggPage oggPage = createOggPage(0, 1, commentHeader.dump());
 
         InvalidOpusException exception = assertThrows(InvalidOpusException.class, () -> {
@@ -69,7 +82,7 @@ class OggOpusStreamTest {
 
     @Test
     void should_throw_exception_if_id_header_page_contains_other_data() {
-        IdHeader idHeader = createIdHeader();
+        IdHeader idHeader = TestUtil.createIdHeader(2, 127);
         OggPage oggPage = createOggPage(0, 0, idHeader.dump(), TestUtil.createBinary(1, (byte) 1));
         oggPage.setBOS();
 
@@ -82,11 +95,11 @@ class OggOpusStreamTest {
 
     @Test
     void should_read_comment_header_that_spans_two_pages() throws IOException {
-        IdHeader idHeader = createIdHeader();
+        IdHeader idHeader = TestUtil.createIdHeader(2, 127);
         OggPage oggPage1 = createOggPage(0, 0, idHeader.dump());
         oggPage1.setBOS();
 
-        CommentHeader commentHeader = createCommentHeader();
+        CommentHeader commentHeader = TestUtil.createCommentHeader();
         String longTagValue = Strings.repeat("a", 255 * 255);
         commentHeader.addTag("LONG_TITLE", longTagValue);
         byte[] commentData = commentHeader.dump();
@@ -108,11 +121,11 @@ class OggOpusStreamTest {
 
     @Test
     void should_throw_exception_if_comment_header_page_contains_other_data() {
-        IdHeader idHeader = createIdHeader();
+        IdHeader idHeader = TestUtil.createIdHeader(2, 127);
         OggPage oggPage1 = createOggPage(0, 0, idHeader.dump());
         oggPage1.setBOS();
 
-        CommentHeader commentHeader = createCommentHeader();
+        CommentHeader commentHeader = TestUtil.createCommentHeader();
         OggPage oggPage2 = createOggPage(0, 1, commentHeader.dump(), TestUtil.createBinary(1, (byte) 1));
 
         byte[] oggStreamData = Bytes.concat(oggPage1.dump(), oggPage2.dump());
@@ -126,11 +139,11 @@ class OggOpusStreamTest {
 
     @Test
     void should_throw_exception_if_ogg_stream_eos_flag_is_not_set() throws IOException {
-        IdHeader idHeader = createIdHeader();
+        IdHeader idHeader = TestUtil.createIdHeader(2, 127);
         OggPage oggPage1 = createOggPage(0, 0, idHeader.dump());
         oggPage1.setBOS();
 
-        CommentHeader commentHeader = createCommentHeader();
+        CommentHeader commentHeader = TestUtil.createCommentHeader();
         OggPage oggPage2 = createOggPage(0, 1, commentHeader.dump());
 
         OpusPacket opusPacket = OpusPackets.newPacket(Config.of(0), Channel.MONO, 0);
@@ -153,11 +166,11 @@ class OggOpusStreamTest {
 
     @Test
     void should_read_ogg_stream_with_audio_data_packet_spans_two_page() throws IOException {
-        IdHeader idHeader = createIdHeader();
+        IdHeader idHeader = TestUtil.createIdHeader(2, 127);
         OggPage oggPage1 = createOggPage(0, 0, idHeader.dump());
         oggPage1.setBOS();
 
-        CommentHeader commentHeader = createCommentHeader();
+        CommentHeader commentHeader = TestUtil.createCommentHeader();
         OggPage oggPage2 = createOggPage(0, 1, commentHeader.dump());
 
         OpusPacket opusPacket = OpusPackets.newPacket(Config.of(0), Channel.MONO, 0);
@@ -180,10 +193,10 @@ class OggOpusStreamTest {
 
     @Test
     void should_read_ogg_stream_with_a_page_that_contains_multiple_packets() throws IOException {
-        OggPage oggPage1 = createOggPage(0, 0, createIdHeader().dump());
+        OggPage oggPage1 = createOggPage(0, 0, TestUtil.createIdHeader(2, 127).dump());
         oggPage1.setBOS();
 
-        OggPage oggPage2 = createOggPage(0, 1, createCommentHeader().dump());
+        OggPage oggPage2 = createOggPage(0, 1, TestUtil.createCommentHeader().dump());
 
         OpusPacket opusPacket1 = OpusPackets.newPacket(Config.of(0), Channel.MONO, 0);
         opusPacket1.addFrame(TestUtil.createBinary(100, (byte) 1));
@@ -218,10 +231,10 @@ class OggOpusStreamTest {
 
     @Test
     void should_read_ogg_stream_with_a_page_that_contains_a_complete_and_a_partial_packet() throws IOException {
-        OggPage oggPage1 = createOggPage(0, 0, createIdHeader().dump());
+        OggPage oggPage1 = createOggPage(0, 0, TestUtil.createIdHeader(2, 127).dump());
         oggPage1.setBOS();
 
-        OggPage oggPage2 = createOggPage(0, 1, createCommentHeader().dump());
+        OggPage oggPage2 = createOggPage(0, 1, TestUtil.createCommentHeader().dump());
 
         OpusPacket opusPacket1 = OpusPackets.newPacket(Config.of(0), Channel.MONO, 0);
         opusPacket1.addFrame(TestUtil.createBinary(100, (byte) 1));
@@ -257,13 +270,6 @@ class OggOpusStreamTest {
         assertNull(oggOpusStream.readAudioPacket());
     }
 
-    private CommentHeader createCommentHeader() {
-        CommentHeader commentHeader = CommentHeader.emptyHeader();
-        commentHeader.setVendor("test vendor");
-        commentHeader.addTag("TITLE", "Test title");
-        return commentHeader;
-    }
-
     private OggPage createOggPage(int granulePosition, int seqNum, byte[]... dataPackets) {
         OggPage oggPage = createOggPage(granulePosition, seqNum);
         for (byte[] dataPacket : dataPackets) {
@@ -280,16 +286,228 @@ class OggOpusStreamTest {
         return oggPage;
     }
 
-    private IdHeader createIdHeader() {
-        IdHeader idHeader = IdHeader.emptyHeader();
-        idHeader.setMajorVersion(0);
-        idHeader.setMinorVersion(1);
-        idHeader.setChannelCount(2);
-        idHeader.setPreSkip(127);
-        idHeader.setInputSampleRate(16000);
-        idHeader.setOutputGain(0);
-        idHeader.setChannelMappingFamily(0);
-        return idHeader;
+    @Test
+    void should_seek_to_packet_by_granule_position(@TempDir Path tempDir) throws IOException {
+        AudioDataPacket[] audioDataPackets = writeOggOpusFile(tempDir.resolve("test.opus"), 300);
+
+        try (OggStream oggStream = OggStream.from(tempDir.resolve("test.opus").toString())) {
+            assertSeekToPackets(OggOpusStream.from(oggStream), audioDataPackets);
+        }
+    }
+
+    @Test
+    void should_read_audio_packets_into_given_packet_object(@TempDir Path tempDir) throws IOException {
+        AudioDataPacket[] audioDataPackets = writeOggOpusFile(tempDir.resolve("test.opus"), 100);
+        OggOpusStream oggOpusStream = OggOpusStream.from(tempDir.resolve("test.opus").toString());
+        AudioDataPacket audioDataPacket = AudioDataPacket.empty();
+
+        assertSame(audioDataPacket, oggOpusStream.readAudioPacket(audioDataPacket));
+        OpusPacket opusPacket = audioDataPacket.getOpusPackets().get(0);
+        byte[] keptFrame = opusPacket.getFrames().get(0);
+        TestUtil.assertOpusPacketEqual(audioDataPackets[0].getOpusPackets().get(0), opusPacket);
+        for (int i = 1; i < 100; i++) {
+            assertSame(audioDataPacket, oggOpusStream.readAudioPacket(audioDataPacket));
+            assertEquals(1, audioDataPacket.getOpusPackets().size());
+            assertSame(opusPacket, audioDataPacket.getOpusPackets().get(0));
+            TestUtil.assertOpusPacketEqual(audioDataPackets[i].getOpusPackets().get(0), opusPacket);
+        }
+        assertNull(oggOpusStream.readAudioPacket(audioDataPacket));
+        assertArrayEquals(audioDataPackets[0].getOpusPackets().get(0).getFrames().get(0), keptFrame);
+    }
+
+    @Test
+    void should_timestamp_audio_packets_with_granule_positions() throws IOException {
+        OggPage oggPage1 = createOggPage(0, 0, TestUtil.createIdHeader(2, 127).dump());
+        oggPage1.setBOS();
+        OggPage oggPage2 = createOggPage(0, 1, TestUtil.createCommentHeader().dump());
+        byte[] audioData = TestUtil.createAudioDataPacket(Config.of(1), 100, (byte) 1).dump();
+        OggPage oggPage3 = createOggPage(1000 + 960 * 2, 2, audioData, audioData);
+        OggPage oggPage4 = createOggPage(1000 + 960 * 3 + 500, 3, audioData, audioData);
+        oggPage4.setEOS();
+        byte[] data = Bytes.concat(oggPage1.dump(), oggPage2.dump(), oggPage3.dump(), oggPage4.dump());
+
+        OggOpusStream oggOpusStream = OggOpusStream.from(new ByteArrayInputStream(data));
+
+        long[][] expectedTimestamps = {{1000, 1960}, {1960, 2920}, {2920, 3880}, {3880, 4380}};
+        AudioDataPacket audioDataPacket = AudioDataPacket.empty();
+        assertFalse(audioDataPacket.hasTimestamp());
+        for (long[] expected : expectedTimestamps) {
+            assertSame(audioDataPacket, oggOpusStream.readAudioPacket(audioDataPacket));
+            assertTrue(audioDataPacket.hasTimestamp());
+            assertEquals(expected[0] - 127, audioDataPacket.getStartSample());
+            assertEquals(expected[1] - 127, audioDataPacket.getEndSample());
+        }
+        assertNull(oggOpusStream.readAudioPacket());
+    }
+
+    @Test
+    void should_timestamp_audio_packets_after_seeking(@TempDir Path tempDir) throws IOException {
+        writeOggOpusFile(tempDir.resolve("test.opus"), 100);
+        OggOpusStream oggOpusStream = OggOpusStream.from(tempDir.resolve("test.opus").toString());
+
+        for (int i = 0; i < 100; i++) {
+            AudioDataPacket audioDataPacket = oggOpusStream.readAudioPacket();
+            assertEquals(i * 960 - 127, audioDataPacket.getStartSample());
+            assertEquals((i + 1) * 960 - 127, audioDataPacket.getEndSample());
+        }
+        long granulePosition = oggOpusStream.seek(50 * 960 + 100);
+        AudioDataPacket audioDataPacket = oggOpusStream.readAudioPacket();
+        assertEquals(granulePosition - 127, audioDataPacket.getStartSample());
+        assertEquals(granulePosition + 960 - 127, audioDataPacket.getEndSample());
+    }
+
+    @Test
+    void should_probe_duration_from_last_page_and_keep_position(@TempDir Path tempDir) throws IOException {
+        AudioDataPacket[] audioDataPackets = writeOggOpusFile(tempDir.resolve("test.opus"), 300);
+
+        try (OggStream oggStream = OggStream.from(tempDir.resolve("test.opus").toString())) {
+            OggOpusStream oggOpusStream = OggOpusStream.from(oggStream);
+            oggOpusStream.readAudioPacket();
+
+            assertEquals(300 * 960 - 127, oggOpusStream.probeDurationSamples());
+            assertArrayEquals(audioDataPackets[1].dump(), oggOpusStream.readAudioPacket().dump());
+        }
+    }
+
+    @Test
+    void should_probe_duration_of_stream_that_is_chained_with_other_stream(@TempDir Path tempDir)
+            throws IOException {
+        Path file = tempDir.resolve("test.opus");
+        writeOggOpusFile(file, 20);
+        try (OggOpusWriter writer = OggOpusWriter.to(Channels.newChannel(new FileOutputStream(file.toFile(), true)),
+                TestUtil.createIdHeader(2, 127), CommentHeader.emptyHeader(), 12345)) {
+            for (int i = 0; i < 1000; i++) {
+                writer.writeAudioPacket(TestUtil.createAudioDataPacket(Config.of(1), 300, (byte) i));
+            }
+        }
+
+        try (OggStream oggStream = OggStream.fromMappedFile(file.toString())) {
+            assertEquals(20 * 960 - 127, OggOpusStream.from(oggStream).probeDurationSamples());
+        }
+    }
+
+    @Test
+    void should_read_raw_packets_into_byte_buffer(@TempDir Path tempDir) throws IOException {
+        AudioDataPacket[] audioDataPackets = writeOggOpusFile(tempDir.resolve("test.opus"), 100);
+        OggOpusStream oggOpusStream = OggOpusStream.from(tempDir.resolve("test.opus").toString());
+        ByteBuffer buffer = ByteBuffer.allocate(1000);
+
+        for (int i = 0; i < 100; i++) {
+            byte[] expected = audioDataPackets[i].dump();
+            if (expected.length > buffer.capacity()) {
+                ByteBuffer smallBuffer = buffer;
+                assertThrows(BufferOverflowException.class, () -> oggOpusStream.readRawPacket(smallBuffer));
+                assertEquals(0, smallBuffer.position());
+                buffer = ByteBuffer.allocate(expected.length);
+            }
+            assertEquals(expected.length, oggOpusStream.readRawPacket(buffer));
+            assertArrayEquals(expected, Arrays.copyOf(buffer.array(), buffer.position()));
+            buffer.clear();
+        }
+        assertEquals(-1, oggOpusStream.readRawPacket(buffer));
+    }
+
+    @Test
+    void should_read_raw_packets_that_span_pages_into_byte_buffer(@TempDir Path tempDir) throws IOException {
+        AudioDataPacket[] audioDataPackets = writeOggOpusFile(tempDir.resolve("test.opus"), 100);
+        OggOpusStream oggOpusStream = OggOpusStream.from(tempDir.resolve("test.opus").toString());
+        ByteBuffer buffer = ByteBuffer.allocate(100000);
+        buffer.position(10);
+
+        for (int i = 0; i < 100; i++) {
+            byte[] expected = audioDataPackets[i].dump();
+            assertEquals(expected.length, oggOpusStream.readRawPacket(buffer));
+            assertEquals(10 + expected.length, buffer.position());
+            assertArrayEquals(expected, Arrays.copyOfRange(buffer.array(), 10, buffer.position()));
+            assertEquals(i * 960 - 127, oggOpusStream.getPacketStartSample());
+            buffer.position(10);
+        }
+        assertEquals(-1, oggOpusStream.readRawPacket(buffer));
+    }
+
+    @Test
+    void should_seek_to_packet_by_granule_position_with_index(@TempDir Path tempDir) throws IOException {
+        AudioDataPacket[] audioDataPackets = writeOggOpusFile(tempDir.resolve("test.opus"), 300);
+
+        try (OggStream oggStream = OggStream.fromMappedFile(tempDir.resolve("test.opus").toString())) {
+            OggOpusStream oggOpusStream = OggOpusStream.from(oggStream);
+            TestUtil.assertOpusPacketEqual(audioDataPackets[0].getOpusPackets().get(0),
+                    oggOpusStream.readAudioPacket().getOpusPackets().get(0));
+            oggOpusStream.buildSeekIndex();
+            OggPageIndex seekIndex = oggOpusStream.getSeekIndex();
+            assertEquals(300 * 960, seekIndex.getGranulePosition(seekIndex.size() - 1));
+            TestUtil.assertOpusPacketEqual(audioDataPackets[1].getOpusPackets().get(0),
+                    oggOpusStream.readAudioPacket().getOpusPackets().get(0));
+            assertSeekToPackets(oggOpusStream, audioDataPackets);
+        }
+    }
+
+    @Test
+    void should_seek_to_packet_by_granule_position_with_index_loaded_from_sidecar_file(@TempDir Path tempDir)
+            throws IOException {
+        String filePath = tempDir.resolve("test.opus").toString();
+        AudioDataPacket[] audioDataPackets = writeOggOpusFile(tempDir.resolve("test.opus"), 300);
+        OggPageIndex.loadOrBuildSidecar(filePath);
+
+        try (OggStream oggStream = OggStream.from(filePath)) {
+            OggOpusStream oggOpusStream = OggOpusStream.from(oggStream);
+            oggOpusStream.setSeekIndex(OggPageIndex.loadSidecar(filePath));
+            assertSeekToPackets(oggOpusStream, audioDataPackets);
+        }
+    }
+
+    @Test
+    void should_throw_exception_if_seek_index_does_not_match_stream(@TempDir Path tempDir) throws IOException {
+        String filePath = tempDir.resolve("test.opus").toString();
+        writeOggOpusFile(tempDir.resolve("test.opus"), 300);
+        OggPageIndex seekIndex = OggPageIndex.loadOrBuildSidecar(filePath);
+        byte[] data = Files.readAllBytes(tempDir.resolve("test.opus"));
+        int middle = data.length / 2;
+        Files.write(tempDir.resolve("test.opus"), Bytes.concat(Arrays.copyOf(data, middle), new byte[1000],
+                Arrays.copyOfRange(data, middle, data.length)));
+
+        try (OggStream oggStream = OggStream.from(filePath)) {
+            OggOpusStream oggOpusStream = OggOpusStream.from(oggStream);
+            oggOpusStream.setSeekIndex(seekIndex);
+            assertThrows(InvalidOpusException.class, () -> oggOpusStream.seek(250 * 960));
+        }
+    }
+
+    @Test
+    void should_throw_exception_if_seeking_stream_that_is_not_seekable() throws IOException {
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        try (OggOpusWriter writer = OggOpusWriter.to(outputStream, TestUtil.createIdHeader(2, 127),
+                CommentHeader.emptyHeader())) {
+            writer.writeAudioPacket(TestUtil.createAudioDataPacket(Config.of(1), 10, (byte) 1));
+        }
+        OggOpusStream oggOpusStream = OggOpusStream.from(new ByteArrayInputStream(outputStream.toByteArray()));
+
+        assertThrows(IllegalStateException.class, () -> oggOpusStream.seek(0));
+    }
+
+    private void assertSeekToPackets(OggOpusStream oggOpusStream, AudioDataPacket[] audioDataPackets)
+            throws IOException {
+        long[] targets = {0, 959, 960, 5000, 25 * 960 + 100, 150 * 960, 299 * 960, 100 * 960, 1};
+        for (long target : targets) {
+            long granulePosition = oggOpusStream.seek(target);
+            assertTrue(granulePosition <= target && granulePosition > target - 3 * 960);
+            assertEquals(0, granulePosition % 960);
+            for (int i = (int) (granulePosition / 960); i < audioDataPackets.length; i++) {
+                TestUtil.assertOpusPacketEqual(audioDataPackets[i].getOpusPackets().get(0),
+                        oggOpusStream.readAudioPacket().getOpusPackets().get(0));
+            }
+            assertNull(oggOpusStream.readAudioPacket());
+        }
+        assertEquals(300 * 960, oggOpusStream.seek(Long.MAX_VALUE));
+        assertNull(oggOpusStream.readAudioPacket());
+    }
+
+    /**
+     * Write 20 ms packets, 3 packets per page, and some packets are large enough to span pages.
+     */
+    private AudioDataPacket[] writeOggOpusFile(Path file, int packetCount) throws IOException {
+        return TestUtil.writeOggOpusFile(file, TestUtil.createIdHeader(2, 127), Config.of(1), packetCount,
+                i -> i % 50 == 25 ? 70000 : 300);
     }
 
     @Test
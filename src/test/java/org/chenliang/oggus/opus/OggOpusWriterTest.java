@@ -0,0 +1,155 @@
+package org.chenliang.oggus.opus;
+
+import org.chenliang.oggus.TestUtil;
+import org.chenliang.oggus.ogg.OggPage;
+import org.chenliang.oggus.ogg.OggStream;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.channels.Channels;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class OggOpusWriterTest {
+    @Test
+    void should_write_ogg_opus_stream_that_could_be_read_back() throws IOException {
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        IdHeader idHeader = TestUtil.createIdHeader(2, 312);
+        CommentHeader commentHeader = TestUtil.createCommentHeader();
+        AudioDataPacket[] audioDataPackets = new AudioDataPacket[100];
+        try (OggOpusWriter writer = OggOpusWriter.to(outputStream, idHeader, commentHeader)) {
+            for (int i = 0; i < audioDataPackets.length; i++) {
+                audioDataPackets[i] = TestUtil.createAudioDataPacket(Config.of(1), 100 + i * 10, (byte) i);
+                writer.writeAudioPacket(audioDataPackets[i]);
+            }
+            assertEquals(100 * 960, writer.getGranulePosition());
+        }
+
+        OggOpusStream oggOpusStream = OggOpusStream.from(new ByteArrayInputStream(outputStream.toByteArray()));
+        assertArrayEquals(idHeader.dump(), oggOpusStream.getIdHeader().dump());
+        assertEquals("test vendor", oggOpusStream.getCommentHeader().getVendor());
+        for (AudioDataPacket expectedPacket : audioDataPackets) {
+            AudioDataPacket actualPacket = oggOpusStream.readAudioPacket();
+            TestUtil.assertOpusPacketEqual(expectedPacket.getOpusPackets().get(0),
+                    actualPacket.getOpusPackets().get(0));
+        }
+        assertNull(oggOpusStream.readAudioPacket());
+    }
+
+    @Test
+    void should_read_back_stream_that_ends_with_empty_eos_page() throws IOException {
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        AudioDataPacket audioDataPacket = TestUtil.createAudioDataPacket(Config.of(1), 100, (byte) 1);
+        try (OggOpusWriter writer = OggOpusWriter.to(outputStream, TestUtil.createIdHeader(2, 312),
+                TestUtil.createCommentHeader())) {
+            writer.writeAudioPacket(audioDataPacket);
+            writer.flush();
+        }
+
+        OggOpusStream oggOpusStream = OggOpusStream.from(new ByteArrayInputStream(outputStream.toByteArray()));
+        TestUtil.assertOpusPacketEqual(audioDataPacket.getOpusPackets().get(0),
+                oggOpusStream.readAudioPacket().getOpusPackets().get(0));
+        assertNull(oggOpusStream.readAudioPacket());
+    }
+
+    @Test
+    void should_write_headers_in_separate_pages_and_calculate_granule_position() throws IOException {
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        try (OggOpusWriter writer = OggOpusWriter.to(Channels.newChannel(outputStream), TestUtil.createIdHeader(2, 312),
+                TestUtil.createCommentHeader(), 123)) {
+            writer.writeAudioPacket(TestUtil.createAudioDataPacket(Config.of(16), 10, (byte) 1));
+            writer.writeAudioPacket(TestUtil.createAudioDataPacket(Config.of(3), 10, (byte) 2));
+        }
+
+        OggStream oggStream = OggStream.from(new ByteArrayInputStream(outputStream.toByteArray()));
+        OggPage idHeaderPage = oggStream.readPage();
+        assertTrue(idHeaderPage.isBOS());
+        assertEquals(123, idHeaderPage.getSerialNum());
+        assertEquals(0, idHeaderPage.getGranulePosition());
+        assertEquals(1, idHeaderPage.getDataPackets().size());
+
+        OggPage commentHeaderPage = oggStream.readPage();
+        assertEquals(1, commentHeaderPage.getSeqNum());
+        assertEquals(0, commentHeaderPage.getGranulePosition());
+        assertEquals(1, commentHeaderPage.getDataPackets().size());
+
+        OggPage audioPage = oggStream.readPage();
+        assertEquals(2, audioPage.getSeqNum());
+        assertTrue(audioPage.isEOS());
+        assertEquals(120 + 2880, audioPage.getGranulePosition());
+        assertEquals(2, audioPage.getDataPackets().size());
+        assertNull(oggStream.readPage());
+    }
+
+    @Test
+    void should_trim_end_of_last_raw_packet_with_granule_position_of_eos_page() throws IOException {
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        OggOpusWriter writer = OggOpusWriter.to(Channels.newChannel(outputStream), TestUtil.createIdHeader(2, 312),
+                TestUtil.createCommentHeader());
+        writer.writeRawPacket(TestUtil.createAudioDataPacket(Config.of(1), 10, (byte) 1).dump());
+        writer.writeLastRawPacket(TestUtil.createAudioDataPacket(Config.of(1), 10, (byte) 2).dump(), 400);
+        assertEquals(960 + 560, writer.getGranulePosition());
+
+        OggOpusStream oggOpusStream = OggOpusStream.from(new ByteArrayInputStream(outputStream.toByteArray()));
+        assertEquals(960 - 312, oggOpusStream.readAudioPacket().getEndSample());
+        AudioDataPacket lastPacket = oggOpusStream.readAudioPacket();
+        assertEquals(960 - 312, lastPacket.getStartSample());
+        assertEquals(960 + 560 - 312, lastPacket.getEndSample());
+        assertNull(oggOpusStream.readAudioPacket());
+        assertThrows(IllegalArgumentException.class,
+                () -> OggOpusWriter.to(Channels.newChannel(new ByteArrayOutputStream()),
+                        TestUtil.createIdHeader(2, 312), TestUtil.createCommentHeader())
+                        .writeLastRawPacket(new byte[]{8}, 961));
+    }
+
+    @Test
+    void should_close_pages_by_audio_duration() throws IOException {
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        try (OggOpusWriter writer = OggOpusWriter.to(outputStream, TestUtil.createIdHeader(2, 312),
+                TestUtil.createCommentHeader())) {
+            writer.setFlushPolicy(OpusPageFlushPolicies.afterMillis(60));
+            for (int i = 0; i < 10; i++) {
+                writer.writeAudioPacket(TestUtil.createAudioDataPacket(Config.of(1), 10, (byte) i));
+            }
+        }
+
+        OggStream oggStream = OggStream.from(new ByteArrayInputStream(outputStream.toByteArray()));
+        oggStream.readPage();
+        oggStream.readPage();
+        assertEquals(3 * 960, oggStream.readPage().getGranulePosition());
+        assertEquals(6 * 960, oggStream.readPage().getGranulePosition());
+        assertEquals(9 * 960, oggStream.readPage().getGranulePosition());
+        OggPage lastPage = oggStream.readPage();
+        assertEquals(10 * 960, lastPage.getGranulePosition());
+        assertEquals(1, lastPage.getDataPackets().size());
+        assertTrue(lastPage.isEOS());
+    }
+
+    @Test
+    void should_write_one_page_per_20_ms_with_low_latency_policy() throws IOException {
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        try (OggOpusWriter writer = OggOpusWriter.to(outputStream, TestUtil.createIdHeader(2, 312),
+                TestUtil.createCommentHeader())) {
+            writer.setFlushPolicy(OpusPageFlushPolicies.lowLatency());
+            for (int i = 0; i < 4; i++) {
+                writer.writeAudioPacket(TestUtil.createAudioDataPacket(Config.of(18), 10, (byte) i));
+            }
+            writer.writeAudioPacket(TestUtil.createAudioDataPacket(Config.of(3), 10, (byte) 4));
+        }
+
+        OggStream oggStream = OggStream.from(new ByteArrayInputStream(outputStream.toByteArray()));
+        oggStream.readPage();
+        oggStream.readPage();
+        assertEquals(960, oggStream.readPage().getGranulePosition());
+        assertEquals(1920, oggStream.readPage().getGranulePosition());
+        assertEquals(1920 + 2880, oggStream.readPage().getGranulePosition());
+        assertEquals(1920 + 2880, oggStream.readPage().getGranulePosition());
+        assertNull(oggStream.readPage());
+    }
+}
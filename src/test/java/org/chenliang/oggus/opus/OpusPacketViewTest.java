@@ -0,0 +1,175 @@
+package org.chenliang.oggus.opus;
+
+import com.google.common.primitives.Bytes;
+import org.chenliang.oggus.TestUtil;
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class OpusPacketViewTest {
+    @Test
+    void should_parse_code_zero_packet_without_copying_frames() {
+        OpusPacket opusPacket = OpusPackets.newPacket(Config.of(12), Channel.STEREO, 0);
+        opusPacket.addFrame(TestUtil.createBinary(300, (byte) 1));
+        byte[] data = opusPacket.dumpToStandardFormat();
+
+        OpusPacketView view = new OpusPacketView().parse(data);
+
+        assertSame(data, view.getData());
+        assertEquals(0, view.getCode());
+        assertEquals(Config.of(12), view.getConfig());
+        assertEquals(Channel.STEREO, view.getChannel());
+        assertEquals(1, view.getFrameCount());
+        assertEquals(1, view.getFrameOffset(0));
+        assertEquals(300, view.getFrameLength(0));
+        assertEquals(480, view.getSampleCount());
+        assertEquals(data.length, view.getLength());
+    }
+
+    @Test
+    void should_parse_code_one_and_code_two_packets() {
+        OpusPacket codeOnePacket = OpusPackets.newPacket(Config.of(1), Channel.MONO, 1);
+        codeOnePacket.addFrame(TestUtil.createBinary(100, (byte) 1));
+        codeOnePacket.addFrame(TestUtil.createBinary(100, (byte) 2));
+        OpusPacket codeTwoPacket = OpusPackets.newPacket(Config.of(1), Channel.MONO, 2);
+        codeTwoPacket.addFrame(TestUtil.createBinary(300, (byte) 1));
+        codeTwoPacket.addFrame(TestUtil.createBinary(50, (byte) 2));
+
+        OpusPacketView view = new OpusPacketView();
+        view.parse(codeOnePacket.dumpToStandardFormat());
+        assertEquals(2, view.getFrameCount());
+        assertEquals(101, view.getFrameOffset(1));
+        assertEquals(100, view.getFrameLength(1));
+        assertEquals(1920, view.getSampleCount());
+
+        view.parse(codeTwoPacket.dumpToStandardFormat());
+        assertEquals(2, view.getFrameCount());
+        assertEquals(3, view.getFrameOffset(0));
+        assertEquals(300, view.getFrameLength(0));
+        assertEquals(303, view.getFrameOffset(1));
+        assertEquals(50, view.getFrameLength(1));
+    }
+
+    @Test
+    void should_parse_code_three_vbr_packet_with_padding() {
+        OpusPacket opusPacket = OpusPackets.newPacket(Config.of(16), Channel.STEREO, 3);
+        opusPacket.setVbr(true);
+        opusPacket.setFrameCount(3);
+        opusPacket.setHasPadding(true);
+        opusPacket.setPadLenBytesSum(300);
+        opusPacket.addFrame(TestUtil.createBinary(252, (byte) 1));
+        opusPacket.addFrame(TestUtil.createBinary(10, (byte) 2));
+        opusPacket.addFrame(TestUtil.createBinary(20, (byte) 3));
+        byte[] data = opusPacket.dumpToStandardFormat();
+
+        OpusPacketView view = new OpusPacketView().parse(data);
+
+        assertTrue(view.isVbr());
+        assertTrue(view.hasPadding());
+        assertEquals(300, view.getPadLenBytesSum());
+        assertEquals(299, view.getPadDataLen());
+        assertEquals(3, view.getFrameCount());
+        assertEquals(252, view.getFrameLength(0));
+        assertEquals(10, view.getFrameLength(1));
+        assertEquals(20, view.getFrameLength(2));
+        assertEquals(data.length - 299 - 20, view.getFrameOffset(2));
+        assertEquals(360, view.getSampleCount());
+        TestUtil.assertOpusPacketEqual(opusPacket, view.toOpusPacket());
+    }
+
+    @Test
+    void should_parse_code_three_cbr_packet() {
+        OpusPacket opusPacket = OpusPackets.newPacket(Config.of(16), Channel.STEREO, 3);
+        opusPacket.setVbr(false);
+        opusPacket.setFrameCount(4);
+        opusPacket.setHasPadding(false);
+        for (int i = 0; i < 4; i++) {
+            opusPacket.addFrame(TestUtil.createBinary(60, (byte) i));
+        }
+
+        OpusPacketView view = new OpusPacketView().parse(opusPacket.dumpToStandardFormat());
+
+        assertFalse(view.isVbr());
+        assertFalse(view.hasPadding());
+        assertEquals(4, view.getFrameCount());
+        assertEquals(2 + 60 * 3, view.getFrameOffset(3));
+        assertEquals(60, view.getFrameLength(3));
+        TestUtil.assertOpusPacketEqual(opusPacket, view.toOpusPacket());
+    }
+
+    @Test
+    void should_parse_self_delimiting_packets_one_after_another() {
+        OpusPacket opusPacket1 = OpusPackets.newPacket(Config.of(31), Channel.STEREO, 2);
+        opusPacket1.addFrame(TestUtil.createBinary(500, (byte) 1));
+        opusPacket1.addFrame(TestUtil.createBinary(252, (byte) 2));
+        OpusPacket opusPacket2 = OpusPackets.newPacket(Config.of(16), Channel.STEREO, 3);
+        opusPacket2.setVbr(true);
+        opusPacket2.setFrameCount(2);
+        opusPacket2.setHasPadding(true);
+        opusPacket2.setPadLenBytesSum(10);
+        opusPacket2.addFrame(TestUtil.createBinary(30, (byte) 3));
+        opusPacket2.addFrame(TestUtil.createBinary(40, (byte) 4));
+        OpusPacket opusPacket3 = OpusPackets.newPacket(Config.of(31), Channel.STEREO, 0);
+        opusPacket3.addFrame(TestUtil.createBinary(100, (byte) 5));
+        byte[] data = Bytes.concat(opusPacket1.dumpToSelfDelimitingFormat(),
+                opusPacket2.dumpToSelfDelimitingFormat(), opusPacket3.dumpToStandardFormat());
+
+        OpusPacketView view = new OpusPacketView();
+        view.parseSelfDelimiting(data, 0, data.length);
+        assertEquals(opusPacket1.dumpToSelfDelimitingFormat().length, view.getLength());
+        TestUtil.assertOpusPacketEqual(opusPacket1, view.toOpusPacket());
+        int offset = view.getLength();
+        view.parseSelfDelimiting(data, offset, data.length - offset);
+        assertEquals(offset, view.getOffset());
+        TestUtil.assertOpusPacketEqual(opusPacket2, view.toOpusPacket());
+        offset += view.getLength();
+        view.parse(data, offset, data.length - offset);
+        TestUtil.assertOpusPacketEqual(opusPacket3, view.toOpusPacket());
+        assertArrayEquals(TestUtil.createBinary(100, (byte) 5),
+                Arrays.copyOfRange(data, view.getFrameOffset(0), view.getFrameOffset(0) + view.getFrameLength(0)));
+    }
+
+    @Test
+    void should_copy_frames_to_existing_packet_of_same_code() {
+        OpusPacket opusPacket = OpusPackets.newPacket(Config.of(16), Channel.STEREO, 3);
+        opusPacket.setVbr(true);
+        opusPacket.setFrameCount(2);
+        opusPacket.setHasPadding(false);
+        opusPacket.addFrame(TestUtil.createBinary(30, (byte) 1));
+        opusPacket.addFrame(TestUtil.createBinary(40, (byte) 2));
+        OpusPacket target = OpusPackets.newPacket(Config.of(1), Channel.MONO, 3);
+        target.setFrameCount(1);
+        target.addFrame(TestUtil.createBinary(10, (byte) 3));
+        OpusPacketView view = new OpusPacketView().parse(opusPacket.dumpToStandardFormat());
+
+        assertSame(target, view.copyTo(target));
+        TestUtil.assertOpusPacketEqual(opusPacket, target);
+        assertThrows(IllegalArgumentException.class,
+                () -> view.copyTo(OpusPackets.newPacket(Config.of(16), Channel.STEREO, 0)));
+    }
+
+    @Test
+    void should_throw_exception_if_packet_is_truncated() {
+        OpusPacket opusPacket = OpusPackets.newPacket(Config.of(16), Channel.STEREO, 3);
+        opusPacket.setVbr(true);
+        opusPacket.setFrameCount(2);
+        opusPacket.setHasPadding(false);
+        opusPacket.addFrame(TestUtil.createBinary(300, (byte) 1));
+        opusPacket.addFrame(TestUtil.createBinary(40, (byte) 2));
+        byte[] data = opusPacket.dumpToSelfDelimitingFormat();
+        OpusPacketView view = new OpusPacketView();
+
+        assertThrows(InvalidOpusException.class, () -> view.parse(new byte[0]));
+        assertThrows(InvalidOpusException.class, () -> view.parse(Arrays.copyOf(data, 3)));
+        assertThrows(InvalidOpusException.class, () -> view.parseSelfDelimiting(data, 0, data.length - 1));
+        assertThrows(InvalidOpusException.class, () -> view.parse(new byte[]{(byte) 0x03, (byte) 0x00}));
+        assertThrows(IndexOutOfBoundsException.class, () -> view.parse(data, 10, data.length));
+    }
+}
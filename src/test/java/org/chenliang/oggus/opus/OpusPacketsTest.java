@@ -60,6 +60,20 @@ class OpusPacketsTest {
         TestUtil.assertOpusPacketEqual(expectedPacket, parsedPacket);
     }
 
+    @ParameterizedTest
+    @ValueSource(ints = {251, 252, 253, 1275})
+    void should_parse_frame_length_encoded_in_one_or_two_bytes(int frameLength) {
+        OpusPacket expectedPacket = OpusPackets.newPacket(Config.of(1), Channel.STEREO, 2);
+        expectedPacket.addFrame(TestUtil.createBinary(frameLength, (byte) 1));
+        expectedPacket.addFrame(TestUtil.createBinary(10, (byte) 2));
+
+        byte[] data = Bytes.concat(expectedPacket.dumpToSelfDelimitingFormat(), expectedPacket.dumpToStandardFormat());
+        List<OpusPacket> opusPackets = OpusPackets.from(data, 2);
+
+        TestUtil.assertOpusPacketEqual(expectedPacket, opusPackets.get(0));
+        TestUtil.assertOpusPacketEqual(expectedPacket, opusPackets.get(1));
+    }
+
     @ParameterizedTest
     @ValueSource(ints = {0, 1, 2})
     void should_parse_binary_contains_multiple_packets(int code) {
@@ -1,10 +1,16 @@
 package org.chenliang.oggus.opus;
 
+import com.google.common.primitives.Bytes;
+import org.chenliang.oggus.TestUtil;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.params.ParameterizedTest;
 import org.junit.jupiter.params.provider.CsvSource;
 
+import java.nio.ByteBuffer;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
 
 class OpusUtilTest {
     @Test
@@ -29,4 +35,61 @@ class OpusUtilTest {
         assertEquals(first, Byte.toUnsignedInt(data[0]));
         assertEquals(second, Byte.toUnsignedInt(data[1]));
     }
-}
\ No newline at end of file
+
+    @Test
+    void should_inspect_packet_from_toc_byte() {
+        OpusPacket opusPacket = OpusPackets.newPacket(Config.of(9), Channel.MONO, 1);
+        opusPacket.addFrame(TestUtil.createBinary(10, (byte) 1));
+        opusPacket.addFrame(TestUtil.createBinary(10, (byte) 2));
+        byte[] data = opusPacket.dumpToStandardFormat();
+
+        assertEquals(Config.of(9), OpusUtil.getConfig(data));
+        assertEquals(Config.Bandwidth.WB, OpusUtil.getConfig(data).getBandwidth());
+        assertEquals(Channel.MONO, OpusUtil.getChannel(data));
+        assertEquals(2, OpusUtil.getFrameCount(data));
+        assertEquals(1920, OpusUtil.getSampleCount(data));
+    }
+
+    @Test
+    void should_inspect_code_three_packet_from_frame_count_byte() {
+        OpusPacket opusPacket = OpusPackets.newPacket(Config.of(16), Channel.STEREO, 3);
+        opusPacket.setVbr(true);
+        opusPacket.setFrameCount(48);
+        opusPacket.setHasPadding(true);
+        opusPacket.setPadLenBytesSum(10);
+        for (int i = 0; i < 48; i++) {
+            opusPacket.addFrame(TestUtil.createBinary(i, (byte) i));
+        }
+        byte[] data = Bytes.concat(new byte[3], opusPacket.dumpToStandardFormat());
+
+        assertEquals(48, OpusUtil.getFrameCount(data, 3, data.length - 3));
+        assertEquals(48 * 120, OpusUtil.getSampleCount(data, 3, data.length - 3));
+        assertEquals(opusPacket.getSampleCount(), OpusUtil.getSampleCount(opusPacket.dumpToStandardFormat()));
+    }
+
+    @Test
+    void should_get_sample_counts_of_packets() {
+        byte[][] packets = {{(byte) (31 << 3)}, {(byte) (3 << 3 | 1)}, {(byte) (16 << 3 | 3), 5}};
+        int[] sampleCounts = new int[3];
+
+        assertEquals(960 + 2880 * 2 + 120 * 5, OpusUtil.getSampleCounts(packets, sampleCounts));
+        assertArrayEquals(new int[]{960, 2880 * 2, 120 * 5}, sampleCounts);
+        assertThrows(IllegalArgumentException.class, () -> OpusUtil.getSampleCounts(packets, new int[2]));
+    }
+
+    @Test
+    void should_get_sample_count_of_packet_in_buffer() {
+        ByteBuffer buffer = ByteBuffer.wrap(new byte[]{0, 0, (byte) (16 << 3 | 3), 5, 0});
+
+        assertEquals(120 * 5, OpusUtil.getSampleCount(buffer, 2, 3));
+        assertEquals(0, buffer.position());
+        assertThrows(InvalidOpusException.class, () -> OpusUtil.getSampleCount(buffer, 2, 1));
+    }
+
+    @Test
+    void should_throw_exception_if_packet_is_too_short_to_inspect() {
+        assertThrows(InvalidOpusException.class, () -> OpusUtil.getSampleCount(new byte[0]));
+        assertThrows(InvalidOpusException.class, () -> OpusUtil.getFrameCount(new byte[]{(byte) 0x03}));
+        assertThrows(InvalidOpusException.class, () -> OpusUtil.getFrameCount(new byte[]{(byte) 0x03, 0}));
+    }
+}
@@ -0,0 +1,73 @@
+package org.chenliang.oggus.util;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class CRCUtilTest {
+    @ParameterizedTest
+    @ValueSource(ints = {0, 1, 7, 8, 9, 15, 16, 17, 255, 4096, 65307})
+    void should_calculate_same_checksum_as_reference_implementation(int length) {
+        byte[] data = randomBinary(length);
+
+        assertEquals(CRCUtil.getCRC(data), CRCUtil.update(0, data, 0, data.length));
+    }
+
+    @Test
+    void should_calculate_checksum_of_part_of_byte_array() {
+        byte[] data = randomBinary(1000);
+
+        for (int offset = 0; offset < 10; offset++) {
+            for (int length = 0; length < 30; length++) {
+                byte[] part = Arrays.copyOfRange(data, offset, offset + length);
+                assertEquals(CRCUtil.getCRC(part), CRCUtil.update(0, data, offset, length));
+            }
+        }
+    }
+
+    @Test
+    void should_calculate_checksum_incrementally() {
+        byte[] data = randomBinary(1000);
+
+        int crc = CRCUtil.update(0, data, 0, 13);
+        crc = CRCUtil.update(crc, data, 13, 500);
+        crc = CRCUtil.update(crc, data, 513, 487);
+
+        assertEquals(CRCUtil.getCRC(data), crc);
+    }
+
+    @Test
+    void should_calculate_checksum_of_byte_buffer() {
+        byte[] data = randomBinary(1000);
+        int expected = CRCUtil.getCRC(Arrays.copyOfRange(data, 3, 998));
+
+        ByteBuffer heapBuffer = ByteBuffer.wrap(data, 3, 995);
+        assertEquals(expected, CRCUtil.update(0, heapBuffer.slice()));
+
+        ByteBuffer directBuffer = ByteBuffer.allocateDirect(data.length);
+        directBuffer.put(data).position(3).limit(998);
+        assertEquals(expected, CRCUtil.update(0, directBuffer));
+        assertEquals(998, directBuffer.position());
+    }
+
+    @Test
+    void should_throw_exception_when_range_is_out_of_array() {
+        byte[] data = new byte[10];
+
+        assertThrows(IndexOutOfBoundsException.class, () -> CRCUtil.update(0, data, 5, 6));
+        assertThrows(IndexOutOfBoundsException.class, () -> CRCUtil.update(0, data, -1, 6));
+    }
+
+    private byte[] randomBinary(int length) {
+        byte[] data = new byte[length];
+        new Random(length).nextBytes(data);
+        return data;
+    }
+}